@@ -2,12 +2,15 @@ package com.couple.space;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * 应用程序入口类
  * 使用@SpringBootApplication注解标记这是一个Spring Boot应用
+ * 使用@EnableScheduling注解开启定时任务
  */
 @SpringBootApplication
+@EnableScheduling
 public class SpaceApplication {
     /**
      * 应用程序入口方法
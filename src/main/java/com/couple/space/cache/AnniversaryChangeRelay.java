@@ -0,0 +1,100 @@
+package com.couple.space.cache;
+
+import com.couple.space.entity.Anniversary;
+import com.couple.space.event.AnniversaryChangedEvent;
+import com.couple.space.event.AnniversaryChangedEvent.ChangeType;
+import com.couple.space.mapper.AnniversaryMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 纪念日变更的跨实例转发
+ * 键表、日历索引、搜索索引、变更日志推送、里程碑和列表缓存都在各实例的内存中，只能看到本实例的写操作：
+ * 1. 写操作在事务中通过失效总线发出"变更类型:纪念日ID:空间ID"，事务回滚时不会发出
+ * 2. 其他实例收到后按ID重新读取纪念日，已不存在时按删除处理，
+ *    再作为本地的纪念日变更事件发布，各派生结构按本地写入同样的路径更新
+ * 3. 转发来的事件标记为remote，不会再次发出，避免在实例之间来回转发
+ * 重新读取的是最新数据，同一纪念日的多次变更乱序到达时结果仍然一致
+ */
+@Slf4j
+@Component
+public class AnniversaryChangeRelay {
+    /**
+     * 失效总线上的缓存名称
+     */
+    public static final String CACHE_NAME = "anniversary";
+
+    private final CacheInvalidationBus invalidationBus;
+    private final AnniversaryMapper anniversaryMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public AnniversaryChangeRelay(CacheInvalidationBus invalidationBus,
+                                  AnniversaryMapper anniversaryMapper,
+                                  ApplicationEventPublisher eventPublisher) {
+        this.invalidationBus = invalidationBus;
+        this.anniversaryMapper = anniversaryMapper;
+        this.eventPublisher = eventPublisher;
+        invalidationBus.subscribe(CACHE_NAME, this::onRemoteChange);
+    }
+
+    /**
+     * 纪念日写操作提交前在同一个事务中通知其他实例
+     * @param event 纪念日变更事件
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void publish(AnniversaryChangedEvent event) {
+        if (event.isRemote() || event.getId() == null) {
+            return;
+        }
+        Anniversary anniversary = event.getAnniversary();
+        Long spaceId = anniversary == null ? null : anniversary.getSpaceId();
+        invalidationBus.publish(CACHE_NAME, event.getType().name() + ":" + event.getId() + ":"
+                + (spaceId == null ? "" : spaceId));
+    }
+
+    /**
+     * 从失效键中解析被删除的纪念日ID
+     * @param key 变更类型:纪念日ID:空间ID
+     * @return 删除的纪念日ID，不是删除或无法解析时返回null
+     */
+    public static Long deletedId(String key) {
+        String[] parts = key.split(":", 3);
+        if (parts.length != 3 || !ChangeType.DELETE.name().equals(parts[0])) {
+            return null;
+        }
+        try {
+            return Long.valueOf(parts[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 处理其他实例的纪念日变更
+     * @param key 变更类型:纪念日ID:空间ID
+     */
+    private void onRemoteChange(String key) {
+        String[] parts = key.split(":", 3);
+        if (parts.length != 3) {
+            log.warn("忽略无法解析的纪念日变更通知：{}", key);
+            return;
+        }
+        ChangeType type = ChangeType.valueOf(parts[0]);
+        Long id = Long.valueOf(parts[1]);
+        Anniversary current = type == ChangeType.DELETE ? null : anniversaryMapper.findById(id);
+        if (current != null) {
+            eventPublisher.publishEvent(new AnniversaryChangedEvent(type, id, current, true));
+            return;
+        }
+        // 只有ID和空间ID，足够从各结构中移除并使所属空间的列表失效
+        Anniversary previous = new Anniversary();
+        previous.setId(id);
+        if (!parts[2].isEmpty()) {
+            previous.setSpaceId(Long.valueOf(parts[2]));
+        }
+        eventPublisher.publishEvent(new AnniversaryChangedEvent(ChangeType.DELETE, id, previous, true));
+    }
+}
@@ -0,0 +1,217 @@
+package com.couple.space.cache;
+
+import com.couple.space.common.SingleFlight;
+import com.couple.space.common.SingleFlightRegistry;
+import com.couple.space.entity.Anniversary;
+import com.couple.space.event.AnniversaryChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 纪念日列表响应的字节缓存
+ * 缓存/list接口已经序列化（可选已经gzip压缩）的响应体，命中时直接写出字节，不再经过Jackson
+ * 实现：
+ * 1. 按空间ID缓存，缓存项记录计算剩余天数的日期，日期变化后不再命中
+ * 2. 每个空间有一个列表版本号，纪念日写操作提交后加1，缓存项只在版本号未变化时有效
+ * 3. 版本号按空间ID分散到固定数量的计数器上，不随空间数量增长，冲突只会导致多余的失效
+ * 4. 加载前读取版本号，加载期间发生的写入会使这次加载的结果直接失效，不会缓存旧数据：
+ *    加载不经过服务层的请求合并，并发的未命中按"空间ID:版本号:日期"合并，
+ *    写入使版本号变化之后的请求不会加入变化之前开始的加载
+ * 5. 其他实例的纪念日写操作由AnniversaryChangeRelay转为本地变更事件，空间成员变化通过失效总线按空间ID失效
+ */
+@Slf4j
+@Component
+public class AnniversaryListResponseCache {
+    /**
+     * 版本计数器的数量，必须是2的幂
+     */
+    private static final int VERSION_STRIPES = 1024;
+
+    /**
+     * 失效总线上的缓存名称，缓存键为空间ID
+     */
+    public static final String CACHE_NAME = "anniversary-list";
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 未命中时的加载合并，键为"空间ID:版本号:epoch day"
+     */
+    private final SingleFlight<String, Payload> loadFlight;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final boolean gzipEnabled;
+    private final int gzipMinBytes;
+
+    /**
+     * 按空间ID分散的列表版本号
+     */
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    /**
+     * 空间ID到缓存响应的映射，按访问顺序淘汰
+     */
+    private final LinkedHashMap<Long, Payload> cache;
+
+    /**
+     * 序列化后的响应
+     */
+    public static final class Payload {
+        final long version;
+        final long epochDay;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        Payload(long version, long epochDay, byte[] json, byte[] gzip) {
+            this.version = version;
+            this.epochDay = epochDay;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        /**
+         * 未压缩的JSON
+         * @return 响应体字节，调用方不能修改
+         */
+        public byte[] getJson() {
+            return json;
+        }
+
+        /**
+         * gzip压缩后的JSON
+         * @return 压缩后的响应体字节，未压缩时返回null，调用方不能修改
+         */
+        public byte[] getGzip() {
+            return gzip;
+        }
+    }
+
+    public AnniversaryListResponseCache(ObjectMapper objectMapper,
+                                        CacheInvalidationBus invalidationBus,
+                                        SingleFlightRegistry singleFlightRegistry,
+                                        @Value("${anniversary.list-cache.enabled:true}") boolean enabled,
+                                        @Value("${anniversary.list-cache.max-entries:10000}") int maxEntries,
+                                        @Value("${anniversary.list-cache.gzip:true}") boolean gzipEnabled,
+                                        @Value("${anniversary.list-cache.gzip-min-bytes:1024}") int gzipMinBytes) {
+        this.objectMapper = objectMapper;
+        this.loadFlight = singleFlightRegistry.create("anniversary.list-cache");
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.gzipEnabled = gzipEnabled;
+        this.gzipMinBytes = gzipMinBytes;
+        this.cache = new LinkedHashMap<Long, Payload>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Payload> eldest) {
+                return size() > AnniversaryListResponseCache.this.maxEntries;
+            }
+        };
+        invalidationBus.subscribe(CACHE_NAME, key -> {
+            if (CacheInvalidationBus.ALL_KEYS.equals(key)) {
+                invalidateAll();
+            } else {
+                invalidate(Long.parseLong(key));
+            }
+        });
+    }
+
+    /**
+     * 获取空间的列表响应，未命中时加载并序列化
+     * @param spaceId 空间ID
+     * @param epochDay 计算剩余天数的日期
+     * @param loader 加载完整的响应体，必须在调用时读取数据库，不能加入更早开始的查询
+     * @return 序列化后的响应
+     */
+    public Payload get(long spaceId, long epochDay, Supplier<?> loader) {
+        if (!enabled) {
+            return serialize(0, epochDay, loader.get());
+        }
+        int stripe = stripe(spaceId);
+        long version = versions.get(stripe);
+        synchronized (cache) {
+            Payload cached = cache.get(spaceId);
+            if (cached != null && cached.version == version && cached.epochDay == epochDay) {
+                return cached;
+            }
+        }
+        Payload payload = loadFlight.execute(spaceId + ":" + version + ":" + epochDay,
+                () -> serialize(version, epochDay, loader.get()));
+        // 加载期间有写入时不缓存
+        if (versions.get(stripe) == version) {
+            synchronized (cache) {
+                cache.put(spaceId, payload);
+            }
+        }
+        return payload;
+    }
+
+    /**
+     * 使空间的列表响应失效
+     * @param spaceId 空间ID
+     */
+    public void invalidate(long spaceId) {
+        versions.incrementAndGet(stripe(spaceId));
+        synchronized (cache) {
+            cache.remove(spaceId);
+        }
+    }
+
+    /**
+     * 纪念日写操作提交后使所属空间的列表响应失效
+     * 事件中没有空间ID时使所有空间失效
+     * @param event 纪念日变更事件
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAnniversaryChanged(AnniversaryChangedEvent event) {
+        Anniversary anniversary = event.getAnniversary();
+        if (anniversary != null && anniversary.getSpaceId() != null) {
+            invalidate(anniversary.getSpaceId());
+            return;
+        }
+        invalidateAll();
+    }
+
+    private void invalidateAll() {
+        for (int i = 0; i < VERSION_STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private Payload serialize(long version, long epochDay, Object body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            return new Payload(version, epochDay, json, gzipEnabled && json.length >= gzipMinBytes ? gzip(json) : null);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("纪念日列表序列化失败", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            // 内存中的流不会抛出IO异常
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static int stripe(long spaceId) {
+        return (int) (spaceId & (VERSION_STRIPES - 1));
+    }
+}
@@ -0,0 +1,286 @@
+package com.couple.space.cache;
+
+import com.couple.space.entity.CacheInvalidation;
+import com.couple.space.job.ClusterJobScheduler;
+import com.couple.space.job.JobContext;
+import com.couple.space.mapper.CacheInvalidationMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 多实例之间的本地缓存失效总线
+ * 不依赖Redis、Kafka等外部组件，使用现有MySQL中的失效日志表：
+ * 1. 写操作在同一个事务中追加一行失效记录，事务回滚时不会产生失效
+ * 2. 各实例定期按自增ID轮询增量，一次主键范围查询，没有新记录时返回空结果
+ * 3. 自增ID的分配顺序与提交顺序可能不同，较小的ID可能晚于较大的ID可见：
+ *    已处理的ID在补读窗口内保留，窗口内缺失的ID会被重新查询，超过补读时间后视为已回滚
+ * 4. 可选的UDP组播作为快速路径，事务提交后立即通知其他实例，丢包时由轮询兜底
+ * 失效是幂等的，重复处理同一条记录只会导致一次多余的缓存未命中
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus {
+    /**
+     * 表示整个缓存失效的键
+     */
+    public static final String ALL_KEYS = "*";
+
+    private final CacheInvalidationMapper invalidationMapper;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long gapTimeoutMillis;
+    private final long retentionMillis;
+
+    /**
+     * 本实例的ID，轮询时跳过自己发出的记录
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 缓存名称到失效处理器的映射
+     */
+    private final Map<String, List<Consumer<String>>> handlers = new ConcurrentHashMap<>();
+
+    /**
+     * 组播通道，未启用时为null
+     */
+    private final MulticastInvalidationChannel multicast;
+
+    /**
+     * 该序号及之前的记录都已处理
+     */
+    private long safeId = -1;
+
+    /**
+     * 已处理的最大序号
+     */
+    private long maxSeenId;
+
+    /**
+     * 序号大于safeId的已处理记录，值为第一次看到的时间
+     */
+    private final TreeMap<Long, Long> pending = new TreeMap<>();
+
+    public CacheInvalidationBus(CacheInvalidationMapper invalidationMapper,
+                                ClusterJobScheduler jobScheduler,
+                                @Value("${cache.invalidation.enabled:true}") boolean enabled,
+                                @Value("${cache.invalidation.batch-size:500}") int batchSize,
+                                @Value("${cache.invalidation.gap-timeout:30000}") long gapTimeoutMillis,
+                                @Value("${cache.invalidation.retention:3600000}") long retentionMillis,
+                                @Value("${cache.invalidation.multicast.enabled:false}") boolean multicastEnabled,
+                                @Value("${cache.invalidation.multicast.group:239.255.42.99}") String multicastGroup,
+                                @Value("${cache.invalidation.multicast.port:45999}") int multicastPort,
+                                @Value("${cache.invalidation.multicast.ttl:1}") int multicastTtl) {
+        this.invalidationMapper = invalidationMapper;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.retentionMillis = Math.max(retentionMillis, gapTimeoutMillis * 2);
+        this.multicast = enabled && multicastEnabled
+                ? openMulticast(multicastGroup, multicastPort, multicastTtl) : null;
+        if (enabled) {
+            jobScheduler.register("cache-invalidation-purge", 600000, 1, this::purge);
+        }
+    }
+
+    private MulticastInvalidationChannel openMulticast(String group, int port, int ttl) {
+        try {
+            MulticastInvalidationChannel channel = new MulticastInvalidationChannel(group, port, ttl,
+                    (sender, cacheName, cacheKey) -> {
+                        if (!nodeId.equals(sender)) {
+                            dispatch(cacheName, cacheKey);
+                        }
+                    });
+            log.info("缓存失效组播已启用: {}:{}", group, port);
+            return channel;
+        } catch (Exception e) {
+            log.warn("缓存失效组播启用失败，只使用数据库轮询: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 注册缓存的失效处理器，其他实例发出失效时调用
+     * @param cacheName 缓存名称
+     * @param handler 处理器，参数为缓存键，ALL_KEYS表示整个缓存
+     */
+    public void subscribe(String cacheName, Consumer<String> handler) {
+        handlers.computeIfAbsent(cacheName, k -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    /**
+     * 通知其他实例使缓存失效
+     * 在写操作的事务中调用，失效记录随事务一起提交；本实例的缓存由调用方自行失效
+     * @param cacheName 缓存名称
+     * @param cacheKey 缓存键，ALL_KEYS表示整个缓存
+     */
+    public void publish(String cacheName, Object cacheKey) {
+        if (!enabled) {
+            return;
+        }
+        String key = String.valueOf(cacheKey);
+        CacheInvalidation invalidation = new CacheInvalidation();
+        invalidation.setCacheName(cacheName);
+        invalidation.setCacheKey(key);
+        invalidation.setNodeId(nodeId);
+        invalidation.setCreatedAt(LocalDateTime.now());
+        invalidationMapper.insert(invalidation);
+        if (multicast == null) {
+            return;
+        }
+        // 提交前通知的话，其他实例可能在提交前重新加载旧数据
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    multicast.send(nodeId, cacheName, key);
+                }
+            });
+        } else {
+            multicast.send(nodeId, cacheName, key);
+        }
+    }
+
+    /**
+     * 查询某个时间之后发出的失效键，用于启动时补齐本地持久化数据写入之后的变更
+     * 包含本实例发出的记录
+     * @param cacheName 缓存名称
+     * @param sinceMillis 起始时间戳（包含）
+     * @return 失效键列表，总线未启用或起始时间之后的记录可能已被清理时返回null
+     */
+    public List<String> keysSince(String cacheName, long sinceMillis) {
+        if (!enabled || System.currentTimeMillis() - sinceMillis >= retentionMillis) {
+            return null;
+        }
+        return invalidationMapper.findKeysSince(cacheName,
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(sinceMillis), ZoneId.systemDefault()));
+    }
+
+    /**
+     * 应用启动后从当前的最大序号开始轮询，启动前的失效与空缓存无关
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || safeId >= 0) {
+            return;
+        }
+        try {
+            Long maxId = invalidationMapper.selectMaxId();
+            safeId = maxId == null ? 0 : maxId;
+            maxSeenId = safeId;
+            log.info("缓存失效总线已启动，实例ID: {}, 起始序号: {}", nodeId, safeId);
+        } catch (Exception e) {
+            log.error("缓存失效总线启动失败，将在下次轮询时重试: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 轮询其他实例发出的失效记录
+     */
+    @Scheduled(fixedDelayString = "${cache.invalidation.poll-interval:1000}")
+    public synchronized void poll() {
+        if (!enabled) {
+            return;
+        }
+        if (safeId < 0) {
+            start();
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            if (maxSeenId > safeId) {
+                // 补读窗口内可能有提交较晚的记录
+                apply(invalidationMapper.findBetween(safeId, maxSeenId), now);
+            }
+            List<CacheInvalidation> batch;
+            do {
+                batch = invalidationMapper.findAfter(maxSeenId, batchSize);
+                apply(batch, now);
+            } while (batch.size() == batchSize);
+            advance(now);
+        } catch (Exception e) {
+            log.warn("轮询缓存失效记录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 删除超过保留时间的失效记录，由一个实例执行
+     */
+    private void purge(JobContext context) {
+        int deleted = context.fenced(() -> invalidationMapper.deleteBefore(
+                LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(retentionMillis))));
+        if (deleted > 0) {
+            log.info("清理过期缓存失效记录: {} 条", deleted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (multicast != null) {
+            multicast.close();
+        }
+    }
+
+    private void apply(List<CacheInvalidation> invalidations, long now) {
+        for (CacheInvalidation invalidation : invalidations) {
+            long id = invalidation.getId();
+            if (id <= safeId || pending.containsKey(id)) {
+                continue;
+            }
+            pending.put(id, now);
+            maxSeenId = Math.max(maxSeenId, id);
+            if (!nodeId.equals(invalidation.getNodeId())) {
+                dispatch(invalidation.getCacheName(), invalidation.getCacheKey());
+            }
+        }
+    }
+
+    /**
+     * 推进safeId：连续的序号直接推进，缺失的序号超过补读时间后跳过
+     */
+    private void advance(long now) {
+        Iterator<Map.Entry<Long, Long>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Long> first = iterator.next();
+            if (first.getKey() != safeId + 1 && now - first.getValue() < gapTimeoutMillis) {
+                return;
+            }
+            safeId = first.getKey();
+            iterator.remove();
+        }
+    }
+
+    private void dispatch(String cacheName, String cacheKey) {
+        List<Consumer<String>> cacheHandlers = handlers.get(cacheName);
+        if (cacheHandlers == null) {
+            return;
+        }
+        for (Consumer<String> handler : cacheHandlers) {
+            try {
+                handler.accept(cacheKey);
+            } catch (Exception e) {
+                log.warn("缓存 {} 失效处理失败: {}", cacheName, e.getMessage());
+            }
+        }
+    }
+}
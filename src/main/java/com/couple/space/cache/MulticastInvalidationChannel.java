@@ -0,0 +1,94 @@
+package com.couple.space.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 缓存失效的UDP组播通道
+ * 只是加快失效传播的快速路径，报文可能丢失，可靠性由数据库轮询保证
+ * 报文格式：实例ID、缓存名称、缓存键，以换行分隔，UTF-8编码
+ */
+@Slf4j
+class MulticastInvalidationChannel {
+    /**
+     * 报文的最大长度
+     */
+    private static final int MAX_PACKET_BYTES = 512;
+
+    /**
+     * 收到失效消息的回调
+     */
+    interface Receiver {
+        void receive(String nodeId, String cacheName, String cacheKey);
+    }
+
+    private final InetAddress group;
+    private final int port;
+    private final MulticastSocket socket;
+    private final Thread receiverThread;
+    private volatile boolean closed;
+
+    MulticastInvalidationChannel(String group, int port, int timeToLive, Receiver receiver) throws IOException {
+        this.group = InetAddress.getByName(group);
+        this.port = port;
+        this.socket = new MulticastSocket(port);
+        this.socket.setTimeToLive(timeToLive);
+        this.socket.joinGroup(this.group);
+        this.receiverThread = new Thread(() -> receiveLoop(receiver), "cache-invalidation-multicast");
+        this.receiverThread.setDaemon(true);
+        this.receiverThread.start();
+    }
+
+    /**
+     * 发送一条失效消息，失败时只记录日志
+     */
+    void send(String nodeId, String cacheName, String cacheKey) {
+        byte[] data = (nodeId + "\n" + cacheName + "\n" + cacheKey).getBytes(StandardCharsets.UTF_8);
+        if (data.length > MAX_PACKET_BYTES) {
+            return;
+        }
+        try {
+            socket.send(new DatagramPacket(data, data.length, group, port));
+        } catch (IOException e) {
+            log.warn("缓存失效组播发送失败: {}", e.getMessage());
+        }
+    }
+
+    void close() {
+        closed = true;
+        try {
+            socket.leaveGroup(group);
+        } catch (IOException e) {
+            // 关闭时忽略
+        }
+        socket.close();
+    }
+
+    private void receiveLoop(Receiver receiver) {
+        byte[] buffer = new byte[MAX_PACKET_BYTES];
+        while (!closed) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                String[] parts = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8)
+                        .split("\n", 3);
+                if (parts.length == 3) {
+                    receiver.receive(parts[0], parts[1], parts[2]);
+                }
+            } catch (SocketException e) {
+                if (!closed) {
+                    log.warn("缓存失效组播接收失败: {}", e.getMessage());
+                }
+                return;
+            } catch (Exception e) {
+                log.warn("缓存失效组播消息处理失败: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.couple.space.calendar;
+
+import com.couple.space.entity.Anniversary;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 纪念日发生日期计算
+ * 统一"下一次发生日期"和"距离天数"的规则：
+ * 1. 每年重复的纪念日（isYearly为空时视为每年重复）每年在同一月-日发生
+ * 2. 2月29日的纪念日在平年按2月28日计算
+ * 3. 不重复的纪念日只在原日期发生一次
+ * 4. 农历纪念日每年在原日期对应的农历月日发生，换算规则见{@link LunarCalendar#inYear}
+ */
+public final class AnniversaryOccurrences {
+    private AnniversaryOccurrences() {
+    }
+
+    /**
+     * 纪念日是否每年重复
+     * @param anniversary 纪念日
+     * @return 是否每年重复
+     */
+    public static boolean isYearly(Anniversary anniversary) {
+        return !Boolean.FALSE.equals(anniversary.getIsYearly());
+    }
+
+    /**
+     * 纪念日是否按农历重复
+     * @param anniversary 纪念日
+     * @return 是否按农历重复
+     */
+    public static boolean isLunar(Anniversary anniversary) {
+        return Boolean.TRUE.equals(anniversary.getIsLunar());
+    }
+
+    /**
+     * 计算纪念日在指定年份的发生日期
+     * @param date 纪念日原日期
+     * @param year 年份
+     * @return 该年的发生日期
+     */
+    public static LocalDate inYear(LocalDate date, int year) {
+        if (date.getMonthValue() == 2 && date.getDayOfMonth() == 29 && !Year.isLeap(year)) {
+            return LocalDate.of(year, 2, 28);
+        }
+        return date.withYear(year);
+    }
+
+    /**
+     * 计算今天及以后的下一次发生日期
+     * @param anniversary 纪念日
+     * @param today 今天
+     * @return 下一次发生日期，不重复且已过去的纪念日返回null
+     */
+    public static LocalDate nextOccurrence(Anniversary anniversary, LocalDate today) {
+        return nextOccurrence(anniversary.getDate(), isYearly(anniversary), isLunar(anniversary), today);
+    }
+
+    /**
+     * 计算今天及以后的下一次发生日期，按公历重复
+     * @param date 纪念日原日期
+     * @param yearly 是否每年重复
+     * @param today 今天
+     * @return 下一次发生日期，不重复且已过去的纪念日返回null
+     */
+    public static LocalDate nextOccurrence(LocalDate date, boolean yearly, LocalDate today) {
+        return nextOccurrence(date, yearly, false, today);
+    }
+
+    /**
+     * 计算今天及以后的下一次发生日期
+     * @param date 纪念日原日期
+     * @param yearly 是否每年重复
+     * @param lunar 是否按农历重复
+     * @param today 今天
+     * @return 下一次发生日期，不重复且已过去或超出农历表范围时返回null
+     */
+    public static LocalDate nextOccurrence(LocalDate date, boolean yearly, boolean lunar, LocalDate today) {
+        if (date == null) {
+            return null;
+        }
+        if (!yearly) {
+            return date.isBefore(today) ? null : date;
+        }
+        if (lunar) {
+            return LunarCalendar.nextOccurrence(date, today);
+        }
+        LocalDate occurrence = inYear(date, today.getYear());
+        if (occurrence.isBefore(today)) {
+            occurrence = inYear(date, today.getYear() + 1);
+        }
+        return occurrence;
+    }
+
+    /**
+     * 计算距离下一次发生还有多少天
+     * @param anniversary 纪念日
+     * @param today 今天
+     * @return 天数，不会再发生时返回null
+     */
+    public static Long daysUntilNext(Anniversary anniversary, LocalDate today) {
+        return daysUntilNext(anniversary.getDate(), isYearly(anniversary), isLunar(anniversary), today);
+    }
+
+    /**
+     * 计算距离下一次发生还有多少天
+     * @param date 纪念日原日期
+     * @param yearly 是否每年重复
+     * @param lunar 是否按农历重复
+     * @param today 今天
+     * @return 天数，不会再发生时返回null
+     */
+    public static Long daysUntilNext(LocalDate date, boolean yearly, boolean lunar, LocalDate today) {
+        LocalDate next = nextOccurrence(date, yearly, lunar, today);
+        return next == null ? null : ChronoUnit.DAYS.between(today, next);
+    }
+}
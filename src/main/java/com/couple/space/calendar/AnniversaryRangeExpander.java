@@ -0,0 +1,329 @@
+package com.couple.space.calendar;
+
+import com.couple.space.dto.AnniversaryOccurrenceDTO;
+import com.couple.space.entity.Anniversary;
+import com.couple.space.index.AnniversaryCalendarIndex;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 纪念日区间展开器
+ * 把一组纪念日展开为某个日期区间内的所有发生日期，按日期升序惰性产出
+ * 实现：
+ * 1. 每年重复的纪念日按月-日日槽排序，形成月-日区间索引
+ * 2. 逐年把查询区间映射为日槽区间，二分定位起点后顺序产出
+ * 3. 按农历重复的纪念日逐个农历年换算为公历日期，每年排序后产出
+ * 4. 不重复的纪念日按日期排序，与每年重复的结果归并
+ * 5. 结果只在迭代时逐个创建，长区间不会一次性分配所有发生日期
+ */
+public class AnniversaryRangeExpander {
+    /**
+     * 平年2月28日所在的日槽
+     */
+    private static final int FEB_28_SLOT = AnniversaryCalendarIndex.slotOf(2, 28);
+
+    /**
+     * 每年重复的纪念日，按日槽升序
+     */
+    private final Anniversary[] yearly;
+
+    /**
+     * 与yearly一一对应的日槽
+     */
+    private final int[] yearlySlots;
+
+    /**
+     * 按农历重复的纪念日
+     */
+    private final Anniversary[] lunar;
+
+    /**
+     * 与lunar一一对应的农历原日期
+     */
+    private final LunarCalendar.LunarDate[] lunarDates;
+
+    /**
+     * 不重复的纪念日，按日期升序
+     */
+    private final Anniversary[] oneOff;
+
+    public AnniversaryRangeExpander(List<Anniversary> anniversaries) {
+        List<Anniversary> yearlyList = new ArrayList<>();
+        List<Anniversary> lunarList = new ArrayList<>();
+        List<Anniversary> oneOffList = new ArrayList<>();
+        for (Anniversary anniversary : anniversaries) {
+            if (anniversary.getDate() == null) {
+                continue;
+            }
+            if (AnniversaryOccurrences.isYearly(anniversary) && AnniversaryOccurrences.isLunar(anniversary)) {
+                // 超出农历表范围的日期无法换算，不产生发生日期
+                if (LunarCalendar.isSupported(anniversary.getDate())) {
+                    lunarList.add(anniversary);
+                }
+            } else if (AnniversaryOccurrences.isYearly(anniversary)) {
+                yearlyList.add(anniversary);
+            } else {
+                oneOffList.add(anniversary);
+            }
+        }
+        yearlyList.sort(Comparator.comparingInt((Anniversary a) -> AnniversaryCalendarIndex.slotOf(a.getDate()))
+                .thenComparing(Anniversary::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+        oneOffList.sort(Comparator.comparing(Anniversary::getDate));
+        this.yearly = yearlyList.toArray(new Anniversary[0]);
+        this.oneOff = oneOffList.toArray(new Anniversary[0]);
+        this.lunar = lunarList.toArray(new Anniversary[0]);
+        this.lunarDates = new LunarCalendar.LunarDate[lunar.length];
+        for (int i = 0; i < lunar.length; i++) {
+            lunarDates[i] = LunarCalendar.toLunar(lunar[i].getDate());
+        }
+        this.yearlySlots = new int[yearly.length];
+        for (int i = 0; i < yearly.length; i++) {
+            yearlySlots[i] = AnniversaryCalendarIndex.slotOf(yearly[i].getDate());
+        }
+    }
+
+    /**
+     * 展开区间内的所有发生日期
+     * @param from 起始日期（包含）
+     * @param to 结束日期（包含）
+     * @return 按日期升序的惰性迭代器
+     */
+    public Iterator<AnniversaryOccurrenceDTO> expand(LocalDate from, LocalDate to) {
+        Iterator<AnniversaryOccurrenceDTO> yearlyOccurrences = lunar.length == 0
+                ? new YearlyIterator(from, to)
+                : new MergingIterator(new YearlyIterator(from, to), new LunarIterator(from, to));
+        return new MergingIterator(yearlyOccurrences, new OneOffIterator(from, to));
+    }
+
+    private static AnniversaryOccurrenceDTO toOccurrence(Anniversary anniversary, LocalDate date) {
+        AnniversaryOccurrenceDTO dto = new AnniversaryOccurrenceDTO();
+        dto.setId(anniversary.getId());
+        dto.setName(anniversary.getName());
+        dto.setDate(date);
+        dto.setOriginalDate(anniversary.getDate());
+        dto.setYears(date.getYear() - anniversary.getDate().getYear());
+        dto.setIsYearly(AnniversaryOccurrences.isYearly(anniversary));
+        dto.setIsLunar(AnniversaryOccurrences.isLunar(anniversary));
+        dto.setIsImportant(anniversary.getIsImportant());
+        return dto;
+    }
+
+    /**
+     * 逐年产出每年重复纪念日的发生日期
+     */
+    private final class YearlyIterator implements Iterator<AnniversaryOccurrenceDTO> {
+        private final LocalDate from;
+        private final LocalDate to;
+        private int year;
+        private int cursor;
+        private int endSlot;
+        private AnniversaryOccurrenceDTO next;
+
+        YearlyIterator(LocalDate from, LocalDate to) {
+            this.from = from;
+            this.to = to;
+            this.year = from.getYear() - 1;
+            this.cursor = 0;
+            this.endSlot = -1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (cursor < yearly.length && yearlySlots[cursor] <= endSlot) {
+                    Anniversary anniversary = yearly[cursor++];
+                    LocalDate date = AnniversaryOccurrences.inYear(anniversary.getDate(), year);
+                    // 纪念日原日期之前不产生发生日期
+                    if (!date.isBefore(anniversary.getDate())) {
+                        next = toOccurrence(anniversary, date);
+                    }
+                } else if (!advanceYear()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 进入下一年，把查询区间与该年的交集映射为日槽区间
+         */
+        private boolean advanceYear() {
+            year++;
+            if (year > to.getYear() || yearly.length == 0) {
+                return false;
+            }
+            LocalDate start = year == from.getYear() ? from : LocalDate.of(year, 1, 1);
+            LocalDate end = year == to.getYear() ? to : LocalDate.of(year, 12, 31);
+            int startSlot = AnniversaryCalendarIndex.slotOf(start);
+            endSlot = AnniversaryCalendarIndex.slotOf(end);
+            // 平年的2月29日纪念日落在2月28日
+            if (!Year.isLeap(year) && endSlot == FEB_28_SLOT) {
+                endSlot++;
+            }
+            cursor = lowerBound(startSlot);
+            return true;
+        }
+
+        @Override
+        public AnniversaryOccurrenceDTO next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            AnniversaryOccurrenceDTO result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    /**
+     * 逐个农历年产出按农历重复纪念日的发生日期
+     * 一个农历年内的发生日期先换算排序再产出，内存占用与农历纪念日的数量成正比
+     */
+    private final class LunarIterator implements Iterator<AnniversaryOccurrenceDTO> {
+        private final LocalDate from;
+        private final LocalDate to;
+        private final int lastYear;
+        private int year;
+        private final List<AnniversaryOccurrenceDTO> buffer = new ArrayList<>();
+        private int cursor;
+
+        LunarIterator(LocalDate from, LocalDate to) {
+            this.from = from;
+            this.to = to;
+            // 公历年份对应当年或上一年的农历年
+            this.year = Math.max(LunarCalendar.MIN_YEAR, from.getYear() - 1) - 1;
+            this.lastYear = Math.min(LunarCalendar.MAX_YEAR, to.getYear());
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (cursor == buffer.size()) {
+                if (year >= lastYear) {
+                    return false;
+                }
+                fill(++year);
+            }
+            return true;
+        }
+
+        private void fill(int lunarYear) {
+            buffer.clear();
+            cursor = 0;
+            for (int i = 0; i < lunar.length; i++) {
+                LocalDate date = LunarCalendar.inYear(lunarDates[i], lunarYear);
+                if (date != null && !date.isBefore(from) && !date.isAfter(to)
+                        && !date.isBefore(lunar[i].getDate())) {
+                    buffer.add(toOccurrence(lunar[i], date));
+                }
+            }
+            buffer.sort(Comparator.comparing(AnniversaryOccurrenceDTO::getDate)
+                    .thenComparing(AnniversaryOccurrenceDTO::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+        }
+
+        @Override
+        public AnniversaryOccurrenceDTO next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return buffer.get(cursor++);
+        }
+    }
+
+    /**
+     * 产出区间内不重复纪念日的发生日期
+     */
+    private final class OneOffIterator implements Iterator<AnniversaryOccurrenceDTO> {
+        private final LocalDate to;
+        private int cursor;
+
+        OneOffIterator(LocalDate from, LocalDate to) {
+            this.to = to;
+            int low = 0;
+            int high = oneOff.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (oneOff[mid].getDate().isBefore(from)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            this.cursor = low;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < oneOff.length && !oneOff[cursor].getDate().isAfter(to);
+        }
+
+        @Override
+        public AnniversaryOccurrenceDTO next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Anniversary anniversary = oneOff[cursor++];
+            return toOccurrence(anniversary, anniversary.getDate());
+        }
+    }
+
+    /**
+     * 按日期归并两个有序迭代器
+     */
+    private static final class MergingIterator implements Iterator<AnniversaryOccurrenceDTO> {
+        private final Iterator<AnniversaryOccurrenceDTO> left;
+        private final Iterator<AnniversaryOccurrenceDTO> right;
+        private AnniversaryOccurrenceDTO leftHead;
+        private AnniversaryOccurrenceDTO rightHead;
+
+        MergingIterator(Iterator<AnniversaryOccurrenceDTO> left, Iterator<AnniversaryOccurrenceDTO> right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (leftHead == null && left.hasNext()) {
+                leftHead = left.next();
+            }
+            if (rightHead == null && right.hasNext()) {
+                rightHead = right.next();
+            }
+            return leftHead != null || rightHead != null;
+        }
+
+        @Override
+        public AnniversaryOccurrenceDTO next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            AnniversaryOccurrenceDTO result;
+            if (rightHead == null || (leftHead != null && !leftHead.getDate().isAfter(rightHead.getDate()))) {
+                result = leftHead;
+                leftHead = null;
+            } else {
+                result = rightHead;
+                rightHead = null;
+            }
+            return result;
+        }
+    }
+
+    private int lowerBound(int slot) {
+        int index = Arrays.binarySearch(yearlySlots, slot);
+        if (index < 0) {
+            return -index - 1;
+        }
+        // 日槽可能重复，回退到第一个
+        while (index > 0 && yearlySlots[index - 1] == slot) {
+            index--;
+        }
+        return index;
+    }
+}
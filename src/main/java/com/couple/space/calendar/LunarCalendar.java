@@ -0,0 +1,279 @@
+package com.couple.space.calendar;
+
+import java.time.LocalDate;
+
+/**
+ * 农历与公历互转
+ * 基于1900~2100年的预计算农历表，每年一个int，位布局：
+ * - 第0~3位：闰月月份，0表示无闰月
+ * - 第4~15位：1~12月的大小月，第(16-月份)位为1表示该月30天，否则29天
+ * - 第16位：闰月的大小，1表示30天
+ * 类加载时展开为每年春节的纪元日和每月月初相对春节的偏移，之后的换算都是查表：
+ * 1. 农历转公历：年份下标 + 月份下标直接得到纪元日
+ * 2. 公历转农历：公历年份只可能对应当年或上一年的农历年，比较一次春节后在至多13个月中定位
+ */
+public final class LunarCalendar {
+    /**
+     * 支持的最小农历年
+     */
+    public static final int MIN_YEAR = 1900;
+
+    /**
+     * 支持的最大农历年
+     */
+    public static final int MAX_YEAR = 2100;
+
+    /**
+     * 1900~2100年的农历表
+     */
+    private static final int[] LUNAR_INFO = {
+            0x04bd8, 0x04ae0, 0x0a570, 0x054d5, 0x0d260, 0x0d950, 0x16554, 0x056a0, 0x09ad0, 0x055d2, // 1900-1909
+            0x04ae0, 0x0a5b6, 0x0a4d0, 0x0d250, 0x1d255, 0x0b540, 0x0d6a0, 0x0ada2, 0x095b0, 0x14977, // 1910-1919
+            0x04970, 0x0a4b0, 0x0b4b5, 0x06a50, 0x06d40, 0x1ab54, 0x02b60, 0x09570, 0x052f2, 0x04970, // 1920-1929
+            0x06566, 0x0d4a0, 0x0ea50, 0x16a95, 0x05ad0, 0x02b60, 0x186e3, 0x092e0, 0x1c8d7, 0x0c950, // 1930-1939
+            0x0d4a0, 0x1d8a6, 0x0b550, 0x056a0, 0x1a5b4, 0x025d0, 0x092d0, 0x0d2b2, 0x0a950, 0x0b557, // 1940-1949
+            0x06ca0, 0x0b550, 0x15355, 0x04da0, 0x0a5b0, 0x14573, 0x052b0, 0x0a9a8, 0x0e950, 0x06aa0, // 1950-1959
+            0x0aea6, 0x0ab50, 0x04b60, 0x0aae4, 0x0a570, 0x05260, 0x0f263, 0x0d950, 0x05b57, 0x056a0, // 1960-1969
+            0x096d0, 0x04dd5, 0x04ad0, 0x0a4d0, 0x0d4d4, 0x0d250, 0x0d558, 0x0b540, 0x0b6a0, 0x195a6, // 1970-1979
+            0x095b0, 0x049b0, 0x0a974, 0x0a4b0, 0x0b27a, 0x06a50, 0x06d40, 0x0af46, 0x0ab60, 0x09570, // 1980-1989
+            0x04af5, 0x04970, 0x064b0, 0x074a3, 0x0ea50, 0x06b58, 0x05ac0, 0x0ab60, 0x096d5, 0x092e0, // 1990-1999
+            0x0c960, 0x0d954, 0x0d4a0, 0x0da50, 0x07552, 0x056a0, 0x0abb7, 0x025d0, 0x092d0, 0x0cab5, // 2000-2009
+            0x0a950, 0x0b4a0, 0x0baa4, 0x0ad50, 0x055d9, 0x04ba0, 0x0a5b0, 0x15176, 0x052b0, 0x0a930, // 2010-2019
+            0x07954, 0x06aa0, 0x0ad50, 0x05b52, 0x04b60, 0x0a6e6, 0x0a4e0, 0x0d260, 0x0ea65, 0x0d530, // 2020-2029
+            0x05aa0, 0x076a3, 0x096d0, 0x04afb, 0x04ad0, 0x0a4d0, 0x1d0b6, 0x0d250, 0x0d520, 0x0dd45, // 2030-2039
+            0x0b5a0, 0x056d0, 0x055b2, 0x049b0, 0x0a577, 0x0a4b0, 0x0aa50, 0x1b255, 0x06d20, 0x0ada0, // 2040-2049
+            0x14b63, 0x09370, 0x049f8, 0x04970, 0x064b0, 0x168a6, 0x0ea50, 0x06b20, 0x1a6c4, 0x0aae0, // 2050-2059
+            0x092e0, 0x0d2e3, 0x0c960, 0x0d557, 0x0d4a0, 0x0da50, 0x05d55, 0x056a0, 0x0a6d0, 0x055d4, // 2060-2069
+            0x052d0, 0x0a9b8, 0x0a950, 0x0b4a0, 0x0b6a6, 0x0ad50, 0x055a0, 0x0aba4, 0x0a5b0, 0x052b0, // 2070-2079
+            0x0b273, 0x06930, 0x07337, 0x06aa0, 0x0ad50, 0x14b55, 0x04b60, 0x0a570, 0x054e4, 0x0d160, // 2080-2089
+            0x0e968, 0x0d520, 0x0daa0, 0x16aa6, 0x056d0, 0x04ae0, 0x0a9d4, 0x0a2d0, 0x0d150, 0x0f252, // 2090-2099
+            0x0d520                                                                                      // 2100
+    };
+
+    /**
+     * 农历1900年正月初一，即公历1900年1月31日的纪元日
+     */
+    private static final int BASE_EPOCH_DAY = (int) LocalDate.of(1900, 1, 31).toEpochDay();
+
+    /**
+     * 每个农历年正月初一的纪元日，多一项作为最后一年的结束
+     */
+    private static final int[] NEW_YEAR_EPOCH_DAYS = new int[LUNAR_INFO.length + 1];
+
+    /**
+     * 每个农历年各月月初相对正月初一的天数，按年内顺序排列，闰月紧跟在同号月之后
+     * 最后多一项为全年天数
+     */
+    private static final short[][] MONTH_OFFSETS = new short[LUNAR_INFO.length][];
+
+    static {
+        int epochDay = BASE_EPOCH_DAY;
+        for (int i = 0; i < LUNAR_INFO.length; i++) {
+            NEW_YEAR_EPOCH_DAYS[i] = epochDay;
+            int info = LUNAR_INFO[i];
+            int leap = info & 0xf;
+            short[] offsets = new short[(leap == 0 ? 12 : 13) + 1];
+            int offset = 0;
+            int index = 0;
+            for (int month = 1; month <= 12; month++) {
+                offsets[index++] = (short) offset;
+                offset += (info & (0x10000 >> month)) != 0 ? 30 : 29;
+                if (month == leap) {
+                    offsets[index++] = (short) offset;
+                    offset += (info & 0x10000) != 0 ? 30 : 29;
+                }
+            }
+            offsets[index] = (short) offset;
+            MONTH_OFFSETS[i] = offsets;
+            epochDay += offset;
+        }
+        NEW_YEAR_EPOCH_DAYS[LUNAR_INFO.length] = epochDay;
+    }
+
+    private LunarCalendar() {
+    }
+
+    /**
+     * 农历日期
+     */
+    public static final class LunarDate {
+        private final int year;
+        private final int month;
+        private final int day;
+        private final boolean leapMonth;
+
+        public LunarDate(int year, int month, int day, boolean leapMonth) {
+            this.year = year;
+            this.month = month;
+            this.day = day;
+            this.leapMonth = leapMonth;
+        }
+
+        public int getYear() {
+            return year;
+        }
+
+        public int getMonth() {
+            return month;
+        }
+
+        public int getDay() {
+            return day;
+        }
+
+        public boolean isLeapMonth() {
+            return leapMonth;
+        }
+
+        @Override
+        public String toString() {
+            return year + "-" + (leapMonth ? "闰" : "") + month + "-" + day;
+        }
+    }
+
+    /**
+     * 公历日期是否在农历表的范围内
+     * @param date 公历日期
+     * @return 是否支持
+     */
+    public static boolean isSupported(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        return epochDay >= NEW_YEAR_EPOCH_DAYS[0] && epochDay < NEW_YEAR_EPOCH_DAYS[LUNAR_INFO.length];
+    }
+
+    /**
+     * 公历转农历
+     * @param date 公历日期
+     * @return 农历日期，超出范围时返回null
+     */
+    public static LunarDate toLunar(LocalDate date) {
+        if (!isSupported(date)) {
+            return null;
+        }
+        int epochDay = (int) date.toEpochDay();
+        // 春节总在公历1月下旬到2月中旬，公历年份对应当年或上一年的农历年
+        int index = Math.min(date.getYear(), MAX_YEAR) - MIN_YEAR;
+        if (epochDay < NEW_YEAR_EPOCH_DAYS[index]) {
+            index--;
+        }
+        int dayOfYear = epochDay - NEW_YEAR_EPOCH_DAYS[index];
+        short[] offsets = MONTH_OFFSETS[index];
+        int slot = 0;
+        while (offsets[slot + 1] <= dayOfYear) {
+            slot++;
+        }
+        int leap = LUNAR_INFO[index] & 0xf;
+        int month;
+        boolean isLeap = false;
+        if (leap == 0 || slot < leap) {
+            month = slot + 1;
+        } else if (slot == leap) {
+            month = leap;
+            isLeap = true;
+        } else {
+            month = slot;
+        }
+        return new LunarDate(MIN_YEAR + index, month, dayOfYear - offsets[slot] + 1, isLeap);
+    }
+
+    /**
+     * 农历转公历
+     * @param year 农历年
+     * @param month 农历月，1~12
+     * @param day 农历日，1~30
+     * @param leapMonth 是否闰月
+     * @return 公历日期，日期不存在时返回null
+     */
+    public static LocalDate toSolar(int year, int month, int day, boolean leapMonth) {
+        if (year < MIN_YEAR || year > MAX_YEAR || month < 1 || month > 12 || day < 1) {
+            return null;
+        }
+        int index = year - MIN_YEAR;
+        int slot = slotOf(index, month, leapMonth);
+        if (slot < 0 || day > monthLength(index, slot)) {
+            return null;
+        }
+        return LocalDate.ofEpochDay(NEW_YEAR_EPOCH_DAYS[index] + MONTH_OFFSETS[index][slot] + day - 1);
+    }
+
+    /**
+     * 计算农历纪念日在某个农历年的发生日期
+     * 规则：
+     * 1. 闰月的纪念日按同号的普通月计算
+     * 2. 三十日的纪念日在该月只有29天时按廿九计算
+     * @param original 纪念日的农历日期
+     * @param year 农历年
+     * @return 公历日期，超出范围时返回null
+     */
+    public static LocalDate inYear(LunarDate original, int year) {
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            return null;
+        }
+        int index = year - MIN_YEAR;
+        int slot = slotOf(index, original.getMonth(), false);
+        int day = Math.min(original.getDay(), monthLength(index, slot));
+        return LocalDate.ofEpochDay(NEW_YEAR_EPOCH_DAYS[index] + MONTH_OFFSETS[index][slot] + day - 1);
+    }
+
+    /**
+     * 计算农历纪念日今天及以后的下一次发生日期
+     * @param date 纪念日原日期（公历）
+     * @param today 今天
+     * @return 下一次发生日期，超出范围时返回null
+     */
+    public static LocalDate nextOccurrence(LocalDate date, LocalDate today) {
+        LunarDate original = toLunar(date);
+        LunarDate current = toLunar(today);
+        if (original == null || current == null) {
+            return null;
+        }
+        LocalDate occurrence = inYear(original, current.getYear());
+        if (occurrence != null && occurrence.isBefore(today)) {
+            occurrence = inYear(original, current.getYear() + 1);
+        }
+        return occurrence;
+    }
+
+    /**
+     * 农历年的闰月月份
+     * @param year 农历年
+     * @return 闰月月份，无闰月或超出范围时返回0
+     */
+    public static int leapMonth(int year) {
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            return 0;
+        }
+        return LUNAR_INFO[year - MIN_YEAR] & 0xf;
+    }
+
+    /**
+     * 农历月的天数
+     * @param year 农历年
+     * @param month 农历月
+     * @param leapMonth 是否闰月
+     * @return 天数，月份不存在时返回0
+     */
+    public static int monthLength(int year, int month, boolean leapMonth) {
+        if (year < MIN_YEAR || year > MAX_YEAR || month < 1 || month > 12) {
+            return 0;
+        }
+        int index = year - MIN_YEAR;
+        int slot = slotOf(index, month, leapMonth);
+        return slot < 0 ? 0 : monthLength(index, slot);
+    }
+
+    /**
+     * 月份在年内的下标，闰月不存在时返回-1
+     */
+    private static int slotOf(int index, int month, boolean leapMonth) {
+        int leap = LUNAR_INFO[index] & 0xf;
+        if (leapMonth) {
+            return leap == month ? month : -1;
+        }
+        return leap != 0 && month > leap ? month : month - 1;
+    }
+
+    private static int monthLength(int index, int slot) {
+        return MONTH_OFFSETS[index][slot + 1] - MONTH_OFFSETS[index][slot];
+    }
+}
@@ -0,0 +1,192 @@
+package com.couple.space.calendar;
+
+import com.couple.space.event.ZoneDayChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按时区缓存的"今天"
+ * 剩余天数在应用中按用户时区计算，不依赖数据库的CURDATE()和JVM的默认时区
+ * 实现：
+ * 1. 每个用到过的时区缓存当天的epoch day和下一个零点的时间
+ * 2. 时区第一次用到时登记一个定时任务，在该时区的零点刷新缓存并登记下一天的任务
+ * 3. 刷新后发布时区日期变更事件，推送等派生数据据此按时区切换日期
+ * 读取只是一次哈希表查找，不在每行数据上调用now()
+ */
+@Slf4j
+@Component
+public class ZoneClock {
+    private final TaskScheduler scheduler;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 用户没有设置时区时使用的默认时区
+     */
+    private final ZoneId defaultZone;
+
+    /**
+     * 时区到当天信息的缓存
+     * 时区ID都经过校验，数量有上限
+     */
+    private final Map<ZoneId, ZoneDay> days = new ConcurrentHashMap<>();
+
+    /**
+     * 某个时区的当天
+     */
+    private static final class ZoneDay {
+        final long epochDay;
+        final long nextMidnightMillis;
+
+        ZoneDay(long epochDay, long nextMidnightMillis) {
+            this.epochDay = epochDay;
+            this.nextMidnightMillis = nextMidnightMillis;
+        }
+    }
+
+    public ZoneClock(TaskScheduler scheduler,
+                     ApplicationEventPublisher eventPublisher,
+                     @Value("${calendar.default-time-zone:Asia/Shanghai}") String defaultZone) {
+        this.scheduler = scheduler;
+        this.eventPublisher = eventPublisher;
+        this.defaultZone = ZoneId.of(defaultZone);
+    }
+
+    /**
+     * 默认时区
+     * @return 默认时区
+     */
+    public ZoneId getDefaultZone() {
+        return defaultZone;
+    }
+
+    /**
+     * 解析时区ID
+     * @param timeZone 时区ID，可以为空
+     * @return 对应的时区，为空或无效时返回默认时区
+     */
+    public ZoneId resolve(String timeZone) {
+        if (timeZone == null || timeZone.isEmpty()) {
+            return defaultZone;
+        }
+        try {
+            return ZoneId.of(timeZone);
+        } catch (DateTimeException e) {
+            return defaultZone;
+        }
+    }
+
+    /**
+     * 校验时区ID
+     * @param timeZone 时区ID
+     * @return 规范化的时区ID，无效时返回null
+     */
+    public static String normalize(String timeZone) {
+        if (timeZone == null || timeZone.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return ZoneId.of(timeZone.trim()).normalized().getId();
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 时区的今天
+     * @param timeZone 时区ID，为空或无效时使用默认时区
+     * @return 今天
+     */
+    public LocalDate today(String timeZone) {
+        return today(resolve(timeZone));
+    }
+
+    /**
+     * 时区的今天
+     * @param zone 时区
+     * @return 今天
+     */
+    public LocalDate today(ZoneId zone) {
+        return LocalDate.ofEpochDay(epochDay(zone));
+    }
+
+    /**
+     * 时区今天的epoch day
+     * @param zone 时区
+     * @return 今天的epoch day
+     */
+    public long epochDay(ZoneId zone) {
+        ZoneDay day = days.get(zone);
+        if (day == null) {
+            day = register(zone);
+        } else if (System.currentTimeMillis() >= day.nextMidnightMillis) {
+            // 定时任务被延迟时不返回过期的日期
+            day = refresh(zone, day);
+        }
+        return day.epochDay;
+    }
+
+    private ZoneDay register(ZoneId zone) {
+        ZoneDay day = compute(zone);
+        ZoneDay existing = days.putIfAbsent(zone, day);
+        if (existing != null) {
+            return existing;
+        }
+        log.info("登记时区: {}, 今天: {}", zone, LocalDate.ofEpochDay(day.epochDay));
+        schedule(zone, day);
+        return day;
+    }
+
+    /**
+     * 零点的定时任务，刷新后登记下一天的任务
+     */
+    private void onMidnight(ZoneId zone) {
+        ZoneDay current = days.get(zone);
+        try {
+            if (current != null) {
+                current = refresh(zone, current);
+            }
+        } finally {
+            if (current != null) {
+                schedule(zone, current);
+            }
+        }
+    }
+
+    /**
+     * 跨过零点时替换缓存并发布事件，只有替换成功的线程发布
+     */
+    private ZoneDay refresh(ZoneId zone, ZoneDay previous) {
+        ZoneDay day = compute(zone);
+        if (day.epochDay == previous.epochDay) {
+            // 任务提前触发，仍是同一天
+            return previous;
+        }
+        if (!days.replace(zone, previous, day)) {
+            return days.get(zone);
+        }
+        LocalDate today = LocalDate.ofEpochDay(day.epochDay);
+        log.info("时区 {} 进入新的一天: {}", zone, today);
+        eventPublisher.publishEvent(new ZoneDayChangedEvent(zone, today));
+        return day;
+    }
+
+    private void schedule(ZoneId zone, ZoneDay day) {
+        scheduler.schedule(() -> onMidnight(zone), Instant.ofEpochMilli(day.nextMidnightMillis));
+    }
+
+    private static ZoneDay compute(ZoneId zone) {
+        LocalDate today = LocalDate.now(zone);
+        long nextMidnight = today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        return new ZoneDay(today.toEpochDay(), nextMidnight);
+    }
+}
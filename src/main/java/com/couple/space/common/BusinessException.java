@@ -0,0 +1,27 @@
+package com.couple.space.common;
+
+/**
+ * 业务异常
+ * 表示可预期的业务失败，例如用户名已存在、密码错误
+ * 不采集堆栈：业务失败可能被客户端大量触发，采集堆栈的开销没有意义，
+ * 由GlobalExceptionHandler转换为带错误码的响应，不输出日志
+ */
+public class BusinessException extends RuntimeException {
+    /**
+     * 错误码
+     */
+    private final ErrorCode errorCode;
+
+    public BusinessException(ErrorCode errorCode) {
+        this(errorCode, errorCode.getMessage());
+    }
+
+    public BusinessException(ErrorCode errorCode, String message) {
+        super(message, null, false, false);
+        this.errorCode = errorCode;
+    }
+
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+}
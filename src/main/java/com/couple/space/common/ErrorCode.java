@@ -0,0 +1,63 @@
+package com.couple.space.common;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * 错误码
+ * 每个错误码对应一个HTTP状态码和默认提示信息
+ * 错误码的前三位与HTTP状态码一致，便于前端按类别处理
+ */
+public enum ErrorCode {
+    BAD_REQUEST(40000, HttpStatus.BAD_REQUEST, "请求参数错误"),
+    UNAUTHORIZED(40100, HttpStatus.UNAUTHORIZED, "用户未登录"),
+    TOKEN_INVALID(40101, HttpStatus.UNAUTHORIZED, "令牌无效或已过期"),
+    BAD_CREDENTIALS(40102, HttpStatus.UNAUTHORIZED, "用户名或密码错误"),
+    USER_NOT_FOUND(40103, HttpStatus.UNAUTHORIZED, "用户不存在"),
+    FORBIDDEN(40300, HttpStatus.FORBIDDEN, "没有权限"),
+    NOT_FOUND(40400, HttpStatus.NOT_FOUND, "资源不存在"),
+    METHOD_NOT_ALLOWED(40500, HttpStatus.METHOD_NOT_ALLOWED, "不支持的请求方法"),
+    USERNAME_EXISTS(40900, HttpStatus.CONFLICT, "用户名已存在"),
+    REQUEST_IN_PROGRESS(40901, HttpStatus.CONFLICT, "相同的请求正在处理中，请稍后重试"),
+    SPACE_FULL(40902, HttpStatus.CONFLICT, "空间成员已满"),
+    SPACE_ALREADY_JOINED(40903, HttpStatus.CONFLICT, "已经加入了其他情侣空间"),
+    VERSION_CONFLICT(40904, HttpStatus.CONFLICT, "纪念日已被修改，请刷新后重试"),
+    DATA_CONFLICT(40905, HttpStatus.CONFLICT, "数据已存在，请刷新后重试"),
+    UNSUPPORTED_MEDIA_TYPE(41500, HttpStatus.UNSUPPORTED_MEDIA_TYPE, "不支持的请求内容类型"),
+    IDEMPOTENCY_KEY_REUSED(42200, HttpStatus.UNPROCESSABLE_ENTITY, "幂等键已用于不同的请求"),
+    TOO_MANY_REQUESTS(42900, HttpStatus.TOO_MANY_REQUESTS, "请求过于频繁，请稍后再试"),
+    INTERNAL_ERROR(50000, HttpStatus.INTERNAL_SERVER_ERROR, "系统异常"),
+    SERVICE_BUSY(50300, HttpStatus.SERVICE_UNAVAILABLE, "服务繁忙，请稍后再试");
+
+    /**
+     * 业务错误码
+     */
+    private final int code;
+
+    /**
+     * HTTP状态码
+     */
+    private final HttpStatus status;
+
+    /**
+     * 默认提示信息
+     */
+    private final String message;
+
+    ErrorCode(int code, HttpStatus status, String message) {
+        this.code = code;
+        this.status = status;
+        this.message = message;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
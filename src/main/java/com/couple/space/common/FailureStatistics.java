@@ -0,0 +1,52 @@
+package com.couple.space.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 业务失败统计
+ * 业务失败不逐条输出日志，只按错误码计数，定期输出一行汇总
+ */
+@Slf4j
+@Component
+public class FailureStatistics {
+    /**
+     * 按错误码序号排列的计数器
+     */
+    private static final LongAdder[] COUNTERS = new LongAdder[ErrorCode.values().length];
+
+    static {
+        for (int i = 0; i < COUNTERS.length; i++) {
+            COUNTERS[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次业务失败
+     * @param errorCode 错误码
+     */
+    public static void record(ErrorCode errorCode) {
+        COUNTERS[errorCode.ordinal()].increment();
+    }
+
+    /**
+     * 每分钟输出一次汇总，没有失败时不输出
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void report() {
+        StringBuilder summary = null;
+        for (ErrorCode errorCode : ErrorCode.values()) {
+            long count = COUNTERS[errorCode.ordinal()].sumThenReset();
+            if (count > 0) {
+                summary = summary == null ? new StringBuilder() : summary.append(", ");
+                summary.append(errorCode.name()).append('=').append(count);
+            }
+        }
+        if (summary != null) {
+            log.info("业务失败统计（最近一分钟）: {}", summary);
+        }
+    }
+}
@@ -1,16 +1,24 @@
 package com.couple.space.common;
 
 import com.couple.space.dto.ApiResponse;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.validation.BindException;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
+import org.springframework.web.HttpRequestMethodNotSupportedException;
+import org.springframework.web.bind.ServletRequestBindingException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+
+import javax.servlet.http.HttpServletResponse;
 
 /**
  * 全局异常处理器
  * 统一处理所有未捕获的异常
  */
-@Slf4j
 @RestControllerAdvice
 public class GlobalExceptionHandler {
     
@@ -21,18 +29,76 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse<Object>> handleException(Exception e) {
-        log.error("全局异常处理: {}", e.getMessage(), e);
         return ResponseHandler.error(e);
     }
     
     /**
      * 处理业务异常
+     * 业务异常是可预期的失败，不输出日志
      * @param e 业务异常
      * @return 统一格式的响应
      */
-    @ExceptionHandler(RuntimeException.class)
-    public ResponseEntity<ApiResponse<Object>> handleBusinessException(RuntimeException e) {
-        log.warn("业务异常: {}", e.getMessage());
-        return ResponseHandler.fail(e.getMessage());
+    @ExceptionHandler(BusinessException.class)
+    public ResponseEntity<ApiResponse<Object>> handleBusinessException(BusinessException e) {
+        return ResponseHandler.fail(e.getErrorCode(), e.getMessage());
+    }
+
+    /**
+     * 处理请求格式错误
+     * 缺少参数、参数类型错误、参数绑定或校验失败、请求体无法解析都属于客户端错误
+     * @param e 异常
+     * @return 统一格式的响应
+     */
+    @ExceptionHandler({ServletRequestBindingException.class, MethodArgumentTypeMismatchException.class,
+            HttpMessageNotReadableException.class, BindException.class})
+    public ResponseEntity<ApiResponse<Object>> handleBadRequest(Exception e) {
+        return ResponseHandler.fail(ErrorCode.BAD_REQUEST);
+    }
+
+    /**
+     * 处理不支持的请求方法，返回405
+     * @param e 异常
+     * @return 统一格式的响应
+     */
+    @ExceptionHandler(HttpRequestMethodNotSupportedException.class)
+    public ResponseEntity<ApiResponse<Object>> handleMethodNotSupported(HttpRequestMethodNotSupportedException e) {
+        return ResponseHandler.fail(ErrorCode.METHOD_NOT_ALLOWED);
+    }
+
+    /**
+     * 处理不支持的请求内容类型，返回415
+     * @param e 异常
+     * @return 统一格式的响应
+     */
+    @ExceptionHandler(HttpMediaTypeNotSupportedException.class)
+    public ResponseEntity<ApiResponse<Object>> handleMediaTypeNotSupported(HttpMediaTypeNotSupportedException e) {
+        return ResponseHandler.fail(ErrorCode.UNSUPPORTED_MEDIA_TYPE);
+    }
+
+    /**
+     * 处理唯一索引冲突
+     * 并发写入绕过了业务层的存在性检查，属于可预期的冲突；能对应到具体业务的（如注册）在业务层转换
+     * @param e 异常
+     * @return 统一格式的响应
+     */
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<ApiResponse<Object>> handleDuplicateKey(DuplicateKeyException e) {
+        return ResponseHandler.fail(ErrorCode.DATA_CONFLICT);
+    }
+
+    /**
+     * 处理异步请求超时
+     * SSE连接到达超时时间是正常结束，响应已经开始输出时无法再写入错误信息，直接结束
+     * @param e 异常
+     * @param response 响应
+     * @return 统一格式的响应，响应已提交时返回null
+     */
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    public ResponseEntity<ApiResponse<Object>> handleAsyncTimeout(AsyncRequestTimeoutException e,
+                                                                 HttpServletResponse response) {
+        if (response.isCommitted()) {
+            return null;
+        }
+        return ResponseHandler.fail(ErrorCode.SERVICE_BUSY);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,104 @@
+package com.couple.space.common;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 限频日志
+ * 每个时间窗口内最多输出指定条数，超出的日志只计数，在下一条输出的日志中报告被抑制的条数
+ * 用于可能被客户端大量触发的日志，例如无效令牌，避免刷屏和日志IO拖慢请求
+ */
+public class RateLimitedLogger {
+    private final Logger logger;
+    private final long windowNanos;
+    private final int permitsPerWindow;
+
+    /**
+     * 当前窗口的开始时间
+     */
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+    /**
+     * 当前窗口已输出的条数
+     */
+    private final AtomicInteger permitsUsed = new AtomicInteger();
+
+    /**
+     * 被抑制的条数
+     */
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * @param logger 实际输出日志的Logger
+     * @param permitsPerWindow 每个窗口最多输出的条数
+     * @param window 窗口长度
+     * @param unit 窗口长度的单位
+     */
+    public RateLimitedLogger(Logger logger, int permitsPerWindow, long window, TimeUnit unit) {
+        this.logger = logger;
+        this.permitsPerWindow = permitsPerWindow;
+        this.windowNanos = unit.toNanos(window);
+    }
+
+    /**
+     * 输出WARN日志，不输出异常堆栈
+     * @param format 日志格式
+     * @param arguments 日志参数
+     */
+    public void warn(String format, Object... arguments) {
+        if (!logger.isWarnEnabled()) {
+            return;
+        }
+        if (!tryAcquire()) {
+            suppressed.increment();
+            return;
+        }
+        long suppressedCount = suppressed.sumThenReset();
+        if (suppressedCount > 0) {
+            logger.warn(format + "（此前 {} 条同类日志已被抑制）", append(arguments, suppressedCount));
+        } else {
+            logger.warn(format, arguments);
+        }
+    }
+
+    /**
+     * 输出带异常堆栈的ERROR日志
+     * @param message 日志内容
+     * @param throwable 异常
+     */
+    public void error(String message, Throwable throwable) {
+        if (!logger.isErrorEnabled()) {
+            return;
+        }
+        if (!tryAcquire()) {
+            suppressed.increment();
+            return;
+        }
+        long suppressedCount = suppressed.sumThenReset();
+        if (suppressedCount > 0) {
+            logger.error(message + "（此前 " + suppressedCount + " 条同类日志已被抑制）", throwable);
+        } else {
+            logger.error(message, throwable);
+        }
+    }
+
+    private boolean tryAcquire() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+            permitsUsed.set(0);
+        }
+        return permitsUsed.incrementAndGet() <= permitsPerWindow;
+    }
+
+    private static Object[] append(Object[] arguments, Object last) {
+        Object[] result = new Object[arguments.length + 1];
+        System.arraycopy(arguments, 0, result, 0, arguments.length);
+        result[arguments.length] = last;
+        return result;
+    }
+}
@@ -4,12 +4,18 @@ import org.springframework.http.ResponseEntity;
 import com.couple.space.dto.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * 统一响应处理器
  * 用于处理所有Controller的响应
  */
 @Slf4j
 public class ResponseHandler {
+    /**
+     * 系统异常日志，每分钟最多输出10条
+     */
+    private static final RateLimitedLogger ERROR_LOG = new RateLimitedLogger(log, 10, 1, TimeUnit.MINUTES);
     
     /**
      * 处理成功响应
@@ -22,21 +28,59 @@ public class ResponseHandler {
     
     /**
      * 处理失败响应
+     * 不输出日志，只计入失败统计
      * @param message 错误信息
-     * @return ResponseEntity
+     * @return ResponseEntity，HTTP状态码为400
      */
     public static <T> ResponseEntity<ApiResponse<T>> fail(String message) {
-        log.warn("业务处理失败: {}", message);
-        return ResponseEntity.ok(ApiResponse.fail(message));
+        return fail(ErrorCode.BAD_REQUEST, message);
+    }
+
+    /**
+     * 处理带错误码的失败响应
+     * @param errorCode 错误码
+     * @return ResponseEntity，HTTP状态码由错误码决定
+     */
+    public static <T> ResponseEntity<ApiResponse<T>> fail(ErrorCode errorCode) {
+        return fail(errorCode, errorCode.getMessage());
+    }
+
+    /**
+     * 处理带错误码的失败响应
+     * 不输出日志，只计入失败统计
+     * @param errorCode 错误码
+     * @param message 错误信息
+     * @return ResponseEntity，HTTP状态码由错误码决定
+     */
+    public static <T> ResponseEntity<ApiResponse<T>> fail(ErrorCode errorCode, String message) {
+        FailureStatistics.record(errorCode);
+        return ResponseEntity.status(errorCode.getStatus()).body(ApiResponse.fail(errorCode, message));
+    }
+    
+    /**
+     * 处理携带数据的失败响应
+     * 用于版本冲突等需要把当前数据返回给客户端的情况
+     * @param errorCode 错误码
+     * @param message 错误信息
+     * @param data 响应数据
+     * @return ResponseEntity，HTTP状态码由错误码决定
+     */
+    public static <T> ResponseEntity<ApiResponse<T>> fail(ErrorCode errorCode, String message, T data) {
+        FailureStatistics.record(errorCode);
+        ApiResponse<T> body = ApiResponse.fail(errorCode, message);
+        body.setData(data);
+        return ResponseEntity.status(errorCode.getStatus()).body(body);
     }
     
     /**
      * 处理异常响应
+     * 非预期的异常，输出带堆栈的ERROR日志，每分钟最多输出10条
+     * 异常信息可能包含SQL、类名等内部细节，只写入日志，不返回给客户端
      * @param e 异常
-     * @return ResponseEntity
+     * @return ResponseEntity，HTTP状态码为500
      */
     public static <T> ResponseEntity<ApiResponse<T>> error(Exception e) {
-        log.error("系统异常: {}", e.getMessage(), e);
-        return ResponseEntity.ok(ApiResponse.fail("系统异常：" + e.getMessage()));
+        ERROR_LOG.error("系统异常: " + e.getMessage(), e);
+        return fail(ErrorCode.INTERNAL_ERROR);
     }
-} 
\ No newline at end of file
+}
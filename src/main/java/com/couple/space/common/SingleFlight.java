@@ -0,0 +1,123 @@
+package com.couple.space.common;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 合并并发的相同读请求
+ * 同一个键同一时刻只执行一次查询，并发的调用方等待同一个future并得到同一个结果
+ * 查询完成后立即移除，不缓存结果，之后的调用重新查询
+ * 结果被多个调用方共享，需要修改的调用方应返回不可修改的结果或自行复制
+ * @param <K> 键类型
+ * @param <V> 结果类型
+ */
+public class SingleFlight<K, V> {
+    private final String name;
+    private final long waitTimeoutMillis;
+
+    /**
+     * 执行中的查询
+     */
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 调用次数
+     */
+    private final LongAdder calls = new LongAdder();
+
+    /**
+     * 合并到其他调用的次数
+     */
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * 等待超时的次数
+     */
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * @param name 名称，用于统计
+     * @param waitTimeoutMillis 等待其他调用结果的最长时间
+     */
+    public SingleFlight(String name, long waitTimeoutMillis) {
+        this.name = name;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+    }
+
+    /**
+     * 执行查询，相同的键正在查询时等待它的结果
+     * @param key 键
+     * @param loader 实际的查询
+     * @return 查询结果
+     * @throws BusinessException 等待超时
+     */
+    public V execute(K key, Supplier<V> loader) {
+        calls.increment();
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            shared.increment();
+            return await(running);
+        }
+        try {
+            V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private V await(CompletableFuture<V> running) {
+        try {
+            return running.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new BusinessException(ErrorCode.SERVICE_BUSY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SERVICE_BUSY);
+        } catch (ExecutionException e) {
+            // 共享的查询失败，等待方得到同样的失败
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * 名称
+     * @return 名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 输出并清零统计
+     * @return 一行统计，没有调用时返回null
+     */
+    String reportAndReset() {
+        long callCount = calls.sumThenReset();
+        if (callCount == 0) {
+            return null;
+        }
+        long sharedCount = shared.sumThenReset();
+        return name + "[调用=" + callCount + ", 查询=" + (callCount - sharedCount) + ", 合并=" + sharedCount
+                + ", 超时=" + timeouts.sumThenReset() + ", 执行中=" + inFlight.size() + "]";
+    }
+}
@@ -0,0 +1,53 @@
+package com.couple.space.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 请求合并的注册表
+ * 创建统一配置等待时间的SingleFlight，按名称计数，定期输出一行汇总
+ */
+@Slf4j
+@Component
+public class SingleFlightRegistry {
+    private final long waitTimeoutMillis;
+    private final List<SingleFlight<?, ?>> flights = new CopyOnWriteArrayList<>();
+
+    public SingleFlightRegistry(@Value("${single-flight.wait-timeout:5000}") long waitTimeoutMillis) {
+        this.waitTimeoutMillis = waitTimeoutMillis;
+    }
+
+    /**
+     * 创建一个SingleFlight
+     * @param name 名称，用于统计
+     * @return SingleFlight
+     */
+    public <K, V> SingleFlight<K, V> create(String name) {
+        SingleFlight<K, V> flight = new SingleFlight<>(name, waitTimeoutMillis);
+        flights.add(flight);
+        return flight;
+    }
+
+    /**
+     * 每分钟输出一次汇总，没有调用时不输出
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void report() {
+        StringBuilder summary = null;
+        for (SingleFlight<?, ?> flight : flights) {
+            String line = flight.reportAndReset();
+            if (line != null) {
+                summary = summary == null ? new StringBuilder() : summary.append(", ");
+                summary.append(line);
+            }
+        }
+        if (summary != null) {
+            log.info("请求合并统计（最近一分钟）: {}", summary);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.couple.space.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 数据库迁移配置
+ * 迁移位于db/migration：SQL脚本在resources中，需要查询表结构或做迁移前检查的迁移是db.migration包中的Java类，
+ * 由Flyway按版本号统一排序执行
+ * 两种模式：
+ * 1. 启动时迁移（默认）：启动时执行待执行的迁移
+ * 2. 只校验版本（生产环境）：迁移通过mvn compile flyway:migrate单独执行，启动时只比较迁移历史表中的版本，
+ *    存在待执行的迁移时拒绝启动；校验只读取迁移历史表，不检查业务表
+ */
+@Slf4j
+@Configuration
+public class FlywayConfig {
+
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(
+            @Value("${schema.migrate-on-startup:true}") boolean migrateOnStartup) {
+        return flyway -> {
+            if (migrateOnStartup) {
+                MigrateResult result = flyway.migrate();
+                log.info("数据库迁移完成 - 执行: {} 个, 当前版本: {}", result.migrationsExecuted,
+                        result.targetSchemaVersion != null ? result.targetSchemaVersion : result.initialSchemaVersion);
+                return;
+            }
+            MigrationInfoService info = flyway.info();
+            MigrationInfo current = info.current();
+            MigrationInfo[] pending = info.pending();
+            String currentVersion = current == null ? "无" : current.getVersion().getVersion();
+            if (pending.length > 0) {
+                throw new IllegalStateException("数据库结构版本 " + currentVersion + " 落后于应用，待执行迁移 "
+                        + pending.length + " 个（首个: " + pending[0].getScript() + "），请先执行 mvn compile flyway:migrate");
+            }
+            log.info("数据库结构版本: {}", currentVersion);
+        };
+    }
+}
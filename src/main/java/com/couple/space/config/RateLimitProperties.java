@@ -0,0 +1,69 @@
+package com.couple.space.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 限流配置
+ * 对应application.yml中的rate-limit配置项
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+    /**
+     * 是否启用限流
+     */
+    private boolean enabled = true;
+
+    /**
+     * 令牌桶的最大数量，超过后先清理空闲桶，仍然超过时新键共享溢出桶
+     */
+    private int maxBuckets = 100000;
+
+    /**
+     * 是否信任X-Forwarded-For请求头获取客户端IP
+     * 只有部署在可信的反向代理之后才应开启
+     */
+    private boolean trustForwardedFor = false;
+
+    /**
+     * 路由规则，按顺序匹配，第一条匹配的规则生效
+     */
+    private List<Rule> rules = new ArrayList<>();
+
+    /**
+     * 单条路由规则
+     */
+    @Data
+    public static class Rule {
+        /**
+         * Ant风格的路径模式，例如：/api/anniversary/**
+         */
+        private String pattern;
+
+        /**
+         * 桶容量，即允许的突发请求数
+         */
+        private int capacity = 60;
+
+        /**
+         * 每秒补充的令牌数
+         */
+        private double refillPerSecond = 10;
+
+        /**
+         * 是否按客户端IP限流
+         */
+        private boolean perIp = true;
+
+        /**
+         * 是否按JWT主题（用户名）限流
+         */
+        private boolean perUser = false;
+    }
+}
@@ -1,6 +1,9 @@
 package com.couple.space.config;
 
 import com.couple.space.security.JwtAuthenticationFilter;
+import com.couple.space.security.PublicRoutes;
+import com.couple.space.security.RateLimitFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -13,7 +16,6 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.http.HttpMethod;
 
 import java.util.Arrays;
 
@@ -26,6 +28,7 @@ import java.util.Arrays;
  * 4. 跨域设置
  * 5. 会话管理
  * 6. JWT认证过滤器
+ * 7. 限流过滤器
  */
 @Configuration
 @EnableWebSecurity
@@ -36,12 +39,20 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
      */
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    /**
+     * 限流过滤器
+     * 在JWT认证之前拦截超出频率限制的请求
+     */
+    private final RateLimitFilter rateLimitFilter;
+
     /**
      * 构造函数，注入依赖
      * @param jwtAuthenticationFilter JWT认证过滤器
+     * @param rateLimitFilter 限流过滤器
      */
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter) {
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, RateLimitFilter rateLimitFilter) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     /**
@@ -59,6 +70,8 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         configuration.setAllowedOriginPatterns(Arrays.asList("*"));
         configuration.setAllowedMethods(Arrays.asList("*"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        // 允许前端读取ETag，修改纪念日时通过If-Match带回
+        configuration.setExposedHeaders(Arrays.asList("ETag"));
         configuration.setAllowCredentials(false);
         configuration.setMaxAge(3600L);
         
@@ -67,9 +80,15 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         return source;
     }
 
+    /**
+     * 密码编码器
+     * 对前端加密后的密码再做一次BCrypt哈希后入库
+     * @param strength BCrypt强度，每加1耗时翻倍
+     * @return 密码编码器
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${login.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     /**
@@ -81,6 +100,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
      * 4. 配置跨域
      * 5. 禁用会话管理
      * 6. 添加JWT认证过滤器
+     * 7. 在JWT认证过滤器之前添加限流过滤器
      * @param http HttpSecurity对象
      * @throws Exception 配置异常
      */
@@ -91,9 +111,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
             .and()
             .csrf().disable()  // 禁用CSRF保护
             .authorizeRequests()
-                .antMatchers(HttpMethod.OPTIONS, "/**").permitAll()  // 允许所有OPTIONS请求
-                .antMatchers("/api/users/register", "/api/users/login").permitAll()  // 允许注册和登录
-                .antMatchers("/api/weather/**").permitAll()  // 允许天气接口的访问
+                .requestMatchers(PublicRoutes.matcher()).permitAll()  // 允许OPTIONS请求、注册、登录、令牌和天气接口
                 .antMatchers("/api/anniversary/**").permitAll()  // 允许纪念日接口的访问
                 .anyRequest().authenticated()  // 其他请求需要认证
             .and()
@@ -101,6 +119,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
             .sessionManagement()
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)  // 禁用会话管理
             .and()
-            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+            .addFilterBefore(rateLimitFilter, JwtAuthenticationFilter.class);  // 限流在JWT认证之前执行
     }
 } 
\ No newline at end of file
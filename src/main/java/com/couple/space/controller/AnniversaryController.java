@@ -1,23 +1,48 @@
 package com.couple.space.controller;
 
+import com.couple.space.cache.AnniversaryListResponseCache;
+import com.couple.space.calendar.AnniversaryOccurrences;
+import com.couple.space.calendar.AnniversaryRangeExpander;
+import com.couple.space.calendar.LunarCalendar;
+import com.couple.space.calendar.ZoneClock;
 import com.couple.space.dto.ApiResponse;
+import com.couple.space.dto.AnniversaryBatchItemDTO;
 import com.couple.space.dto.AnniversaryDTO;
+import com.couple.space.dto.AnniversaryMilestonesDTO;
+import com.couple.space.dto.AnniversaryOccurrenceDTO;
+import com.couple.space.dto.AnniversaryPatchDTO;
+import com.couple.space.dto.AnniversarySearchHitDTO;
 import com.couple.space.dto.NextAnniversaryDTO;
 import com.couple.space.entity.Anniversary;
 import com.couple.space.entity.User;
-import com.couple.space.mapper.AnniversaryMapper;
-import com.couple.space.mapper.UserMapper;
-import com.couple.space.security.JwtTokenProvider;
+import com.couple.space.idempotency.IdempotencyService;
+import com.couple.space.index.AnniversarySearchIndex;
+import com.couple.space.milestone.MilestoneEngine;
+import com.couple.space.security.JwtUser;
 import com.couple.space.service.AnniversaryService;
+import com.couple.space.service.AnniversaryUpdateResult;
+import com.couple.space.service.SpaceService;
+import com.couple.space.stream.AnniversaryStreamBroadcaster;
+import com.couple.space.common.ErrorCode;
 import com.couple.space.common.ResponseHandler;
+import com.fasterxml.jackson.core.type.TypeReference;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import javax.servlet.http.HttpServletRequest;
+import java.util.Map;
 
 /**
  * 纪念日控制器
@@ -28,158 +53,421 @@ import javax.servlet.http.HttpServletRequest;
 @RequestMapping("/api/anniversary")
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 public class AnniversaryController {
+    /**
+     * 区间查询允许的最大年数
+     */
+    private static final int MAX_RANGE_YEARS = 100;
+
+    /**
+     * 批量添加允许的最大数量
+     */
+    private static final int MAX_BATCH_SIZE = 100;
+
+    /**
+     * 批量获取详情允许的最大ID数
+     */
+    private static final int MAX_DETAIL_BATCH_SIZE = 100;
+
     private final AnniversaryService anniversaryService;
-    private final AnniversaryMapper anniversaryMapper;
-    private final UserMapper userMapper;
-    private final JwtTokenProvider jwtTokenProvider;
+    private final AnniversarySearchIndex searchIndex;
+    private final IdempotencyService idempotencyService;
+    private final AnniversaryStreamBroadcaster streamBroadcaster;
+    private final SpaceService spaceService;
+    private final MilestoneEngine milestoneEngine;
+    private final ZoneClock zoneClock;
+    private final AnniversaryListResponseCache listResponseCache;
 
     public AnniversaryController(
         AnniversaryService anniversaryService,
-        AnniversaryMapper anniversaryMapper,
-        UserMapper userMapper,
-        JwtTokenProvider jwtTokenProvider
+        AnniversarySearchIndex searchIndex,
+        IdempotencyService idempotencyService,
+        AnniversaryStreamBroadcaster streamBroadcaster,
+        SpaceService spaceService,
+        MilestoneEngine milestoneEngine,
+        ZoneClock zoneClock,
+        AnniversaryListResponseCache listResponseCache
     ) {
         this.anniversaryService = anniversaryService;
-        this.anniversaryMapper = anniversaryMapper;
-        this.userMapper = userMapper;
-        this.jwtTokenProvider = jwtTokenProvider;
+        this.searchIndex = searchIndex;
+        this.idempotencyService = idempotencyService;
+        this.streamBroadcaster = streamBroadcaster;
+        this.spaceService = spaceService;
+        this.milestoneEngine = milestoneEngine;
+        this.zoneClock = zoneClock;
+        this.listResponseCache = listResponseCache;
     }
 
     /**
-     * 获取纪念日列表
+     * 获取当前用户所在情侣空间的纪念日列表
+     * 响应体按空间缓存为已序列化的字节，命中时直接写出，客户端支持gzip时写出压缩后的字节
+     * @param acceptEncoding 客户端支持的压缩方式
      * @return 纪念日列表
      */
     @GetMapping("/list")
-    public ResponseEntity<ApiResponse<List<Anniversary>>> getAnniversaryList() {
+    public ResponseEntity<?> getAnniversaryList(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         log.info("获取纪念日列表");
-        try {
-            List<Anniversary> anniversaries = anniversaryService.getAllAnniversaries();
-            return ResponseHandler.success(anniversaries);
-        } catch (Exception e) {
-            log.error("获取纪念日列表失败: {}", e.getMessage());
-            return ResponseHandler.fail("获取纪念日列表失败：" + e.getMessage());
+        User user = resolveCurrentUser();
+        if (user == null) {
+            return ResponseHandler.fail(ErrorCode.UNAUTHORIZED);
         }
+        // 空间ID来自缓存，未命中时列表是一次按空间ID的索引查询
+        Long spaceId = spaceService.resolveSpaceId(user.getId());
+        LocalDate today = today(user);
+        AnniversaryListResponseCache.Payload payload = listResponseCache.get(spaceId, today.toEpochDay(),
+                () -> ApiResponse.success(anniversaryService.loadAnniversariesBySpaceId(spaceId, today)));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (payload.getGzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.getGzip());
+        }
+        return response.body(payload.getJson());
     }
 
     /**
      * 添加纪念日
+     * 携带Idempotency-Key请求头时，同一个键的重试返回第一次的结果，不会重复插入
      * @param anniversary 纪念日信息
+     * @param idempotencyKey 幂等键，可以为空
      * @return 添加结果
      */
     @PostMapping("/add")
-    public ResponseEntity<ApiResponse<Anniversary>> addAnniversary(@RequestBody Anniversary anniversary, HttpServletRequest request) {
+    public ResponseEntity<ApiResponse<Anniversary>> addAnniversary(
+            @RequestBody Anniversary anniversary,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         log.info("添加纪念日: {}", anniversary.getName());
-        try {
-            // 验证必要字段
-            if (anniversary.getName() == null || anniversary.getName().trim().isEmpty()) {
-                return ResponseHandler.fail("纪念日名称不能为空");
-            }
-            if (anniversary.getDate() == null) {
-                return ResponseHandler.fail("纪念日日期不能为空");
-            }
+        User user = resolveCurrentUser();
+        if (user == null) {
+            return ResponseHandler.fail(ErrorCode.UNAUTHORIZED);
+        }
+        return idempotencyService.execute(user.getId(), idempotencyKey, anniversary,
+                new TypeReference<ApiResponse<Anniversary>>() { },
+                () -> doAddAnniversary(user, anniversary));
+    }
+
+    private ResponseEntity<ApiResponse<Anniversary>> doAddAnniversary(User user, Anniversary anniversary) {
+        // 验证必要字段
+        String invalid = validate(anniversary);
+        if (invalid != null) {
+            return ResponseHandler.fail(invalid);
+        }
+        // 设置用户ID和所属空间
+        anniversary.setUserId(user.getId());
+        anniversary.setSpaceId(spaceService.resolveSpaceId(user.getId()));
+        // 通过服务层保存纪念日，以便发布变更事件
+        return ResponseHandler.success(anniversaryService.createAnniversary(anniversary));
+    }
 
-            // 从请求头中获取token
-            String token = request.getHeader("Authorization");
-            if (token != null && token.startsWith("Bearer ")) {
-                token = token.substring(7);
-                // 从token中获取用户名
-                String username = jwtTokenProvider.getUsernameFromToken(token);
-                // 根据用户名查询用户ID
-                User user = userMapper.findByUsername(username);
-                if (user != null) {
-                    // 设置用户ID
-                    anniversary.setUserId(user.getId());
-                    // 设置创建时间和更新时间
-                    LocalDate now = LocalDate.now();
-                    anniversary.setCreatedAt(now);
-                    anniversary.setUpdatedAt(now);
-                    // 保存纪念日
-                    anniversaryMapper.insert(anniversary);
-                    return ResponseHandler.success(anniversary);
-                }
+    /**
+     * 批量添加纪念日
+     * 所有纪念日在同一个事务中插入，支持Idempotency-Key请求头
+     * @param anniversaries 纪念日列表
+     * @param idempotencyKey 幂等键，可以为空
+     * @return 添加结果
+     */
+    @PostMapping("/batch-add")
+    public ResponseEntity<ApiResponse<List<Anniversary>>> batchAddAnniversaries(
+            @RequestBody List<Anniversary> anniversaries,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        log.info("批量添加纪念日: {} 个", anniversaries.size());
+        User user = resolveCurrentUser();
+        if (user == null) {
+            return ResponseHandler.fail(ErrorCode.UNAUTHORIZED);
+        }
+        if (anniversaries.isEmpty() || anniversaries.size() > MAX_BATCH_SIZE) {
+            return ResponseHandler.fail("每次添加的纪念日数量必须在1到" + MAX_BATCH_SIZE + "之间");
+        }
+        return idempotencyService.execute(user.getId(), idempotencyKey, anniversaries,
+                new TypeReference<ApiResponse<List<Anniversary>>>() { },
+                () -> doBatchAddAnniversaries(user, anniversaries));
+    }
+
+    private ResponseEntity<ApiResponse<List<Anniversary>>> doBatchAddAnniversaries(User user,
+                                                                                   List<Anniversary> anniversaries) {
+        Long spaceId = spaceService.resolveSpaceId(user.getId());
+        for (int i = 0; i < anniversaries.size(); i++) {
+            String invalid = validate(anniversaries.get(i));
+            if (invalid != null) {
+                return ResponseHandler.fail("第" + (i + 1) + "个纪念日：" + invalid);
             }
-            return ResponseHandler.fail("用户未登录");
-        } catch (Exception e) {
-            log.error("添加纪念日失败: {}", e.getMessage());
-            return ResponseHandler.fail("添加纪念日失败：" + e.getMessage());
+            anniversaries.get(i).setUserId(user.getId());
+            anniversaries.get(i).setSpaceId(spaceId);
         }
+        return ResponseHandler.success(anniversaryService.createAnniversaries(anniversaries));
+    }
+
+    /**
+     * 订阅当前用户所在情侣空间纪念日的SSE推送
+     * 事件：
+     * - change：纪念日新增、修改或删除
+     * - tick：用户时区每天零点推送空间中所有纪念日的剩余天数
+     * - resync：推送积压被丢弃，客户端需要重新拉取一次列表
+     * @return SSE连接
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<?> stream() {
+        User user = resolveCurrentUser();
+        if (user == null) {
+            return asJson(ResponseHandler.fail(ErrorCode.UNAUTHORIZED));
+        }
+        SseEmitter emitter = streamBroadcaster.subscribe(user.getId(), spaceService.resolveSpaceId(user.getId()),
+                zoneClock.resolve(user.getTimeZone()));
+        if (emitter == null) {
+            return asJson(ResponseHandler.fail(ErrorCode.TOO_MANY_REQUESTS, "推送连接数过多，请稍后再试"));
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * 显式指定JSON响应类型，请求头Accept为text/event-stream时也能返回错误信息
+     */
+    private static ResponseEntity<?> asJson(ResponseEntity<?> response) {
+        return ResponseEntity.status(response.getStatusCode())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(response.getBody());
+    }
+
+    /**
+     * 验证纪念日的必要字段
+     * @param anniversary 纪念日
+     * @return 错误信息，验证通过时返回null
+     */
+    private String validate(Anniversary anniversary) {
+        if (anniversary.getName() == null || anniversary.getName().trim().isEmpty()) {
+            return "纪念日名称不能为空";
+        }
+        if (anniversary.getDate() == null) {
+            return "纪念日日期不能为空";
+        }
+        if (AnniversaryOccurrences.isLunar(anniversary) && !LunarCalendar.isSupported(anniversary.getDate())) {
+            return "农历纪念日的日期必须在" + LunarCalendar.MIN_YEAR + "年到" + LunarCalendar.MAX_YEAR + "年之间";
+        }
+        return null;
     }
 
     /**
      * 获取纪念日详情
+     * 不属于当前用户所在空间的纪念日视为不存在
+     * 响应头ETag由版本号生成，修改时通过If-Match请求头带回
      * @param id 纪念日ID
      * @return 纪念日详情
      */
     @GetMapping("/detail/{id}")
     public ResponseEntity<ApiResponse<Anniversary>> getAnniversaryDetail(@PathVariable Long id) {
         log.info("获取纪念日详情: {}", id);
-        try {
-            Anniversary anniversary = anniversaryService.getAnniversaryById(id);
-            if (anniversary == null) {
-                return ResponseHandler.fail("纪念日不存在");
+        User user = resolveCurrentUser();
+        if (user == null) {
+            return ResponseHandler.fail(ErrorCode.UNAUTHORIZED);
+        }
+        Long spaceId = spaceService.resolveSpaceId(user.getId());
+        Anniversary anniversary = anniversaryService.getAnniversaryById(id, today(user));
+        if (anniversary == null || !spaceId.equals(anniversary.getSpaceId())) {
+            return ResponseHandler.fail(ErrorCode.NOT_FOUND, "纪念日不存在");
+        }
+        return withETag(ResponseHandler.success(anniversary), anniversary);
+    }
+
+    /**
+     * 批量获取纪念日详情
+     * 一次查询返回多个纪念日，结果与请求的ID顺序一致
+     * 不存在或不属于当前用户所在空间的ID返回found为false的条目
+     * @param ids 纪念日ID列表
+     * @return 每个ID的查询结果
+     */
+    @PostMapping("/detail/batch")
+    public ResponseEntity<ApiResponse<List<AnniversaryBatchItemDTO>>> getAnniversaryDetails(
+            @RequestBody List<Long> ids) {
+        log.info("批量获取纪念日详情: {} 个", ids.size());
+        User user = resolveCurrentUser();
+        if (user == null) {
+            return ResponseHandler.fail(ErrorCode.UNAUTHORIZED);
+        }
+        if (ids.isEmpty() || ids.size() > MAX_DETAIL_BATCH_SIZE) {
+            return ResponseHandler.fail("每次获取的纪念日数量必须在1到" + MAX_DETAIL_BATCH_SIZE + "之间");
+        }
+        Long spaceId = spaceService.resolveSpaceId(user.getId());
+        Map<Long, Anniversary> found = anniversaryService.getAnniversariesByIds(ids, today(user));
+        List<AnniversaryBatchItemDTO> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Anniversary anniversary = found.get(id);
+            boolean visible = anniversary != null && spaceId.equals(anniversary.getSpaceId());
+            AnniversaryBatchItemDTO item = new AnniversaryBatchItemDTO();
+            item.setId(id);
+            item.setFound(visible);
+            item.setAnniversary(visible ? anniversary : null);
+            result.add(item);
+        }
+        return ResponseHandler.success(result);
+    }
+
+    /**
+     * 部分更新纪念日
+     * 只更新请求体中不为null的字段，与当前值相同的字段不写入，没有变化时不执行更新
+     * 携带If-Match请求头时只在版本未变化时更新，否则以服务端读取的版本为准
+     * 版本冲突时返回409，响应数据为当前纪念日，响应头ETag为当前版本
+     * @param id 纪念日ID
+     * @param ifMatch 客户端持有的ETag，可以为空
+     * @param patch 要更新的字段
+     * @return 更新后的纪念日
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<ApiResponse<Anniversary>> patchAnniversary(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody AnniversaryPatchDTO patch) {
+        log.info("部分更新纪念日: {}", id);
+        User user = resolveCurrentUser();
+        if (user == null) {
+            return ResponseHandler.fail(ErrorCode.UNAUTHORIZED);
+        }
+        if (patch.getName() != null && patch.getName().trim().isEmpty()) {
+            return ResponseHandler.fail("纪念日名称不能为空");
+        }
+        Integer expectedVersion = null;
+        if (ifMatch != null && !"*".equals(ifMatch.trim())) {
+            expectedVersion = parseETag(ifMatch);
+            if (expectedVersion == null) {
+                return ResponseHandler.fail("无效的If-Match请求头");
             }
-            return ResponseHandler.success(anniversary);
-        } catch (Exception e) {
-            log.error("获取纪念日详情失败: {}", e.getMessage());
-            return ResponseHandler.fail("获取纪念日详情失败：" + e.getMessage());
         }
+        AnniversaryUpdateResult result = anniversaryService.patchAnniversary(id,
+                spaceService.resolveSpaceId(user.getId()), patch, expectedVersion);
+        Anniversary anniversary = result.getAnniversary();
+        if (result.getStatus() == AnniversaryUpdateResult.Status.NOT_FOUND) {
+            return ResponseHandler.fail(ErrorCode.NOT_FOUND, "纪念日不存在");
+        }
+        Long days = AnniversaryOccurrences.daysUntilNext(anniversary, today(user));
+        anniversary.setDaysRemaining(days == null ? null : days.intValue());
+        if (result.getStatus() == AnniversaryUpdateResult.Status.CONFLICT) {
+            return withETag(ResponseHandler.fail(ErrorCode.VERSION_CONFLICT,
+                    ErrorCode.VERSION_CONFLICT.getMessage(), anniversary), anniversary);
+        }
+        return withETag(ResponseHandler.success(anniversary), anniversary);
     }
 
     /**
      * 删除纪念日
+     * 只能删除当前用户所在空间的纪念日，其他纪念日视为不存在
      * @param id 纪念日ID
      * @return 删除结果
      */
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<ApiResponse<Void>> deleteAnniversary(@PathVariable Long id) {
         log.info("删除纪念日: {}", id);
-        try {
-            anniversaryService.deleteAnniversary(id);
-            return ResponseHandler.success(null);
-        } catch (Exception e) {
-            log.error("删除纪念日失败: {}", e.getMessage());
-            return ResponseHandler.fail("删除纪念日失败：" + e.getMessage());
+        User user = resolveCurrentUser();
+        if (user == null) {
+            return ResponseHandler.fail(ErrorCode.UNAUTHORIZED);
+        }
+        if (!anniversaryService.deleteAnniversary(id, spaceService.resolveSpaceId(user.getId()))) {
+            return ResponseHandler.fail(ErrorCode.NOT_FOUND, "纪念日不存在");
         }
+        return ResponseHandler.success(null);
     }
 
+    /**
+     * 获取当前用户所在情侣空间每个纪念日的"在一起第几天"和接下来的里程碑
+     * 里程碑按纪念日缓存，同一天内重复查询不重新计算
+     * @return 每个纪念日的里程碑
+     */
+    @GetMapping("/milestones")
+    public ResponseEntity<ApiResponse<List<AnniversaryMilestonesDTO>>> getMilestones() {
+        User user = resolveCurrentUser();
+        if (user == null) {
+            return ResponseHandler.fail(ErrorCode.UNAUTHORIZED);
+        }
+        LocalDate today = today(user);
+        List<Anniversary> anniversaries =
+                anniversaryService.getAnniversariesBySpaceId(spaceService.resolveSpaceId(user.getId()), today);
+        List<AnniversaryMilestonesDTO> result = new ArrayList<>(anniversaries.size());
+        for (Anniversary anniversary : anniversaries) {
+            AnniversaryMilestonesDTO milestones = milestoneEngine.getMilestones(anniversary, today);
+            if (milestones != null) {
+                result.add(milestones);
+            }
+        }
+        return ResponseHandler.success(result);
+    }
+
+    /**
+     * 搜索当前用户所在情侣空间的纪念日
+     * 在名称和描述中搜索，最后一个词按前缀匹配
+     * @param q 查询文本
+     * @param limit 最多返回的条数
+     * @return 搜索结果
+     */
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<List<AnniversarySearchHitDTO>>> searchAnniversaries(
+            @RequestParam("q") String q,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        User user = resolveCurrentUser();
+        if (user == null) {
+            return ResponseHandler.fail(ErrorCode.UNAUTHORIZED);
+        }
+        if (q == null || q.trim().isEmpty()) {
+            return ResponseHandler.success(Collections.<AnniversarySearchHitDTO>emptyList());
+        }
+        return ResponseHandler.success(searchIndex.search(spaceService.resolveSpaceId(user.getId()), q,
+                Math.min(Math.max(limit, 1), 100)));
+    }
+
+    /**
+     * 查询日期区间内当前用户所在情侣空间纪念日的所有发生日期
+     * 每年重复的纪念日在区间内每年产生一次，结果按日期升序流式输出
+     * @param from 起始日期（包含），格式：yyyy-MM-dd
+     * @param to 结束日期（包含），格式：yyyy-MM-dd
+     * @return 发生日期列表
+     */
+    @GetMapping("/range")
+    public ResponseEntity<ApiResponse<Iterator<AnniversaryOccurrenceDTO>>> getAnniversaryRange(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        User user = resolveCurrentUser();
+        if (user == null) {
+            return ResponseHandler.fail(ErrorCode.UNAUTHORIZED);
+        }
+        if (to.isBefore(from)) {
+            return ResponseHandler.fail("结束日期不能早于起始日期");
+        }
+        if (ChronoUnit.YEARS.between(from, to) >= MAX_RANGE_YEARS) {
+            return ResponseHandler.fail("查询区间不能超过" + MAX_RANGE_YEARS + "年");
+        }
+        log.info("查询纪念日区间: {} ~ {}", from, to);
+        List<Anniversary> anniversaries =
+                anniversaryService.getAnniversariesBySpaceId(spaceService.resolveSpaceId(user.getId()), today(user));
+        // 迭代器在序列化响应时才逐个产出发生日期
+        return ResponseHandler.success(new AnniversaryRangeExpander(anniversaries).expand(from, to));
+    }
+
+    /**
+     * 获取当前用户所在情侣空间的下一个纪念日
+     * @return 下一个纪念日
+     */
     @GetMapping("/next")
     public ResponseEntity<ApiResponse<NextAnniversaryDTO>> getNextAnniversary() {
         log.info("获取下一个纪念日");
+        User user = resolveCurrentUser();
+        if (user == null) {
+            return ResponseHandler.fail(ErrorCode.UNAUTHORIZED);
+        }
         
-        List<Anniversary> anniversaries = anniversaryService.getAllAnniversaries();
+        // 列表已按用户时区的剩余天数升序排列，不会再发生的纪念日排在最后
+        List<Anniversary> anniversaries =
+                anniversaryService.getAnniversariesBySpaceId(spaceService.resolveSpaceId(user.getId()), today(user));
         if (anniversaries.isEmpty()) {
             log.info("没有设置任何纪念日");
             return ResponseHandler.success(null);
         }
 
-        LocalDate today = LocalDate.now();
-        Anniversary nextAnniversary = null;
-        long minDaysUntil = Long.MAX_VALUE;
-
-        for (Anniversary anniversary : anniversaries) {
-            LocalDate anniversaryDate = anniversary.getDate();
-            LocalDate thisYearAnniversary = LocalDate.of(today.getYear(), anniversaryDate.getMonth(), anniversaryDate.getDayOfMonth());
-            
-            // 如果今年的纪念日已经过去，计算到明年的纪念日
-            if (thisYearAnniversary.isBefore(today)) {
-                thisYearAnniversary = thisYearAnniversary.plusYears(1);
-            }
-            
-            long daysUntil = ChronoUnit.DAYS.between(today, thisYearAnniversary);
-            
-            if (daysUntil < minDaysUntil) {
-                minDaysUntil = daysUntil;
-                nextAnniversary = anniversary;
-            }
-        }
-
-        if (nextAnniversary == null) {
+        Anniversary nextAnniversary = anniversaries.get(0);
+        if (nextAnniversary.getDaysRemaining() == null) {
             log.info("未能找到下一个纪念日");
             return ResponseHandler.success(null);
         }
 
         NextAnniversaryDTO dto = new NextAnniversaryDTO();
         dto.setTitle(nextAnniversary.getName());
+        long minDaysUntil = nextAnniversary.getDaysRemaining();
         dto.setDays(minDaysUntil);
         dto.setState("success");
 
@@ -188,4 +476,64 @@ public class AnniversaryController {
         
         return ResponseHandler.success(dto);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 在响应头中加入由版本号生成的ETag
+     */
+    private static <T> ResponseEntity<T> withETag(ResponseEntity<T> response, Anniversary anniversary) {
+        if (anniversary.getVersion() == null) {
+            return response;
+        }
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .eTag("\"" + anniversary.getVersion() + "\"")
+                .body(response.getBody());
+    }
+
+    /**
+     * 从ETag中解析版本号，接受弱ETag
+     * @param eTag ETag，如"3"或W/"3"
+     * @return 版本号，格式不正确时返回null
+     */
+    private static Integer parseETag(String eTag) {
+        String value = eTag.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        if (value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 获取当前登录用户
+     * 用户信息由JWT认证过滤器从访问令牌中还原，不查询数据库
+     * @return 当前用户，未登录时返回null
+     */
+    private User resolveCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof JwtUser)) {
+            return null;
+        }
+        JwtUser principal = (JwtUser) authentication.getPrincipal();
+        User user = new User();
+        user.setId(principal.getId());
+        user.setUsername(principal.getUsername());
+        user.setTimeZone(principal.getTimeZone());
+        return user;
+    }
+
+    /**
+     * 用户时区的今天，来自按时区缓存的日期
+     * @param user 当前用户，可以为null
+     * @return 今天，未登录或未设置时区时使用默认时区
+     */
+    private LocalDate today(User user) {
+        return zoneClock.today(user == null ? null : user.getTimeZone());
+    }
+}
@@ -0,0 +1,88 @@
+package com.couple.space.controller;
+
+import com.couple.space.common.ErrorCode;
+import com.couple.space.common.ResponseHandler;
+import com.couple.space.dto.ApiResponse;
+import com.couple.space.dto.JoinSpaceDTO;
+import com.couple.space.dto.SpaceDTO;
+import com.couple.space.entity.Space;
+import com.couple.space.security.JwtUser;
+import com.couple.space.service.SpaceService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 情侣空间控制器
+ * 处理空间相关的HTTP请求，包括：
+ * 1. 查询当前用户所在的空间和成员
+ * 2. 凭邀请码加入另一半的空间
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/space")
+public class SpaceController {
+    private final SpaceService spaceService;
+
+    public SpaceController(SpaceService spaceService) {
+        this.spaceService = spaceService;
+    }
+
+    /**
+     * 获取当前用户所在的空间
+     * 用户还没有空间时自动创建个人空间
+     * @return 空间信息和成员列表
+     */
+    @GetMapping("/current")
+    public ResponseEntity<ApiResponse<SpaceDTO>> getCurrentSpace() {
+        Long userId = resolveCurrentUserId();
+        if (userId == null) {
+            return ResponseHandler.fail(ErrorCode.UNAUTHORIZED);
+        }
+        return ResponseHandler.success(toDTO(spaceService.getSpace(userId)));
+    }
+
+    /**
+     * 凭邀请码加入另一半的空间
+     * 自己个人空间中的纪念日会一并移入
+     * @param request 邀请码
+     * @return 加入后的空间信息
+     */
+    @PostMapping("/join")
+    public ResponseEntity<ApiResponse<SpaceDTO>> joinSpace(@RequestBody JoinSpaceDTO request) {
+        Long userId = resolveCurrentUserId();
+        if (userId == null) {
+            return ResponseHandler.fail(ErrorCode.UNAUTHORIZED);
+        }
+        if (request.getInviteCode() == null || request.getInviteCode().trim().isEmpty()) {
+            return ResponseHandler.fail("邀请码不能为空");
+        }
+        log.info("用户 {} 加入空间", userId);
+        // 邀请码无效或空间已满时由全局异常处理器返回错误
+        Space space = spaceService.joinSpace(userId, request.getInviteCode());
+        return ResponseHandler.success(toDTO(space));
+    }
+
+    private SpaceDTO toDTO(Space space) {
+        SpaceDTO dto = new SpaceDTO();
+        dto.setId(space.getId());
+        dto.setName(space.getName());
+        dto.setInviteCode(space.getInviteCode());
+        dto.setMembers(spaceService.getMembers(space.getId()));
+        return dto;
+    }
+
+    /**
+     * 获取当前登录用户的ID
+     * @return 用户ID，未登录时返回null
+     */
+    private Long resolveCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof JwtUser)) {
+            return null;
+        }
+        return ((JwtUser) authentication.getPrincipal()).getId();
+    }
+}
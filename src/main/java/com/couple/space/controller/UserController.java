@@ -4,24 +4,31 @@ import com.couple.space.dto.UserDTO;
 import com.couple.space.dto.ApiResponse;
 import com.couple.space.entity.User;
 import com.couple.space.service.UserService;
+import com.couple.space.common.ErrorCode;
 import com.couple.space.common.ResponseHandler;
+import com.couple.space.dto.RefreshTokenDTO;
+import com.couple.space.dto.TimeZoneDTO;
 import com.couple.space.security.JwtTokenProvider;
+import com.couple.space.security.JwtUser;
+import com.couple.space.security.TokenRevocationStore;
+import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import java.util.Optional;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.ArrayList;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
+import javax.servlet.http.HttpServletRequest;
 
 /**
  * 用户控制器
  * 处理用户相关的HTTP请求，包括：
  * 1. 用户注册
  * 2. 用户登录
+ * 3. 刷新令牌
+ * 4. 退出登录
+ * 5. 设置时区
  * 提供RESTful API接口
  */
 @Slf4j
@@ -43,14 +50,23 @@ public class UserController {
      */
     private final JwtTokenProvider jwtTokenProvider;
 
+    /**
+     * 令牌吊销存储
+     * 用于刷新令牌的一次性使用和退出登录
+     */
+    private final TokenRevocationStore revocationStore;
+
     /**
      * 构造函数，注入依赖
      * @param userService 用户服务
      * @param jwtTokenProvider JWT令牌提供者
+     * @param revocationStore 令牌吊销存储
      */
-    public UserController(UserService userService, JwtTokenProvider jwtTokenProvider) {
+    public UserController(UserService userService, JwtTokenProvider jwtTokenProvider,
+                          TokenRevocationStore revocationStore) {
         this.userService = userService;
         this.jwtTokenProvider = jwtTokenProvider;
+        this.revocationStore = revocationStore;
     }
     
     /**
@@ -65,85 +81,127 @@ public class UserController {
     @PostMapping("/register")
     public ResponseEntity<ApiResponse<UserDTO>> register(@RequestBody User user) {
         log.info("收到用户注册请求: {}", user.getUsername());
-        try {
-            // 调用服务层进行注册
-            User registeredUser = userService.register(user);
-            // 转换为DTO对象
-            UserDTO userDTO = convertToDTO(registeredUser);
-            // 返回成功响应
-            return ResponseHandler.success(userDTO);
-        } catch (Exception e) {
-            log.error("用户注册失败: {}", e.getMessage());
-            // 返回错误响应
-            return ResponseHandler.fail(e.getMessage());
-        }
+        // 调用服务层进行注册，用户名已存在时由全局异常处理器返回错误
+        User registeredUser = userService.register(user);
+        // 转换为DTO对象
+        UserDTO userDTO = convertToDTO(registeredUser);
+        // 返回成功响应
+        return ResponseHandler.success(userDTO);
     }
     
     /**
      * 用户登录接口
      * 流程：
      * 1. 接收用户登录信息
-     * 2. 调用服务层进行验证
+     * 2. 调用服务层进行验证，失败时由全局异常处理器返回错误码
      * 3. 返回登录结果
      * @param user 用户登录信息
      * @return 登录结果，包含成功/失败状态和消息
      */
     @PostMapping("/login")
     public ResponseEntity<ApiResponse<Map<String, Object>>> login(@RequestBody User user) {
-        try {
-            // 调用服务层进行登录验证
-            Optional<User> result = userService.login(user.getUsername(), user.getPassword());
-            
-            if (result.isPresent()) {
-                // 登录成功
-                User loggedInUser = result.get();
-                
-                // 创建UserDetails对象
-                UserDetails userDetails = new org.springframework.security.core.userdetails.User(
-                    loggedInUser.getUsername(),
-                    loggedInUser.getPassword(),
-                    new ArrayList<>()
-                );
-                
-                // 创建Authentication对象
-                Authentication authentication = new UsernamePasswordAuthenticationToken(
-                    userDetails,
-                    null,
-                    userDetails.getAuthorities()
-                );
-                
-                // 生成JWT token
-                String token = jwtTokenProvider.generateToken(authentication);
-                
-                // 构建响应数据
-                Map<String, Object> responseData = new HashMap<>();
-                responseData.put("token", token);
-                
-                // 构建用户信息对象
-                Map<String, Object> userInfo = new HashMap<>();
-                userInfo.put("id", loggedInUser.getId());
-                userInfo.put("username", loggedInUser.getUsername());
-                userInfo.put("createdAt", loggedInUser.getCreatedAt());
-                userInfo.put("updatedAt", loggedInUser.getUpdatedAt());
-                
-                responseData.put("userInfo", userInfo);
-                
-                // 返回成功响应
-                return ResponseHandler.success(responseData);
-            } else {
-                // 登录失败
-                log.warn("用户登录失败: {}", user.getUsername());
-                // 检查用户是否存在
-                if (userService.existsByUsername(user.getUsername()) > 0) {
-                    return ResponseHandler.fail("密码错误");
-                } else {
-                    return ResponseHandler.fail("用户不存在");
-                }
-            }
-        } catch (Exception e) {
-            log.error("登录过程中发生错误: {}", e.getMessage());
-            return ResponseHandler.fail("登录失败：" + e.getMessage());
+        // 调用服务层进行登录验证
+        User loggedInUser = userService.login(user.getUsername(), user.getPassword());
+
+        // 生成访问令牌和刷新令牌
+        Map<String, Object> responseData = buildTokenResponse(loggedInUser.getId(), loggedInUser.getUsername(),
+                loggedInUser.getTimeZone());
+
+        // 构建用户信息对象
+        Map<String, Object> userInfo = new HashMap<>();
+        userInfo.put("id", loggedInUser.getId());
+        userInfo.put("username", loggedInUser.getUsername());
+        userInfo.put("timeZone", loggedInUser.getTimeZone());
+        userInfo.put("createdAt", loggedInUser.getCreatedAt());
+        userInfo.put("updatedAt", loggedInUser.getUpdatedAt());
+
+        responseData.put("userInfo", userInfo);
+
+        // 返回成功响应
+        return ResponseHandler.success(responseData);
+    }
+
+    /**
+     * 刷新令牌接口
+     * 流程：
+     * 1. 验证刷新令牌
+     * 2. 吊销旧的刷新令牌，同一个刷新令牌只能使用一次
+     * 3. 签发新的访问令牌和刷新令牌，时区从数据库读取
+     * @param request 刷新令牌请求
+     * @return 新的令牌
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> refresh(@RequestBody RefreshTokenDTO request) {
+        Claims claims = jwtTokenProvider.parseRefreshToken(request.getRefreshToken());
+        if (claims == null) {
+            return ResponseHandler.fail(ErrorCode.TOKEN_INVALID);
+        }
+        Long userId = JwtTokenProvider.getUserId(claims);
+        // 并发使用同一个刷新令牌时只有一个请求能成功，包括落到不同实例的请求
+        if (!revocationStore.consume(claims.getId(), userId, claims.getExpiration())) {
+            log.warn("刷新令牌被重复使用: {}", claims.getSubject());
+            return ResponseHandler.fail(ErrorCode.TOKEN_INVALID, "刷新令牌已失效");
         }
+        return ResponseHandler.success(buildTokenResponse(userId, claims.getSubject(),
+                userService.getTimeZone(userId)));
+    }
+
+    /**
+     * 设置当前用户的时区
+     * 纪念日的剩余天数按该时区的日期计算
+     * 时区保存在访问令牌中，设置后返回新的令牌，客户端替换后立即生效
+     * @param request 时区设置请求
+     * @return 新的令牌
+     */
+    @PutMapping("/timezone")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> updateTimeZone(@RequestBody TimeZoneDTO request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof JwtUser)) {
+            return ResponseHandler.fail(ErrorCode.UNAUTHORIZED);
+        }
+        JwtUser principal = (JwtUser) authentication.getPrincipal();
+        String timeZone = userService.updateTimeZone(principal.getId(), request.getTimeZone());
+        Map<String, Object> responseData = buildTokenResponse(principal.getId(), principal.getUsername(), timeZone);
+        responseData.put("timeZone", timeZone);
+        return ResponseHandler.success(responseData);
+    }
+
+    /**
+     * 退出登录接口
+     * 吊销请求头中的访问令牌和请求体中的刷新令牌
+     * @param body 刷新令牌请求，可以为空
+     * @param request HTTP请求
+     * @return 退出结果
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<ApiResponse<Void>> logout(@RequestBody(required = false) RefreshTokenDTO body,
+                                                    HttpServletRequest request) {
+        Claims accessClaims = jwtTokenProvider.parseAccessToken(JwtTokenProvider.getBearerToken(request));
+        if (accessClaims != null) {
+            revocationStore.revoke(accessClaims.getId(), JwtTokenProvider.getUserId(accessClaims),
+                    accessClaims.getExpiration());
+        }
+        Claims refreshClaims = body == null ? null : jwtTokenProvider.parseRefreshToken(body.getRefreshToken());
+        if (refreshClaims != null) {
+            revocationStore.revoke(refreshClaims.getId(), JwtTokenProvider.getUserId(refreshClaims),
+                    refreshClaims.getExpiration());
+        }
+        return ResponseHandler.success(null);
+    }
+
+    /**
+     * 签发访问令牌和刷新令牌
+     * @param userId 用户ID
+     * @param username 用户名
+     * @param timeZone 用户时区，可以为空
+     * @return 包含令牌的响应数据
+     */
+    private Map<String, Object> buildTokenResponse(Long userId, String username, String timeZone) {
+        Map<String, Object> responseData = new HashMap<>();
+        responseData.put("token", jwtTokenProvider.generateAccessToken(userId, username, timeZone));
+        responseData.put("refreshToken", jwtTokenProvider.generateRefreshToken(userId, username));
+        responseData.put("expiresIn", jwtTokenProvider.getAccessTokenTtl() / 1000);
+        return responseData;
     }
 
     /**
@@ -0,0 +1,11 @@
+package com.couple.space.dto;
+
+import com.couple.space.entity.Anniversary;
+import lombok.Data;
+
+@Data
+public class AnniversaryBatchItemDTO {
+    private Long id;                    // 请求的纪念日ID
+    private Boolean found;              // 是否找到，不存在或不属于当前空间时为false
+    private Anniversary anniversary;    // 纪念日详情，未找到时为null
+}
@@ -0,0 +1,16 @@
+package com.couple.space.dto;
+
+import com.couple.space.entity.Anniversary;
+import lombok.Data;
+
+/**
+ * 纪念日变更推送DTO
+ * 通过SSE推送给纪念日所属用户
+ */
+@Data
+public class AnniversaryChangeEventDTO {
+    private String type;  // 变更类型：INSERT、UPDATE、DELETE
+    private Long id;  // 纪念日ID
+    private Anniversary anniversary;  // 变更后的纪念日，删除时为空
+    private Long daysRemaining;  // 距离下一次发生的天数，不会再发生或已删除时为空
+}
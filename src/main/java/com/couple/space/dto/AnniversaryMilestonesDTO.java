@@ -0,0 +1,14 @@
+package com.couple.space.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class AnniversaryMilestonesDTO {
+    private Long id;                        // 纪念日ID
+    private String name;                    // 纪念日名称
+    private LocalDate date;                 // 纪念日日期
+    private Long daysTogether;              // 从纪念日当天算起的第几天，尚未到来时为0
+    private List<MilestoneDTO> milestones;  // 接下来的里程碑，按日期升序
+}
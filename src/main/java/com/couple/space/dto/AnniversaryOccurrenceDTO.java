@@ -0,0 +1,16 @@
+package com.couple.space.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+
+@Data
+public class AnniversaryOccurrenceDTO {
+    private Long id;                // 纪念日ID
+    private String name;            // 纪念日名称
+    private LocalDate date;         // 本次发生日期
+    private LocalDate originalDate; // 纪念日原日期
+    private Integer years;          // 第几周年，不重复的纪念日为0
+    private Boolean isYearly;       // 是否每年重复
+    private Boolean isLunar;        // 是否按农历重复
+    private Boolean isImportant;    // 是否重要纪念日
+}
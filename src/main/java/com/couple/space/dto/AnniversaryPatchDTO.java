@@ -0,0 +1,21 @@
+package com.couple.space.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 纪念日部分更新请求DTO
+ * 只更新不为null的字段，为null的字段保持不变
+ */
+@Data
+public class AnniversaryPatchDTO {
+    private String name;                // 纪念日名称
+    private LocalDate date;             // 纪念日日期
+    private String description;         // 纪念日描述
+    private Boolean isYearly;           // 是否每年重复
+    private Boolean isLunar;            // 是否按农历重复
+    private Boolean isImportant;        // 是否重要
+    private Boolean remind;             // 是否提醒
+    private LocalDateTime remindTime;   // 提醒时间
+}
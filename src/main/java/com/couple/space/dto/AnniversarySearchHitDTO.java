@@ -0,0 +1,12 @@
+package com.couple.space.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+
+@Data
+public class AnniversarySearchHitDTO {
+    private Long id;                // 纪念日ID
+    private String name;            // 纪念日名称
+    private LocalDate date;         // 纪念日日期
+    private Integer score;          // 匹配得分，名称命中权重高于描述
+}
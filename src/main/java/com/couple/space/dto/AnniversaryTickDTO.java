@@ -0,0 +1,15 @@
+package com.couple.space.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * 每日倒计时推送DTO
+ * 每天零点通过SSE推送用户所有纪念日的剩余天数
+ */
+@Data
+public class AnniversaryTickDTO {
+    private LocalDate date;  // 今天的日期
+    private Map<Long, Long> daysRemaining;  // 纪念日ID到剩余天数的映射，不会再发生的纪念日不包含在内
+}
@@ -1,5 +1,6 @@
 package com.couple.space.dto;
 
+import com.couple.space.common.ErrorCode;
 import lombok.Data;
 
 /**
@@ -14,6 +15,13 @@ public class ApiResponse<T> {
      * fail: 失败
      */
     private String state;
+
+    /**
+     * 错误码
+     * 成功时为0
+     * 失败时为ErrorCode中定义的错误码
+     */
+    private int code;
     
     /**
      * 响应消息
@@ -25,7 +33,7 @@ public class ApiResponse<T> {
     /**
      * 响应数据
      * 成功时返回具体数据
-     * 失败时返回null
+     * 失败时返回null，版本冲突时返回当前数据
      */
     private T data;
     
@@ -48,8 +56,19 @@ public class ApiResponse<T> {
      * @return ApiResponse
      */
     public static <T> ApiResponse<T> fail(String message) {
+        return fail(ErrorCode.BAD_REQUEST, message);
+    }
+
+    /**
+     * 创建带错误码的失败响应
+     * @param errorCode 错误码
+     * @param message 错误信息
+     * @return ApiResponse
+     */
+    public static <T> ApiResponse<T> fail(ErrorCode errorCode, String message) {
         ApiResponse<T> response = new ApiResponse<>();
         response.setState("fail");
+        response.setCode(errorCode.getCode());
         response.setMsg(message);
         response.setData(null);
         return response;
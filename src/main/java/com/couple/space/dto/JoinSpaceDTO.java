@@ -0,0 +1,11 @@
+package com.couple.space.dto;
+
+import lombok.Data;
+
+/**
+ * 加入空间请求DTO
+ */
+@Data
+public class JoinSpaceDTO {
+    private String inviteCode;  // 另一半空间的邀请码
+}
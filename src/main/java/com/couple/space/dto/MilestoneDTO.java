@@ -0,0 +1,12 @@
+package com.couple.space.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+
+@Data
+public class MilestoneDTO {
+    private String type;            // 里程碑类型：DAYS-在一起第N天，YEARS-第N周年
+    private Integer value;          // 天数或周年数
+    private LocalDate date;         // 里程碑日期
+    private Long daysRemaining;     // 距离里程碑还有多少天
+}
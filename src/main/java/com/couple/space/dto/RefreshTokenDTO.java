@@ -0,0 +1,12 @@
+package com.couple.space.dto;
+
+import lombok.Data;
+
+/**
+ * 刷新令牌请求DTO
+ * 用于刷新访问令牌和退出登录
+ */
+@Data
+public class RefreshTokenDTO {
+    private String refreshToken;  // 刷新令牌
+}
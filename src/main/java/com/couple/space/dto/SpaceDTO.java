@@ -0,0 +1,18 @@
+package com.couple.space.dto;
+
+import com.couple.space.entity.SpaceMember;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 情侣空间DTO
+ * 返回空间信息和成员列表
+ */
+@Data
+public class SpaceDTO {
+    private Long id;                    // 空间ID
+    private String name;                // 空间名称
+    private String inviteCode;          // 邀请码，发给另一半用于加入
+    private List<SpaceMember> members;  // 空间成员
+}
@@ -0,0 +1,11 @@
+package com.couple.space.dto;
+
+import lombok.Data;
+
+/**
+ * 时区设置请求DTO
+ */
+@Data
+public class TimeZoneDTO {
+    private String timeZone;  // 时区ID，如Asia/Shanghai
+}
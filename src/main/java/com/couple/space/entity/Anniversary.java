@@ -23,6 +23,12 @@ public class Anniversary {
      */
     private Long userId;
     
+    /**
+     * 空间ID
+     * 纪念日所属的情侣空间，空间的所有成员都能看到
+     */
+    private Long spaceId;
+    
     /**
      * 纪念日名称
      * 例如：相识纪念日、恋爱纪念日、结婚纪念日等
@@ -48,6 +54,13 @@ public class Anniversary {
      */
     private Boolean isYearly;
     
+    /**
+     * 是否按农历重复
+     * true: date对应的农历月日每年重复，例如农历生日
+     * false: 按公历月日重复
+     */
+    private Boolean isLunar;
+    
     /**
      * 是否重要纪念日
      * true: 重要
@@ -69,6 +82,12 @@ public class Anniversary {
      */
     private LocalDateTime remindTime;
     
+    /**
+     * 版本号
+     * 每次更新加1，用于乐观并发控制和ETag
+     */
+    private Integer version;
+    
     /**
      * 创建时间
      */
@@ -83,4 +102,29 @@ public class Anniversary {
      * 距离今天还有多少天
      */
     private Integer daysRemaining;
+
+    /**
+     * 复制一个新的纪念日对象
+     * 所有字段都是不可变类型，复制后与原对象互不影响
+     * @return 纪念日副本
+     */
+    public Anniversary copy() {
+        Anniversary copy = new Anniversary();
+        copy.setId(id);
+        copy.setUserId(userId);
+        copy.setSpaceId(spaceId);
+        copy.setName(name);
+        copy.setDate(date);
+        copy.setDescription(description);
+        copy.setIsYearly(isYearly);
+        copy.setIsLunar(isLunar);
+        copy.setIsImportant(isImportant);
+        copy.setRemind(remind);
+        copy.setRemindTime(remindTime);
+        copy.setVersion(version);
+        copy.setCreatedAt(createdAt);
+        copy.setUpdatedAt(updatedAt);
+        copy.setDaysRemaining(daysRemaining);
+        return copy;
+    }
 } 
\ No newline at end of file
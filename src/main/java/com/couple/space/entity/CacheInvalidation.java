@@ -0,0 +1,37 @@
+package com.couple.space.entity;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 缓存失效记录实体类
+ * 对应数据库中的cache_invalidations表
+ * 只用于多实例之间同步本地缓存的失效，保留一段时间后删除
+ */
+@Data
+public class CacheInvalidation {
+    /**
+     * 失效序号，自增
+     */
+    private Long id;
+
+    /**
+     * 缓存名称
+     */
+    private String cacheName;
+
+    /**
+     * 缓存键，*表示整个缓存
+     */
+    private String cacheKey;
+
+    /**
+     * 发出失效的实例ID，实例跳过自己发出的记录
+     */
+    private String nodeId;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+}
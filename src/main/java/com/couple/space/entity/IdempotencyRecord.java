@@ -0,0 +1,47 @@
+package com.couple.space.entity;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 幂等记录实体类
+ * 对应数据库中的idempotency_keys表
+ * 保存带幂等键的写请求的响应，重试时直接返回
+ */
+@Data
+public class IdempotencyRecord {
+    /**
+     * 发起请求的用户ID，幂等键在用户范围内唯一
+     */
+    private Long userId;
+
+    /**
+     * 客户端提供的幂等键
+     */
+    private String idemKey;
+
+    /**
+     * 请求体摘要，用于识别同一个幂等键被用于不同的请求
+     */
+    private String fingerprint;
+
+    /**
+     * 响应的HTTP状态码
+     */
+    private Integer status;
+
+    /**
+     * 响应体JSON
+     */
+    private String body;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+
+    /**
+     * 过期时间
+     */
+    private LocalDateTime expiresAt;
+}
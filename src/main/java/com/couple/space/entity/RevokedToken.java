@@ -0,0 +1,32 @@
+package com.couple.space.entity;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 已吊销令牌实体类
+ * 对应数据库中的revoked_tokens表
+ * 只保存令牌ID，过期后可以删除
+ */
+@Data
+public class RevokedToken {
+    /**
+     * 令牌ID（JWT的jti声明）
+     */
+    private String jti;
+
+    /**
+     * 令牌所属的用户ID
+     */
+    private Long userId;
+
+    /**
+     * 令牌的过期时间，过期后吊销记录不再需要
+     */
+    private LocalDateTime expiresAt;
+
+    /**
+     * 吊销时间
+     */
+    private LocalDateTime revokedAt;
+}
@@ -0,0 +1,39 @@
+package com.couple.space.entity;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 情侣空间实体类
+ * 对应数据库中的spaces表
+ * 两个人共享同一个空间中的纪念日
+ */
+@Data
+public class Space {
+    /**
+     * 空间ID
+     * 主键，自增长
+     */
+    private Long id;
+
+    /**
+     * 空间名称
+     */
+    private String name;
+
+    /**
+     * 邀请码
+     * 另一半凭邀请码加入空间，在数据库中设置为唯一
+     */
+    private String inviteCode;
+
+    /**
+     * 创建空间的用户ID
+     */
+    private Long createdBy;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,50 @@
+package com.couple.space.entity;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 空间成员实体类
+ * 对应数据库中的space_members表
+ * 每个用户只属于一个空间
+ */
+@Data
+public class SpaceMember {
+    /**
+     * 角色：创建者
+     */
+    public static final String ROLE_OWNER = "OWNER";
+
+    /**
+     * 角色：成员
+     */
+    public static final String ROLE_MEMBER = "MEMBER";
+
+    /**
+     * 空间ID
+     */
+    private Long spaceId;
+
+    /**
+     * 成员的用户ID
+     */
+    private Long userId;
+
+    /**
+     * 成员角色
+     * OWNER: 创建者
+     * MEMBER: 凭邀请码加入的成员
+     */
+    private String role;
+
+    /**
+     * 加入时间
+     */
+    private LocalDateTime joinedAt;
+
+    /**
+     * 成员的用户名
+     * 查询成员列表时从users表关联得到
+     */
+    private String username;
+}
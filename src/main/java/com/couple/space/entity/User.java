@@ -38,6 +38,13 @@ public class User {
      */
     private String password;
     
+    /**
+     * 时区ID
+     * 用于计算纪念日的剩余天数，如Asia/Shanghai
+     * 为空时使用应用配置的默认时区
+     */
+    private String timeZone;
+    
     /**
      * 创建时间
      * 记录用户账号的创建时间
@@ -0,0 +1,38 @@
+package com.couple.space.event;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 纪念日变更批次
+ * 订阅者每次读取或接收到的一批连续变更
+ */
+@Getter
+public class AnniversaryChangeBatch {
+    /**
+     * 本批次的变更记录，按偏移量升序
+     */
+    private final List<AnniversaryChangeRecord> records;
+
+    /**
+     * 下一次读取应使用的偏移量
+     */
+    private final long nextOffset;
+
+    /**
+     * 请求的偏移量是否已被环形缓冲区覆盖
+     * 为true时订阅者错过了部分变更，需要全量重建派生数据
+     */
+    private final boolean truncated;
+
+    public AnniversaryChangeBatch(List<AnniversaryChangeRecord> records, long nextOffset, boolean truncated) {
+        this.records = records;
+        this.nextOffset = nextOffset;
+        this.truncated = truncated;
+    }
+
+    public boolean isEmpty() {
+        return records.isEmpty();
+    }
+}
@@ -0,0 +1,476 @@
+package com.couple.space.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 纪念日变更日志
+ * 在写事务提交后按顺序追加纪念日变更，为缓存失效、提醒、派生索引等增量消费者提供数据
+ * 主要功能：
+ * 1. 内存环形缓冲区保存最近的变更，每条变更带有连续递增的偏移量
+ * 2. 订阅者可以从任意偏移量恢复，按批次拉取或由分发线程推送
+ * 3. 可选的追加写文件段，重启后恢复偏移量和最近的变更
+ *    文件段由单独的写入线程按批次追加并刷盘，提交后的请求线程只写内存
+ */
+@Slf4j
+@Component
+public class AnniversaryChangeLog {
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 环形缓冲区容量
+     */
+    private final int capacity;
+
+    /**
+     * 文件段路径，为空时不落盘
+     */
+    private final String segmentPath;
+
+    /**
+     * 文件段的最大字节数，超过后轮转
+     */
+    private final long segmentMaxBytes;
+
+    private final AnniversaryChangeRecord[] ring;
+
+    /**
+     * 文件段每批最多写入的条数，每批刷盘一次
+     */
+    private static final int SEGMENT_BATCH_SIZE = 512;
+
+    /**
+     * 最后一条变更的偏移量，0表示还没有变更
+     */
+    private long head;
+
+    /**
+     * 缓冲区中最早一条变更的偏移量
+     */
+    private long oldest = 1;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * 已写入文件段的最后一条变更的偏移量
+     */
+    private volatile long persistedOffset;
+
+    private BufferedWriter segmentWriter;
+    private Path segment;
+    private Thread dispatcher;
+    private Thread segmentWriterThread;
+    private volatile boolean running;
+
+    public AnniversaryChangeLog(
+        ObjectMapper objectMapper,
+        @Value("${anniversary.change-log.capacity:65536}") int capacity,
+        @Value("${anniversary.change-log.segment-path:}") String segmentPath,
+        @Value("${anniversary.change-log.segment-max-bytes:67108864}") long segmentMaxBytes
+    ) {
+        this.objectMapper = objectMapper;
+        this.capacity = capacity;
+        this.segmentPath = segmentPath;
+        this.segmentMaxBytes = segmentMaxBytes;
+        this.ring = new AnniversaryChangeRecord[capacity];
+    }
+
+    /**
+     * 变更订阅
+     */
+    public final class Subscription {
+        private final String name;
+        private final int batchSize;
+        private final Consumer<AnniversaryChangeBatch> listener;
+        private volatile long nextOffset;
+        private volatile boolean active = true;
+
+        private Subscription(String name, long fromOffset, int batchSize, Consumer<AnniversaryChangeBatch> listener) {
+            this.name = name;
+            this.nextOffset = fromOffset;
+            this.batchSize = batchSize;
+            this.listener = listener;
+        }
+
+        /**
+         * 下一次投递的起始偏移量，订阅者可持久化它以便恢复
+         * @return 偏移量
+         */
+        public long getNextOffset() {
+            return nextOffset;
+        }
+
+        /**
+         * 取消订阅
+         */
+        public void cancel() {
+            active = false;
+            subscriptions.remove(this);
+        }
+    }
+
+    /**
+     * 启动时从文件段恢复，并启动分发线程和文件段写入线程
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+        if (segmentPath != null && !segmentPath.isEmpty()) {
+            segment = Paths.get(segmentPath);
+            recoverFromSegment();
+            persistedOffset = head;
+            openSegment();
+            if (segmentWriter != null) {
+                segmentWriterThread = new Thread(this::segmentLoop, "anniversary-change-segment-writer");
+                segmentWriterThread.setDaemon(true);
+                segmentWriterThread.start();
+            }
+        }
+        dispatcher = new Thread(this::dispatchLoop, "anniversary-change-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * 停止分发线程，等待写入线程把剩余变更写入文件段后关闭
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        if (segmentWriterThread == null) {
+            return;
+        }
+        // 不中断写入线程，中断会关闭正在写入的文件通道
+        lock.lock();
+        try {
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            segmentWriterThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 纪念日写操作提交后追加变更
+     * @param event 纪念日变更事件
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAnniversaryChanged(AnniversaryChangedEvent event) {
+        AnniversaryChangeRecord record = new AnniversaryChangeRecord();
+        record.setType(event.getType());
+        record.setId(event.getId());
+        record.setUserId(event.getUserId());
+        // 保存副本，事件中的实体在提交后仍可能被调用方修改
+        record.setAnniversary(event.getAnniversary() == null ? null : event.getAnniversary().copy());
+        record.setCommittedAt(System.currentTimeMillis());
+        append(record);
+    }
+
+    /**
+     * 追加一条变更并分配偏移量
+     * @param record 变更记录
+     * @return 分配的偏移量
+     */
+    public long append(AnniversaryChangeRecord record) {
+        lock.lock();
+        try {
+            record.setOffset(head + 1);
+            store(record);
+            appended.signalAll();
+            return record.getOffset();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 从指定偏移量开始读取一批变更
+     * 偏移量已被覆盖或超出当前范围时，从最早的变更开始并标记truncated
+     * @param fromOffset 起始偏移量（包含）
+     * @param maxBatch 最多读取的条数
+     * @return 变更批次
+     */
+    public AnniversaryChangeBatch read(long fromOffset, int maxBatch) {
+        lock.lock();
+        try {
+            boolean truncated = false;
+            long start = fromOffset;
+            if (start < oldest || start > head + 1) {
+                truncated = start != oldest;
+                start = oldest;
+            }
+            long end = Math.min(head, start + maxBatch - 1);
+            if (end < start) {
+                return new AnniversaryChangeBatch(Collections.<AnniversaryChangeRecord>emptyList(), start, truncated);
+            }
+            List<AnniversaryChangeRecord> records = new ArrayList<>((int) (end - start + 1));
+            for (long offset = start; offset <= end; offset++) {
+                records.add(ring[slotOf(offset)]);
+            }
+            return new AnniversaryChangeBatch(records, end + 1, truncated);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 订阅变更，由分发线程按批次推送
+     * @param name 订阅者名称，用于日志
+     * @param fromOffset 起始偏移量，使用headOffset()+1表示只接收新变更
+     * @param batchSize 每批最多条数
+     * @param listener 批次回调，在分发线程中执行，不应阻塞
+     * @return 订阅句柄
+     */
+    public Subscription subscribe(String name, long fromOffset, int batchSize, Consumer<AnniversaryChangeBatch> listener) {
+        Subscription subscription = new Subscription(name, fromOffset, batchSize, listener);
+        subscriptions.add(subscription);
+        lock.lock();
+        try {
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return subscription;
+    }
+
+    /**
+     * 最后一条变更的偏移量
+     * @return 偏移量，0表示还没有变更
+     */
+    public long headOffset() {
+        lock.lock();
+        try {
+            return head;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            boolean delivered = false;
+            for (Subscription subscription : subscriptions) {
+                if (!subscription.active) {
+                    continue;
+                }
+                AnniversaryChangeBatch batch = read(subscription.nextOffset, subscription.batchSize);
+                if (batch.isEmpty() && !batch.isTruncated()) {
+                    continue;
+                }
+                try {
+                    subscription.listener.accept(batch);
+                } catch (Exception e) {
+                    log.warn("纪念日变更订阅者 {} 处理失败: {}", subscription.name, e.getMessage());
+                }
+                subscription.nextOffset = batch.getNextOffset();
+                delivered = true;
+            }
+            if (!delivered) {
+                awaitAppend();
+            }
+        }
+    }
+
+    private void awaitAppend() {
+        lock.lock();
+        try {
+            if (!hasPendingSubscription()) {
+                appended.await(1, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasPendingSubscription() {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.active && subscription.nextOffset <= head) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 文件段写入循环：按批次读取尚未落盘的变更，写入后刷盘一次
+     * 停止时写完剩余的变更再关闭文件段
+     */
+    private void segmentLoop() {
+        while (true) {
+            AnniversaryChangeBatch batch = read(persistedOffset + 1, SEGMENT_BATCH_SIZE);
+            if (!batch.isEmpty()) {
+                if (batch.isTruncated()) {
+                    log.warn("纪念日变更文件段写入落后于环形缓冲区，偏移量 {} 之前的部分变更未落盘",
+                            batch.getRecords().get(0).getOffset());
+                }
+                writeToSegment(batch.getRecords());
+                persistedOffset = batch.getNextOffset() - 1;
+                continue;
+            }
+            if (!running) {
+                break;
+            }
+            awaitUnpersisted();
+        }
+        closeSegment();
+    }
+
+    private void awaitUnpersisted() {
+        lock.lock();
+        try {
+            if (running && persistedOffset >= head) {
+                appended.await(1, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(AnniversaryChangeRecord record) {
+        head = record.getOffset();
+        ring[slotOf(head)] = record;
+        if (head - oldest >= capacity) {
+            oldest = head - capacity + 1;
+        }
+    }
+
+    private int slotOf(long offset) {
+        return (int) (offset % capacity);
+    }
+
+    private void recoverFromSegment() {
+        if (!Files.isRegularFile(segment)) {
+            return;
+        }
+        int recovered = 0;
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                AnniversaryChangeRecord record = objectMapper.readValue(line, AnniversaryChangeRecord.class);
+                if (head == 0) {
+                    oldest = record.getOffset();
+                }
+                store(record);
+                recovered++;
+            }
+            log.info("纪念日变更日志从文件段恢复 {} 条，当前偏移量 {}", recovered, head);
+        } catch (IOException e) {
+            // 文件尾部可能是未写完的半行，已恢复的部分仍然有效
+            log.warn("纪念日变更日志文件段恢复中断，已恢复 {} 条: {}", recovered, e.getMessage());
+        }
+    }
+
+    private void openSegment() {
+        try {
+            Path parent = segment.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            segmentWriter = Files.newBufferedWriter(segment, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("纪念日变更日志文件段打开失败，仅使用内存缓冲区: {}", e.getMessage());
+            segmentWriter = null;
+        }
+    }
+
+    private void closeSegment() {
+        if (segmentWriter == null) {
+            return;
+        }
+        try {
+            segmentWriter.close();
+        } catch (IOException e) {
+            log.warn("纪念日变更日志文件段关闭失败: {}", e.getMessage());
+        }
+        segmentWriter = null;
+    }
+
+    /**
+     * 写入一批变更，只在写入线程中调用
+     * @param records 变更记录
+     */
+    private void writeToSegment(List<AnniversaryChangeRecord> records) {
+        if (segmentWriter == null) {
+            return;
+        }
+        try {
+            for (AnniversaryChangeRecord record : records) {
+                segmentWriter.write(objectMapper.writeValueAsString(record));
+                segmentWriter.newLine();
+            }
+            segmentWriter.flush();
+            if (Files.size(segment) > segmentMaxBytes) {
+                rotateSegment(records.get(records.size() - 1).getOffset());
+            }
+        } catch (IOException e) {
+            log.warn("纪念日变更写入文件段失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 轮转文件段：当前文件改名为.1，重新打开新文件
+     * 新文件以环形缓冲区中已落盘的最近变更开头，重启后仍能恢复
+     * @param upTo 已写入的最后一条变更的偏移量
+     */
+    private void rotateSegment(long upTo) throws IOException {
+        closeSegment();
+        Files.move(segment, segment.resolveSibling(segment.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        openSegment();
+        if (segmentWriter == null) {
+            return;
+        }
+        long from = Math.max(1, upTo - capacity / 2 + 1);
+        AnniversaryChangeBatch recent = read(from, (int) (upTo - from + 1));
+        for (AnniversaryChangeRecord record : recent.getRecords()) {
+            if (record.getOffset() > upTo) {
+                break;
+            }
+            segmentWriter.write(objectMapper.writeValueAsString(record));
+            segmentWriter.newLine();
+        }
+        segmentWriter.flush();
+    }
+}
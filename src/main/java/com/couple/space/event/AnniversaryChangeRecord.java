@@ -0,0 +1,41 @@
+package com.couple.space.event;
+
+import com.couple.space.entity.Anniversary;
+import lombok.Data;
+
+/**
+ * 纪念日变更记录
+ * 变更日志中的一条记录，带有全局递增的偏移量
+ */
+@Data
+public class AnniversaryChangeRecord {
+    /**
+     * 偏移量，从1开始连续递增
+     */
+    private long offset;
+
+    /**
+     * 变更类型
+     */
+    private AnniversaryChangedEvent.ChangeType type;
+
+    /**
+     * 纪念日ID
+     */
+    private Long id;
+
+    /**
+     * 纪念日所属用户ID
+     */
+    private Long userId;
+
+    /**
+     * 提交时间，毫秒时间戳
+     */
+    private long committedAt;
+
+    /**
+     * 变更后的纪念日，删除时为删除前的纪念日
+     */
+    private Anniversary anniversary;
+}
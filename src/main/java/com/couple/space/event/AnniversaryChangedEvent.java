@@ -0,0 +1,73 @@
+package com.couple.space.event;
+
+import com.couple.space.entity.Anniversary;
+import lombok.Getter;
+
+/**
+ * 纪念日变更事件
+ * 由服务层在写操作后发布，供内存索引等派生数据增量更新
+ */
+@Getter
+public class AnniversaryChangedEvent {
+    /**
+     * 变更类型
+     */
+    public enum ChangeType {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+
+    /**
+     * 变更类型
+     */
+    private final ChangeType type;
+
+    /**
+     * 纪念日ID
+     */
+    private final Long id;
+
+    /**
+     * 变更后的纪念日
+     * 删除时为删除前的纪念日，可能为null
+     */
+    private final Anniversary anniversary;
+
+    /**
+     * 是否由其他实例的写操作转发而来
+     * 转发来的事件只更新本地数据，不再通过失效总线发出
+     */
+    private final boolean remote;
+
+    public AnniversaryChangedEvent(ChangeType type, Long id, Anniversary anniversary) {
+        this(type, id, anniversary, false);
+    }
+
+    public AnniversaryChangedEvent(ChangeType type, Long id, Anniversary anniversary, boolean remote) {
+        this.type = type;
+        this.id = id;
+        this.anniversary = anniversary;
+        this.remote = remote;
+    }
+
+    public static AnniversaryChangedEvent inserted(Anniversary anniversary) {
+        return new AnniversaryChangedEvent(ChangeType.INSERT, anniversary.getId(), anniversary);
+    }
+
+    public static AnniversaryChangedEvent updated(Anniversary anniversary) {
+        return new AnniversaryChangedEvent(ChangeType.UPDATE, anniversary.getId(), anniversary);
+    }
+
+    public static AnniversaryChangedEvent deleted(Long id, Anniversary previous) {
+        return new AnniversaryChangedEvent(ChangeType.DELETE, id, previous);
+    }
+
+    /**
+     * 获取纪念日所属用户ID
+     * @return 用户ID，未知时为null
+     */
+    public Long getUserId() {
+        return anniversary == null ? null : anniversary.getUserId();
+    }
+}
@@ -0,0 +1,28 @@
+package com.couple.space.event;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * 时区日期变更事件
+ * 某个时区到达零点、缓存的"今天"切换到新的一天后发布
+ */
+@Getter
+public class ZoneDayChangedEvent {
+    /**
+     * 时区
+     */
+    private final ZoneId zone;
+
+    /**
+     * 该时区新的今天
+     */
+    private final LocalDate today;
+
+    public ZoneDayChangedEvent(ZoneId zone, LocalDate today) {
+        this.zone = zone;
+        this.today = today;
+    }
+}
@@ -0,0 +1,364 @@
+package com.couple.space.idempotency;
+
+import com.couple.space.common.BusinessException;
+import com.couple.space.common.ErrorCode;
+import com.couple.space.dto.ApiResponse;
+import com.couple.space.entity.IdempotencyRecord;
+import com.couple.space.job.ClusterJobScheduler;
+import com.couple.space.job.JobContext;
+import com.couple.space.mapper.IdempotencyRecordMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 幂等请求处理
+ * 客户端在写请求上携带Idempotency-Key请求头，同一个键的重试直接返回第一次的响应
+ * 实现：
+ * 1. 已完成的响应保存在有界的内存表中，按写入顺序淘汰，超过有效期后失效
+ * 2. 执行中的请求登记在future表中，并发的重复请求等待同一次执行的结果，不会重复写入
+ * 3. 可选把响应持久化到数据库，重启或请求落到其他实例时仍能命中，过期记录按用户ID分片由各实例分别清理：
+ *    执行前先插入执行中的占位行占用幂等键，插入失败说明其他实例已经执行或正在执行，
+ *    已完成时返回保存的响应，执行中时返回REQUEST_IN_PROGRESS；执行完成后把响应写入占位行
+ * 4. 同一个键用于不同的请求体时拒绝，避免客户端误用返回错误的结果
+ * 只保存状态码小于500的响应，服务端异常时删除占位行，允许客户端重试
+ */
+@Slf4j
+@Component
+public class IdempotencyService {
+    /**
+     * 幂等键的请求头
+     */
+    public static final String HEADER = "Idempotency-Key";
+
+    /**
+     * 标记重放响应的响应头
+     */
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    /**
+     * 幂等键的最大长度
+     */
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyRecordMapper recordMapper;
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final boolean databaseEnabled;
+    private final long waitTimeoutMillis;
+    private final long pendingTimeoutMillis;
+
+    /**
+     * 已完成的响应，按写入顺序排列，写入顺序也就是过期顺序
+     */
+    private final LinkedHashMap<String, Completed> completed;
+
+    /**
+     * 执行中的请求
+     */
+    private final Map<String, CompletableFuture<Completed>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 已完成的请求
+     */
+    private static final class Completed {
+        final String fingerprint;
+        final ResponseEntity<?> response;
+        final long expiresAt;
+
+        Completed(String fingerprint, ResponseEntity<?> response, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public IdempotencyService(IdempotencyRecordMapper recordMapper,
+                              ObjectMapper objectMapper,
+                              ClusterJobScheduler jobScheduler,
+                              @Value("${idempotency.ttl:86400000}") long ttlMillis,
+                              @Value("${idempotency.max-entries:10000}") int maxEntries,
+                              @Value("${idempotency.database-enabled:false}") boolean databaseEnabled,
+                              @Value("${idempotency.wait-timeout:10000}") long waitTimeoutMillis,
+                              @Value("${idempotency.pending-timeout:60000}") long pendingTimeoutMillis,
+                              @Value("${idempotency.purge-shards:4}") int purgeShards) {
+        this.recordMapper = recordMapper;
+        this.objectMapper = objectMapper;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.databaseEnabled = databaseEnabled;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.pendingTimeoutMillis = pendingTimeoutMillis;
+        this.completed = new LinkedHashMap<String, Completed>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Completed> eldest) {
+                return size() > IdempotencyService.this.maxEntries;
+            }
+        };
+        if (databaseEnabled) {
+            jobScheduler.register("idempotency-purge", 600000, purgeShards, this::purgeDatabase);
+        }
+    }
+
+    /**
+     * 以幂等方式执行写请求
+     * @param userId 当前用户ID
+     * @param key 幂等键，为空时直接执行
+     * @param request 请求体，用于计算摘要
+     * @param responseType 响应类型，从数据库恢复响应时使用
+     * @param action 实际的写操作
+     * @return 第一次执行的响应，或本次执行的响应
+     */
+    public <T> ResponseEntity<ApiResponse<T>> execute(Long userId, String key, Object request,
+                                                      TypeReference<ApiResponse<T>> responseType,
+                                                      Supplier<ResponseEntity<ApiResponse<T>>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.trim().isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST, "幂等键不能为空且长度不能超过" + MAX_KEY_LENGTH);
+        }
+        String scopedKey = userId + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        Completed hit = lookup(scopedKey);
+        if (hit != null) {
+            return replay(hit, fingerprint);
+        }
+
+        CompletableFuture<Completed> mine = new CompletableFuture<>();
+        CompletableFuture<Completed> running = inFlight.putIfAbsent(scopedKey, mine);
+        if (running != null) {
+            // 相同的请求正在执行，等待它的结果
+            return replay(await(running), fingerprint);
+        }
+        try {
+            // 登记之前可能刚好有一次执行完成
+            hit = lookup(scopedKey);
+            if (hit == null && databaseEnabled && !claimInDatabase(userId, key, fingerprint)) {
+                hit = loadFromDatabase(userId, key, fingerprint, responseType);
+            }
+            if (hit != null) {
+                mine.complete(hit);
+                return replay(hit, fingerprint);
+            }
+            ResponseEntity<ApiResponse<T>> response;
+            try {
+                response = action.get();
+            } catch (RuntimeException | Error e) {
+                if (databaseEnabled) {
+                    releaseInDatabase(userId, key);
+                }
+                throw e;
+            }
+            Completed result = new Completed(fingerprint, response, System.currentTimeMillis() + ttlMillis);
+            if (response.getStatusCodeValue() < 500) {
+                store(scopedKey, result);
+                if (databaseEnabled) {
+                    completeInDatabase(userId, key, result);
+                }
+            } else if (databaseEnabled) {
+                releaseInDatabase(userId, key);
+            }
+            mine.complete(result);
+            return response;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scopedKey, mine);
+        }
+    }
+
+    /**
+     * 清理内存中已过期的响应
+     */
+    @Scheduled(fixedDelay = 600000)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (completed) {
+            Iterator<Completed> iterator = completed.values().iterator();
+            while (iterator.hasNext() && iterator.next().expiresAt <= now) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 清理数据库中一个用户分片的过期记录
+     */
+    private void purgeDatabase(JobContext context) {
+        int deleted = context.fenced(() -> recordMapper.deleteExpired(LocalDateTime.now(),
+                context.getShardIndex(), context.getShardCount()));
+        if (deleted > 0) {
+            log.info("清理过期幂等记录 - 分片: {}/{}, 删除: {}", context.getShardIndex(), context.getShardCount(), deleted);
+        }
+    }
+
+    private Completed lookup(String scopedKey) {
+        synchronized (completed) {
+            Completed hit = completed.get(scopedKey);
+            if (hit != null && hit.expiresAt <= System.currentTimeMillis()) {
+                completed.remove(scopedKey);
+                return null;
+            }
+            return hit;
+        }
+    }
+
+    private void store(String scopedKey, Completed result) {
+        synchronized (completed) {
+            completed.put(scopedKey, result);
+        }
+    }
+
+    private Completed await(CompletableFuture<Completed> running) {
+        try {
+            return running.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new BusinessException(ErrorCode.REQUEST_IN_PROGRESS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.REQUEST_IN_PROGRESS);
+        } catch (ExecutionException e) {
+            // 第一次执行失败，重复请求得到同样的失败
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ResponseEntity<ApiResponse<T>> replay(Completed hit, String fingerprint) {
+        if (!hit.fingerprint.equals(fingerprint)) {
+            throw new BusinessException(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+        }
+        ApiResponse<T> body = (ApiResponse<T>) hit.response.getBody();
+        return ResponseEntity.status(hit.response.getStatusCode())
+                .header(REPLAYED_HEADER, "true")
+                .body(body);
+    }
+
+    /**
+     * 在数据库中插入执行中的占位行占用幂等键
+     * 数据库不可用时拒绝执行，否则其他实例可能重复执行同一个请求
+     * @return 占用成功时返回true，幂等键已被占用时返回false
+     */
+    private boolean claimInDatabase(Long userId, String key, String fingerprint) {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            // 过期但尚未清理的记录会使插入被忽略
+            recordMapper.deleteExpiredKey(userId, key, now);
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setUserId(userId);
+            record.setIdemKey(key);
+            record.setFingerprint(fingerprint);
+            record.setCreatedAt(now);
+            record.setExpiresAt(now.plusNanos(TimeUnit.MILLISECONDS.toNanos(pendingTimeoutMillis)));
+            return recordMapper.insert(record) > 0;
+        } catch (Exception e) {
+            log.warn("占用幂等键失败: {}", e.getMessage());
+            throw new BusinessException(ErrorCode.SERVICE_BUSY);
+        }
+    }
+
+    /**
+     * 读取已被占用的幂等键的记录
+     * 记录仍在执行中或已被删除时返回REQUEST_IN_PROGRESS，客户端稍后重试
+     */
+    private <T> Completed loadFromDatabase(Long userId, String key, String fingerprint,
+                                           TypeReference<ApiResponse<T>> responseType) {
+        IdempotencyRecord record;
+        try {
+            record = recordMapper.findByKey(userId, key, LocalDateTime.now());
+        } catch (Exception e) {
+            log.warn("读取幂等记录失败: {}", e.getMessage());
+            throw new BusinessException(ErrorCode.SERVICE_BUSY);
+        }
+        if (record != null && !record.getFingerprint().equals(fingerprint)) {
+            throw new BusinessException(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+        }
+        if (record == null || record.getStatus() == null) {
+            throw new BusinessException(ErrorCode.REQUEST_IN_PROGRESS);
+        }
+        try {
+            ApiResponse<T> body = objectMapper.readValue(record.getBody(), responseType);
+            long expiresAt = record.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            Completed hit = new Completed(record.getFingerprint(), ResponseEntity.status(record.getStatus()).body(body),
+                    expiresAt);
+            store(userId + ":" + key, hit);
+            return hit;
+        } catch (Exception e) {
+            log.warn("解析幂等记录失败: {}", e.getMessage());
+            throw new BusinessException(ErrorCode.SERVICE_BUSY);
+        }
+    }
+
+    /**
+     * 把响应写入执行中的占位行
+     */
+    private void completeInDatabase(Long userId, String key, Completed result) {
+        try {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setUserId(userId);
+            record.setIdemKey(key);
+            record.setStatus(result.response.getStatusCodeValue());
+            record.setBody(objectMapper.writeValueAsString(result.response.getBody()));
+            record.setExpiresAt(LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+            recordMapper.complete(record);
+        } catch (Exception e) {
+            // 内存中的记录仍然有效，占位行过期后其他实例可以重新执行
+            log.warn("保存幂等记录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 删除执行中的占位行，允许客户端重试
+     */
+    private void releaseInDatabase(Long userId, String key) {
+        try {
+            recordMapper.deletePending(userId, key);
+        } catch (Exception e) {
+            // 占位行过期后同样可以重试
+            log.warn("释放幂等键失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 计算请求体的SHA-256摘要
+     */
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("无法计算请求摘要", e);
+        }
+    }
+}
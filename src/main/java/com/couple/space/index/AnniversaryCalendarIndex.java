@@ -0,0 +1,350 @@
+package com.couple.space.index;
+
+import com.couple.space.calendar.LunarCalendar;
+import com.couple.space.entity.Anniversary;
+import com.couple.space.event.AnniversaryChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongConsumer;
+
+/**
+ * 纪念日日历索引
+ * 按"月-日"把纪念日ID归入366个日槽，用于回答"某天有哪些纪念日"
+ * 特点：
+ * 1. 每个日槽是一个有序的long[]，不保存完整实体，也不装箱
+ * 2. 读操作无锁，写操作对单个日槽做写时复制
+ * 3. 启动时从纪念日键表全量构建，之后由纪念日变更事件增量维护
+ * 4. 每年按农历重复的纪念日按农历"月-日"归入另外360个日槽，查询某天时先换算为农历再查表
+ * 5. 记录每个ID当前所在的日槽，修改或删除时只改动旧日槽，不扫描全部日槽
+ */
+@Slf4j
+@Component
+public class AnniversaryCalendarIndex {
+    /**
+     * 日槽数量，包含2月29日
+     */
+    public static final int DAY_SLOTS = 366;
+
+    private static final long[] EMPTY = new long[0];
+
+    /**
+     * 农历日槽数量，12个月每月30天
+     */
+    public static final int LUNAR_DAY_SLOTS = 12 * 30;
+
+    /**
+     * 2月29日所在的日槽
+     */
+    private static final int FEB_29_SLOT = slotOf(2, 29);
+
+    /**
+     * 每个日槽的有序ID数组
+     */
+    private volatile AtomicReferenceArray<long[]> slots = newSlots(DAY_SLOTS);
+
+    /**
+     * 每个农历日槽的有序ID数组
+     */
+    private volatile AtomicReferenceArray<long[]> lunarSlots = newSlots(LUNAR_DAY_SLOTS);
+
+    /**
+     * 每个ID当前所在的日槽，公历日槽记为下标，农历日槽记为-(下标+1)，只在this锁内访问
+     */
+    private Map<Long, Integer> slotById = new HashMap<>();
+
+    /**
+     * 全量构建期间到达的增量变更，构建完成后重放
+     */
+    private List<AnniversaryChangedEvent> pendingDuringRebuild;
+
+    /**
+     * 从键表全量重建索引
+     * @param keyTable 纪念日键表
+     */
+    public void rebuild(AnniversaryKeyTable keyTable) {
+        synchronized (this) {
+            pendingDuringRebuild = new ArrayList<>();
+        }
+        LongArrayBuilder[] builders = new LongArrayBuilder[DAY_SLOTS];
+        LongArrayBuilder[] lunarBuilders = new LongArrayBuilder[LUNAR_DAY_SLOTS];
+        Map<Long, Integer> locations = new HashMap<>();
+        int[] total = new int[1];
+        keyTable.forEachRow((id, userId, spaceId, epochDay, updatedDay, flags) -> {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            LongArrayBuilder[] target = builders;
+            int slot;
+            if (isLunarYearly(flags)) {
+                slot = lunarSlotOf(date);
+                if (slot < 0) {
+                    return;
+                }
+                target = lunarBuilders;
+            } else {
+                slot = slotOf(date);
+            }
+            if (target[slot] == null) {
+                target[slot] = new LongArrayBuilder();
+            }
+            target[slot].add(id);
+            locations.put(id, target == lunarBuilders ? -(slot + 1) : slot);
+            total[0]++;
+        });
+
+        AtomicReferenceArray<long[]> rebuilt = toSlots(builders);
+        AtomicReferenceArray<long[]> rebuiltLunar = toSlots(lunarBuilders);
+        synchronized (this) {
+            int previous = size();
+            slots = rebuilt;
+            lunarSlots = rebuiltLunar;
+            slotById = locations;
+            for (AnniversaryChangedEvent event : pendingDuringRebuild) {
+                apply(event);
+            }
+            pendingDuringRebuild = null;
+            log.info("纪念日日历索引构建完成，共 {} 条，替换旧索引 {} 条", total[0], previous);
+        }
+    }
+
+    /**
+     * 纪念日写操作提交后增量更新索引
+     * @param event 纪念日变更事件
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAnniversaryChanged(AnniversaryChangedEvent event) {
+        synchronized (this) {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(event);
+            }
+            apply(event);
+        }
+    }
+
+    /**
+     * 遍历指定公历月-日的所有纪念日ID，不产生装箱和中间集合
+     * 不包含按农历重复的纪念日
+     * @param monthDay 月-日
+     * @param consumer ID消费者
+     */
+    public void forEach(MonthDay monthDay, LongConsumer consumer) {
+        long[] ids = slots.get(slotOf(monthDay.getMonthValue(), monthDay.getDayOfMonth()));
+        for (long id : ids) {
+            consumer.accept(id);
+        }
+    }
+
+    /**
+     * 遍历某个具体日期当天的所有纪念日ID
+     * 非闰年的2月28日同时包含2月29日的纪念日
+     * 按农历重复的纪念日按当天的农历月-日查找：闰月不产生，小月的廿九同时包含三十的纪念日
+     * @param date 日期
+     * @param consumer ID消费者
+     */
+    public void forEachOn(LocalDate date, LongConsumer consumer) {
+        forEach(MonthDay.from(date), consumer);
+        if (isFeb28OfCommonYear(date)) {
+            for (long id : slots.get(FEB_29_SLOT)) {
+                consumer.accept(id);
+            }
+        }
+        LunarCalendar.LunarDate lunarDate = LunarCalendar.toLunar(date);
+        if (lunarDate == null || lunarDate.isLeapMonth()) {
+            return;
+        }
+        AtomicReferenceArray<long[]> current = lunarSlots;
+        for (long id : current.get(lunarSlotOf(lunarDate.getMonth(), lunarDate.getDay()))) {
+            consumer.accept(id);
+        }
+        if (lunarDate.getDay() == 29
+                && LunarCalendar.monthLength(lunarDate.getYear(), lunarDate.getMonth(), false) == 29) {
+            for (long id : current.get(lunarSlotOf(lunarDate.getMonth(), 30))) {
+                consumer.accept(id);
+            }
+        }
+    }
+
+    /**
+     * 获取指定月-日的纪念日ID副本
+     * @param monthDay 月-日
+     * @return 有序的ID数组
+     */
+    public long[] idsOf(MonthDay monthDay) {
+        long[] ids = slots.get(slotOf(monthDay.getMonthValue(), monthDay.getDayOfMonth()));
+        return ids.length == 0 ? EMPTY : ids.clone();
+    }
+
+    /**
+     * 获取指定月-日的纪念日数量
+     * @param monthDay 月-日
+     * @return 数量
+     */
+    public int count(MonthDay monthDay) {
+        return slots.get(slotOf(monthDay.getMonthValue(), monthDay.getDayOfMonth())).length;
+    }
+
+    /**
+     * 索引中的纪念日总数
+     * @return 总数
+     */
+    public int size() {
+        return countIn(slots) + countIn(lunarSlots);
+    }
+
+    /**
+     * 应用单个变更，调用方需持有this锁
+     */
+    private void apply(AnniversaryChangedEvent event) {
+        if (event.getId() == null) {
+            return;
+        }
+        long id = event.getId();
+        // 日期可能被修改，先从旧日槽中移除
+        Integer previous = slotById.remove(id);
+        if (previous != null) {
+            if (previous >= 0) {
+                remove(slots, previous, id);
+            } else {
+                remove(lunarSlots, -previous - 1, id);
+            }
+        }
+        Anniversary anniversary = event.getAnniversary();
+        if (event.getType() != AnniversaryChangedEvent.ChangeType.DELETE
+                && anniversary != null && anniversary.getDate() != null) {
+            if (!isLunarYearly(AnniversaryKeyTable.flagsOf(anniversary))) {
+                int slot = slotOf(anniversary.getDate());
+                insert(slots, slot, id);
+                slotById.put(id, slot);
+            } else {
+                int slot = lunarSlotOf(anniversary.getDate());
+                if (slot >= 0) {
+                    insert(lunarSlots, slot, id);
+                    slotById.put(id, -(slot + 1));
+                }
+            }
+        }
+    }
+
+    private static void insert(AtomicReferenceArray<long[]> slots, int slot, long id) {
+        long[] ids = slots.get(slot);
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos >= 0) {
+            return;
+        }
+        pos = -pos - 1;
+        long[] updated = new long[ids.length + 1];
+        System.arraycopy(ids, 0, updated, 0, pos);
+        updated[pos] = id;
+        System.arraycopy(ids, pos, updated, pos + 1, ids.length - pos);
+        slots.set(slot, updated);
+    }
+
+    private static void remove(AtomicReferenceArray<long[]> slots, int slot, long id) {
+        long[] ids = slots.get(slot);
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos < 0) {
+            return;
+        }
+        long[] updated = ids.length == 1 ? EMPTY : new long[ids.length - 1];
+        System.arraycopy(ids, 0, updated, 0, pos);
+        System.arraycopy(ids, pos + 1, updated, pos, ids.length - pos - 1);
+        slots.set(slot, updated);
+    }
+
+    /**
+     * 计算日期所在的日槽，按闰年的年内序号编号
+     * @param date 日期
+     * @return 日槽下标，0~365
+     */
+    public static int slotOf(LocalDate date) {
+        return slotOf(date.getMonthValue(), date.getDayOfMonth());
+    }
+
+    /**
+     * 计算月-日所在的日槽
+     * @param month 月
+     * @param day 日
+     * @return 日槽下标，0~365
+     */
+    public static int slotOf(int month, int day) {
+        return Month.of(month).firstDayOfYear(true) - 1 + day - 1;
+    }
+
+    /**
+     * 计算公历日期对应的农历日槽，闰月按同号的普通月
+     * @param date 公历日期
+     * @return 农历日槽下标，0~359，超出农历表范围时返回-1
+     */
+    public static int lunarSlotOf(LocalDate date) {
+        LunarCalendar.LunarDate lunarDate = LunarCalendar.toLunar(date);
+        return lunarDate == null ? -1 : lunarSlotOf(lunarDate.getMonth(), lunarDate.getDay());
+    }
+
+    private static int lunarSlotOf(int month, int day) {
+        return (month - 1) * 30 + day - 1;
+    }
+
+    private static boolean isLunarYearly(byte flags) {
+        return (flags & AnniversaryKeyTable.FLAG_LUNAR) != 0 && (flags & AnniversaryKeyTable.FLAG_YEARLY) != 0;
+    }
+
+    private static boolean isFeb28OfCommonYear(LocalDate date) {
+        return date.getMonthValue() == 2 && date.getDayOfMonth() == 28 && !date.isLeapYear();
+    }
+
+    private static int countIn(AtomicReferenceArray<long[]> array) {
+        int count = 0;
+        for (int slot = 0; slot < array.length(); slot++) {
+            count += array.get(slot).length;
+        }
+        return count;
+    }
+
+    private static AtomicReferenceArray<long[]> newSlots(int length) {
+        AtomicReferenceArray<long[]> array = new AtomicReferenceArray<>(length);
+        for (int slot = 0; slot < length; slot++) {
+            array.set(slot, EMPTY);
+        }
+        return array;
+    }
+
+    private static AtomicReferenceArray<long[]> toSlots(LongArrayBuilder[] builders) {
+        AtomicReferenceArray<long[]> array = newSlots(builders.length);
+        for (int slot = 0; slot < builders.length; slot++) {
+            if (builders[slot] != null) {
+                array.set(slot, builders[slot].toSortedArray());
+            }
+        }
+        return array;
+    }
+
+    /**
+     * 可增长的long数组，用于全量构建
+     */
+    private static final class LongArrayBuilder {
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = value;
+        }
+
+        long[] toSortedArray() {
+            long[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
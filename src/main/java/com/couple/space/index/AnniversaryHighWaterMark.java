@@ -0,0 +1,21 @@
+package com.couple.space.index;
+
+import lombok.Data;
+import java.time.LocalDate;
+
+/**
+ * 纪念日表的高水位
+ * 用于校验启动快照是否仍与数据库一致
+ */
+@Data
+public class AnniversaryHighWaterMark {
+    /**
+     * 最大纪念日ID
+     */
+    private Long maxId;
+
+    /**
+     * 最大更新日期
+     */
+    private LocalDate maxUpdatedAt;
+}
@@ -0,0 +1,162 @@
+package com.couple.space.index;
+
+import com.couple.space.cache.AnniversaryChangeRelay;
+import com.couple.space.cache.CacheInvalidationBus;
+import com.couple.space.mapper.AnniversaryMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 纪念日索引启动器
+ * 负责在启动时加载键表并构建日历索引，以及定期写入快照
+ * 启动流程：
+ * 1. 通过内存映射加载本地快照
+ * 2. 用数据库高水位校验快照，快照比数据库更新时丢弃
+ * 3. 增量追平快照之后新增或更新的行，新增和更新各是一次索引范围扫描
+ * 4. 快照之后的删除从失效日志中的纪念日删除记录得到，日志已不能覆盖快照写入之后的时间时回退为全量扫描
+ * 5. 从键表构建日历索引
+ */
+@Slf4j
+@Component
+public class AnniversaryIndexBootstrap {
+    /**
+     * 读取失效日志时在快照写入时间之前多读的时间，覆盖快照复制之后的删除和实例之间的时钟偏差
+     */
+    private static final long DELETE_LOG_MARGIN_MILLIS = 300000;
+
+    private final AnniversaryMapper anniversaryMapper;
+    private final CacheInvalidationBus invalidationBus;
+    private final AnniversaryKeyTable keyTable;
+    private final AnniversaryCalendarIndex calendarIndex;
+    private final AnniversarySnapshotStore snapshotStore;
+
+    /**
+     * 是否启用快照
+     */
+    private final boolean snapshotEnabled;
+
+    /**
+     * 键表是否已完成加载，加载完成前不写快照
+     */
+    private volatile boolean loaded;
+
+    public AnniversaryIndexBootstrap(
+        AnniversaryMapper anniversaryMapper,
+        CacheInvalidationBus invalidationBus,
+        AnniversaryKeyTable keyTable,
+        AnniversaryCalendarIndex calendarIndex,
+        AnniversarySnapshotStore snapshotStore,
+        @Value("${anniversary.snapshot.enabled:true}") boolean snapshotEnabled
+    ) {
+        this.anniversaryMapper = anniversaryMapper;
+        this.invalidationBus = invalidationBus;
+        this.keyTable = keyTable;
+        this.calendarIndex = calendarIndex;
+        this.snapshotStore = snapshotStore;
+        this.snapshotEnabled = snapshotEnabled;
+    }
+
+    /**
+     * 应用启动完成后加载键表并构建索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            load();
+            calendarIndex.rebuild(keyTable);
+        } catch (Exception e) {
+            log.warn("纪念日索引加载失败，索引暂为空: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 加载键表，优先使用快照
+     */
+    public void load() {
+        long start = System.currentTimeMillis();
+        keyTable.beginLoad();
+        try {
+            boolean fromSnapshot = snapshotEnabled && loadFromSnapshot();
+            if (!fromSnapshot) {
+                keyTable.beginLoad();
+                anniversaryMapper.scanCalendarKeys(context -> keyTable.upsert(context.getResultObject()));
+            }
+            keyTable.endLoad();
+            loaded = true;
+            log.info("纪念日键表加载完成，来源: {}，共 {} 条，耗时 {} ms",
+                fromSnapshot ? "快照" : "全量扫描", keyTable.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            keyTable.abortLoad();
+            throw e;
+        }
+    }
+
+    /**
+     * 从快照加载并追平到数据库当前状态
+     * @return 是否成功，失败时调用方回退为全量扫描
+     */
+    private boolean loadFromSnapshot() {
+        AnniversarySnapshotStore.Snapshot snapshot = snapshotStore.load(keyTable);
+        if (snapshot == null) {
+            return false;
+        }
+        AnniversaryHighWaterMark mark = anniversaryMapper.selectHighWaterMark();
+        long dbMaxId = mark == null || mark.getMaxId() == null ? 0L : mark.getMaxId();
+        if (snapshot.getMaxId() > dbMaxId) {
+            log.warn("纪念日快照最大ID {} 超过数据库最大ID {}，快照已失效", snapshot.getMaxId(), dbMaxId);
+            return false;
+        }
+
+        // 追平只能发现新增和更新，期间的删除从失效日志得到
+        List<String> changes = invalidationBus.keysSince(AnniversaryChangeRelay.CACHE_NAME,
+                snapshot.getWrittenAt() - DELETE_LOG_MARGIN_MILLIS);
+        if (changes == null) {
+            log.info("失效日志已不能覆盖纪念日快照写入之后的删除，回退为全量扫描");
+            return false;
+        }
+
+        // 追平快照之后新增或更新的行
+        LocalDate updatedSince = LocalDate.ofEpochDay(snapshot.getMaxUpdatedDay());
+        int[] caughtUp = new int[1];
+        anniversaryMapper.scanCalendarKeysSince(snapshot.getMaxId(), updatedSince, context -> {
+            keyTable.upsert(context.getResultObject());
+            caughtUp[0]++;
+        });
+
+        int deleted = 0;
+        for (String key : changes) {
+            Long id = AnniversaryChangeRelay.deletedId(key);
+            if (id != null) {
+                keyTable.remove(id);
+                deleted++;
+            }
+        }
+        log.info("纪念日快照校验通过，快照 {} 条，追平 {} 条，删除 {} 条", snapshot.getRowCount(), caughtUp[0], deleted);
+        return true;
+    }
+
+    /**
+     * 定期写入快照
+     */
+    @Scheduled(initialDelayString = "${anniversary.snapshot.interval:600000}",
+               fixedDelayString = "${anniversary.snapshot.interval:600000}")
+    public void writeSnapshot() {
+        if (!snapshotEnabled || !loaded) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            int rows = snapshotStore.write(keyTable);
+            log.info("纪念日快照写入完成，共 {} 条，耗时 {} ms", rows, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("纪念日快照写入失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.couple.space.index;
+
+import com.couple.space.entity.Anniversary;
+import com.couple.space.event.AnniversaryChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 纪念日键表
+ * 以列式数组保存所有纪念日的ID、用户ID、空间ID、日期、更新日期和标志位
+ * 是日历索引和启动快照的数据来源，不保存名称、描述等大字段
+ * 主要功能：
+ * 1. 按ID增删改，ID到行号使用开放寻址的原始类型哈希表
+ * 2. 按行遍历，供快照写入和索引构建使用
+ * 3. 由纪念日变更事件增量维护
+ */
+@Component
+public class AnniversaryKeyTable {
+    /**
+     * 是否每年重复
+     */
+    public static final byte FLAG_YEARLY = 1;
+
+    /**
+     * 是否重要纪念日
+     */
+    public static final byte FLAG_IMPORTANT = 1 << 1;
+
+    /**
+     * 是否提醒
+     */
+    public static final byte FLAG_REMIND = 1 << 2;
+
+    /**
+     * 是否按农历重复
+     */
+    public static final byte FLAG_LUNAR = 1 << 3;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] userIds = new long[INITIAL_CAPACITY];
+    private long[] spaceIds = new long[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private int[] updatedDays = new int[INITIAL_CAPACITY];
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * ID到行号的哈希表，槽中保存"行号+1"，0表示空槽
+     */
+    private long[] hashKeys = new long[INITIAL_CAPACITY * 2];
+    private int[] hashRows = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * 全量加载期间到达的增量变更，加载完成后重放
+     */
+    private List<AnniversaryChangedEvent> pendingDuringLoad;
+
+    /**
+     * 行访问器，遍历时逐行回调
+     */
+    @FunctionalInterface
+    public interface RowVisitor {
+        void visit(long id, long userId, long spaceId, int epochDay, int updatedDay, byte flags);
+    }
+
+    /**
+     * 纪念日写操作提交后增量更新键表
+     * @param event 纪念日变更事件
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onAnniversaryChanged(AnniversaryChangedEvent event) {
+        if (pendingDuringLoad != null) {
+            pendingDuringLoad.add(event);
+        }
+        apply(event);
+    }
+
+    /**
+     * 开始全量加载：清空键表，并暂存加载期间的增量变更
+     * 重复调用时保留已暂存的变更
+     */
+    public synchronized void beginLoad() {
+        clear();
+        if (pendingDuringLoad == null) {
+            pendingDuringLoad = new ArrayList<>();
+        }
+    }
+
+    /**
+     * 结束全量加载：重放加载期间的增量变更
+     */
+    public synchronized void endLoad() {
+        if (pendingDuringLoad == null) {
+            return;
+        }
+        List<AnniversaryChangedEvent> pending = pendingDuringLoad;
+        pendingDuringLoad = null;
+        for (AnniversaryChangedEvent event : pending) {
+            apply(event);
+        }
+    }
+
+    /**
+     * 放弃本次全量加载
+     */
+    public synchronized void abortLoad() {
+        pendingDuringLoad = null;
+        clear();
+    }
+
+    /**
+     * 插入或更新一行
+     * @param anniversary 纪念日，至少包含ID和日期
+     */
+    public synchronized void upsert(Anniversary anniversary) {
+        if (anniversary.getId() == null || anniversary.getDate() == null) {
+            return;
+        }
+        LocalDate updatedAt = anniversary.getUpdatedAt();
+        upsert(anniversary.getId(),
+                anniversary.getUserId() == null ? 0L : anniversary.getUserId(),
+                anniversary.getSpaceId() == null ? 0L : anniversary.getSpaceId(),
+                (int) anniversary.getDate().toEpochDay(),
+                updatedAt == null ? 0 : (int) updatedAt.toEpochDay(),
+                flagsOf(anniversary));
+    }
+
+    /**
+     * 插入或更新一行
+     */
+    public synchronized void upsert(long id, long userId, long spaceId, int epochDay, int updatedDay, byte rowFlags) {
+        int row = rowOf(id);
+        if (row < 0) {
+            ensureCapacity(size + 1);
+            row = size++;
+            ids[row] = id;
+            hashPut(id, row);
+        }
+        userIds[row] = userId;
+        spaceIds[row] = spaceId;
+        epochDays[row] = epochDay;
+        updatedDays[row] = updatedDay;
+        flags[row] = rowFlags;
+    }
+
+    /**
+     * 删除一行，用最后一行填补空位
+     * @param id 纪念日ID
+     */
+    public synchronized void remove(long id) {
+        int row = rowOf(id);
+        if (row < 0) {
+            return;
+        }
+        hashRemove(id);
+        int last = --size;
+        if (row != last) {
+            ids[row] = ids[last];
+            userIds[row] = userIds[last];
+            spaceIds[row] = spaceIds[last];
+            epochDays[row] = epochDays[last];
+            updatedDays[row] = updatedDays[last];
+            flags[row] = flags[last];
+            hashPut(ids[row], row);
+        }
+    }
+
+    /**
+     * 逐行遍历键表
+     * @param visitor 行访问器
+     */
+    public synchronized void forEachRow(RowVisitor visitor) {
+        for (int row = 0; row < size; row++) {
+            visitor.visit(ids[row], userIds[row], spaceIds[row], epochDays[row], updatedDays[row], flags[row]);
+        }
+    }
+
+    /**
+     * 键表中的行数
+     * @return 行数
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 计算纪念日的标志位
+     * @param anniversary 纪念日
+     * @return 标志位
+     */
+    public static byte flagsOf(Anniversary anniversary) {
+        byte result = 0;
+        if (Boolean.TRUE.equals(anniversary.getIsYearly())) {
+            result |= FLAG_YEARLY;
+        }
+        if (Boolean.TRUE.equals(anniversary.getIsImportant())) {
+            result |= FLAG_IMPORTANT;
+        }
+        if (Boolean.TRUE.equals(anniversary.getRemind())) {
+            result |= FLAG_REMIND;
+        }
+        if (Boolean.TRUE.equals(anniversary.getIsLunar())) {
+            result |= FLAG_LUNAR;
+        }
+        return result;
+    }
+
+    private void apply(AnniversaryChangedEvent event) {
+        if (event.getId() == null) {
+            return;
+        }
+        if (event.getType() == AnniversaryChangedEvent.ChangeType.DELETE || event.getAnniversary() == null) {
+            remove(event.getId());
+        } else {
+            upsert(event.getAnniversary());
+        }
+    }
+
+    private void clear() {
+        size = 0;
+        Arrays.fill(hashRows, 0);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length << 1);
+        ids = Arrays.copyOf(ids, newCapacity);
+        userIds = Arrays.copyOf(userIds, newCapacity);
+        spaceIds = Arrays.copyOf(spaceIds, newCapacity);
+        epochDays = Arrays.copyOf(epochDays, newCapacity);
+        updatedDays = Arrays.copyOf(updatedDays, newCapacity);
+        flags = Arrays.copyOf(flags, newCapacity);
+        rehash(newCapacity * 2);
+    }
+
+    private int rowOf(long id) {
+        int mask = hashKeys.length - 1;
+        for (int slot = mix(id) & mask; ; slot = (slot + 1) & mask) {
+            if (hashRows[slot] == 0) {
+                return -1;
+            }
+            if (hashKeys[slot] == id) {
+                return hashRows[slot] - 1;
+            }
+        }
+    }
+
+    private void hashPut(long id, int row) {
+        int mask = hashKeys.length - 1;
+        int slot = mix(id) & mask;
+        while (hashRows[slot] != 0 && hashKeys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        hashKeys[slot] = id;
+        hashRows[slot] = row + 1;
+    }
+
+    /**
+     * 删除哈希槽，并把后续冲突链上的元素前移，保持线性探测的正确性
+     */
+    private void hashRemove(long id) {
+        int mask = hashKeys.length - 1;
+        int slot = mix(id) & mask;
+        while (hashKeys[slot] != id || hashRows[slot] == 0) {
+            slot = (slot + 1) & mask;
+        }
+        int gap = slot;
+        for (int next = (gap + 1) & mask; hashRows[next] != 0; next = (next + 1) & mask) {
+            int home = mix(hashKeys[next]) & mask;
+            boolean movable = gap <= next ? (home <= gap || home > next) : (home <= gap && home > next);
+            if (movable) {
+                hashKeys[gap] = hashKeys[next];
+                hashRows[gap] = hashRows[next];
+                gap = next;
+            }
+        }
+        hashRows[gap] = 0;
+    }
+
+    private void rehash(int minSlots) {
+        int slots = Integer.highestOneBit(minSlots - 1) << 1;
+        hashKeys = new long[slots];
+        hashRows = new int[slots];
+        for (int row = 0; row < size; row++) {
+            hashPut(ids[row], row);
+        }
+    }
+
+    private static int mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,375 @@
+package com.couple.space.index;
+
+import com.couple.space.dto.AnniversarySearchHitDTO;
+import com.couple.space.entity.Anniversary;
+import com.couple.space.event.AnniversaryChangeBatch;
+import com.couple.space.event.AnniversaryChangeLog;
+import com.couple.space.event.AnniversaryChangeRecord;
+import com.couple.space.event.AnniversaryChangedEvent;
+import com.couple.space.mapper.AnniversaryMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 纪念日全文搜索索引
+ * 对名称和描述建立内存倒排索引，按情侣空间分区，每个空间的词典独立
+ * 主要功能：
+ * 1. 中日韩文本按单字和二元组分词，字母数字按词分词
+ * 2. 查询的最后一个词按前缀匹配，支持输入联想
+ * 3. 启动时全量构建，之后通过订阅纪念日变更日志增量更新
+ */
+@Slf4j
+@Component
+public class AnniversarySearchIndex {
+    /**
+     * 前缀匹配最多展开的词项数量
+     */
+    private static final int MAX_PREFIX_EXPANSION = 64;
+
+    private static final long[] EMPTY = new long[0];
+
+    private final AnniversaryMapper anniversaryMapper;
+    private final AnniversaryChangeLog changeLog;
+
+    /**
+     * 空间ID到该空间倒排表的映射
+     */
+    private final Map<Long, NavigableMap<String, long[]>> scopes = new ConcurrentHashMap<>();
+
+    /**
+     * 纪念日ID到已索引文档的映射，用于删除旧词项和渲染结果
+     */
+    private final Map<Long, IndexedDoc> docs = new ConcurrentHashMap<>();
+
+    private volatile AnniversaryChangeLog.Subscription subscription;
+
+    /**
+     * 变更日志已被覆盖，需要全量重建
+     */
+    private volatile boolean rebuildRequired;
+
+    public AnniversarySearchIndex(AnniversaryMapper anniversaryMapper, AnniversaryChangeLog changeLog) {
+        this.anniversaryMapper = anniversaryMapper;
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * 已索引的文档
+     */
+    private static final class IndexedDoc {
+        final long id;
+        final long scopeId;
+        final String name;
+        final LocalDate date;
+        final String[] nameTerms;
+        final String[] descriptionTerms;
+
+        IndexedDoc(Anniversary anniversary, long scopeId) {
+            this.id = anniversary.getId();
+            this.scopeId = scopeId;
+            this.name = anniversary.getName();
+            this.date = anniversary.getDate();
+            this.nameTerms = distinctSorted(SearchTokenizer.tokenize(anniversary.getName()));
+            this.descriptionTerms = distinctSorted(SearchTokenizer.tokenize(anniversary.getDescription()));
+        }
+    }
+
+    /**
+     * 应用启动完成后全量构建索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            rebuildRequired = true;
+            log.warn("纪念日搜索索引构建失败，稍后重试: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 变更日志被覆盖或启动构建失败时，定期重试全量构建
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void rebuildIfRequired() {
+        if (rebuildRequired) {
+            onApplicationReady();
+        }
+    }
+
+    /**
+     * 全量重建索引
+     * 先记录变更日志的当前偏移量再扫描数据库，扫描期间的变更随后从该偏移量重放
+     */
+    public void rebuild() {
+        rebuildRequired = false;
+        AnniversaryChangeLog.Subscription previous = subscription;
+        if (previous != null) {
+            previous.cancel();
+        }
+        long fromOffset = changeLog.headOffset() + 1;
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            scopes.clear();
+            docs.clear();
+        }
+        int[] count = new int[1];
+        anniversaryMapper.scanSearchFields(context -> {
+            index(context.getResultObject());
+            count[0]++;
+        });
+        subscription = changeLog.subscribe("anniversary-search-index", fromOffset, 256, this::onChanges);
+        log.info("纪念日搜索索引构建完成，共 {} 条，耗时 {} ms", count[0], System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 应用一批纪念日变更
+     * @param batch 变更批次
+     */
+    private void onChanges(AnniversaryChangeBatch batch) {
+        if (batch.isTruncated()) {
+            log.warn("纪念日搜索索引错过了部分变更，将全量重建");
+            rebuildRequired = true;
+        }
+        for (AnniversaryChangeRecord record : batch.getRecords()) {
+            if (record.getType() == AnniversaryChangedEvent.ChangeType.DELETE) {
+                remove(record.getId());
+            } else if (record.getAnniversary() != null) {
+                index(record.getAnniversary());
+            }
+        }
+    }
+
+    /**
+     * 索引或重新索引一条纪念日
+     * @param anniversary 纪念日
+     */
+    public synchronized void index(Anniversary anniversary) {
+        if (anniversary.getId() == null) {
+            return;
+        }
+        IndexedDoc previous = docs.get(anniversary.getId());
+        Long scopeId = anniversary.getSpaceId();
+        if (scopeId == null) {
+            // 更新事件可能不带空间ID，沿用原来的分区
+            if (previous == null) {
+                return;
+            }
+            scopeId = previous.scopeId;
+        }
+        if (previous != null) {
+            remove(previous.id);
+        }
+        IndexedDoc doc = new IndexedDoc(anniversary, scopeId);
+        NavigableMap<String, long[]> postings = scopes.computeIfAbsent(scopeId, key -> new ConcurrentSkipListMap<>());
+        for (String term : union(doc.nameTerms, doc.descriptionTerms)) {
+            postings.put(term, insert(postings.getOrDefault(term, EMPTY), doc.id));
+        }
+        docs.put(doc.id, doc);
+    }
+
+    /**
+     * 从索引中移除一条纪念日
+     * @param id 纪念日ID
+     */
+    public synchronized void remove(Long id) {
+        IndexedDoc doc = id == null ? null : docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        NavigableMap<String, long[]> postings = scopes.get(doc.scopeId);
+        if (postings == null) {
+            return;
+        }
+        for (String term : union(doc.nameTerms, doc.descriptionTerms)) {
+            long[] ids = postings.get(term);
+            if (ids == null) {
+                continue;
+            }
+            long[] updated = delete(ids, doc.id);
+            if (updated.length == 0) {
+                postings.remove(term);
+            } else {
+                postings.put(term, updated);
+            }
+        }
+        if (postings.isEmpty()) {
+            scopes.remove(doc.scopeId);
+        }
+    }
+
+    /**
+     * 在指定空间的纪念日中搜索
+     * 所有查询词都需命中；查询末尾没有空白时，最后一个词按前缀匹配
+     * @param spaceId 空间ID
+     * @param query 查询文本
+     * @param limit 最多返回的条数
+     * @return 按得分降序排列的搜索结果
+     */
+    public List<AnniversarySearchHitDTO> search(Long spaceId, String query, int limit) {
+        NavigableMap<String, long[]> postings = spaceId == null ? null : scopes.get(spaceId);
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(SearchTokenizer.tokenizeQuery(query)));
+        if (postings == null || terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        boolean lastIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        long[] matched = null;
+        for (int i = 0; i < terms.size(); i++) {
+            boolean prefix = lastIsPrefix && i == terms.size() - 1;
+            long[] ids = prefix ? prefixPostings(postings, terms.get(i)) : postings.getOrDefault(terms.get(i), EMPTY);
+            matched = matched == null ? ids : intersect(matched, ids);
+            if (matched.length == 0) {
+                return Collections.emptyList();
+            }
+        }
+
+        List<AnniversarySearchHitDTO> hits = new ArrayList<>(matched.length);
+        for (long id : matched) {
+            IndexedDoc doc = docs.get(id);
+            if (doc == null || doc.scopeId != spaceId) {
+                continue;
+            }
+            AnniversarySearchHitDTO hit = new AnniversarySearchHitDTO();
+            hit.setId(doc.id);
+            hit.setName(doc.name);
+            hit.setDate(doc.date);
+            hit.setScore(score(doc, terms, lastIsPrefix));
+            hits.add(hit);
+        }
+        hits.sort((a, b) -> a.getScore().equals(b.getScore())
+                ? Long.compare(b.getId(), a.getId())
+                : Integer.compare(b.getScore(), a.getScore()));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    /**
+     * 已索引的纪念日数量
+     * @return 数量
+     */
+    public int size() {
+        return docs.size();
+    }
+
+    /**
+     * 得分：每个查询词命中名称记2分，只命中描述记1分
+     */
+    private static int score(IndexedDoc doc, List<String> terms, boolean lastIsPrefix) {
+        int score = 0;
+        for (int i = 0; i < terms.size(); i++) {
+            boolean prefix = lastIsPrefix && i == terms.size() - 1;
+            score += contains(doc.nameTerms, terms.get(i), prefix) ? 2 : 1;
+        }
+        return score;
+    }
+
+    private static boolean contains(String[] sortedTerms, String term, boolean prefix) {
+        int pos = Arrays.binarySearch(sortedTerms, term);
+        if (pos >= 0) {
+            return true;
+        }
+        int next = -pos - 1;
+        return prefix && next < sortedTerms.length && sortedTerms[next].startsWith(term);
+    }
+
+    private static long[] prefixPostings(NavigableMap<String, long[]> postings, String prefix) {
+        long[] result = EMPTY;
+        int expanded = 0;
+        for (Map.Entry<String, long[]> entry : postings.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix) || expanded++ >= MAX_PREFIX_EXPANSION) {
+                break;
+            }
+            result = merge(result, entry.getValue());
+        }
+        return result;
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static long[] merge(long[] a, long[] b) {
+        long[] result = new long[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length || j < b.length) {
+            long next;
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            result[n++] = next;
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static long[] insert(long[] ids, long id) {
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos >= 0) {
+            return ids;
+        }
+        pos = -pos - 1;
+        long[] updated = new long[ids.length + 1];
+        System.arraycopy(ids, 0, updated, 0, pos);
+        updated[pos] = id;
+        System.arraycopy(ids, pos, updated, pos + 1, ids.length - pos);
+        return updated;
+    }
+
+    private static long[] delete(long[] ids, long id) {
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos < 0) {
+            return ids;
+        }
+        long[] updated = new long[ids.length - 1];
+        System.arraycopy(ids, 0, updated, 0, pos);
+        System.arraycopy(ids, pos + 1, updated, pos, ids.length - pos - 1);
+        return updated;
+    }
+
+    private static Set<String> union(String[] a, String[] b) {
+        Set<String> result = new TreeSet<>(Arrays.asList(a));
+        result.addAll(Arrays.asList(b));
+        return result;
+    }
+
+    private static String[] distinctSorted(List<String> terms) {
+        return new TreeSet<>(terms).toArray(new String[0]);
+    }
+}
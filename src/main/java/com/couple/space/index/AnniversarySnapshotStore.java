@@ -0,0 +1,253 @@
+package com.couple.space.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 纪念日键表快照存储
+ * 把键表以列式二进制格式写入本地磁盘，启动时通过MappedByteBuffer加载
+ * 文件格式（小端序）：
+ * 1. 头部：魔数、格式版本、行数、最大ID、最大更新日期、写入时间
+ * 2. 数据：id列、user_id列、space_id列、日期列、更新日期列、标志位列
+ * 3. 尾部：数据部分的CRC32校验值
+ */
+@Slf4j
+@Component
+public class AnniversarySnapshotStore {
+    /**
+     * 魔数："ANNV"
+     */
+    private static final int MAGIC = 0x414E4E56;
+
+    /**
+     * 快照格式版本，格式变化时递增，旧版本快照直接丢弃
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * 头部长度：魔数、版本、行数各4字节，最大ID、写入时间各8字节，最大更新日期4字节
+     */
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 4 + 8;
+
+    /**
+     * 每行占用的字节数
+     */
+    private static final int ROW_BYTES = 8 + 8 + 8 + 4 + 4 + 1;
+
+    private final Path path;
+
+    public AnniversarySnapshotStore(@Value("${anniversary.snapshot.path:data/anniversary-keys.snap}") String path) {
+        this.path = Paths.get(path);
+    }
+
+    /**
+     * 已加载的快照
+     */
+    public static class Snapshot {
+        private final int rowCount;
+        private final long maxId;
+        private final int maxUpdatedDay;
+        private final long writtenAt;
+
+        Snapshot(int rowCount, long maxId, int maxUpdatedDay, long writtenAt) {
+            this.rowCount = rowCount;
+            this.maxId = maxId;
+            this.maxUpdatedDay = maxUpdatedDay;
+            this.writtenAt = writtenAt;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public long getMaxId() {
+            return maxId;
+        }
+
+        public int getMaxUpdatedDay() {
+            return maxUpdatedDay;
+        }
+
+        public long getWrittenAt() {
+            return writtenAt;
+        }
+    }
+
+    /**
+     * 把键表写入快照文件
+     * 先写临时文件，再原子替换，避免进程中途退出留下损坏的快照
+     * @param table 键表
+     * @return 写入的行数
+     * @throws IOException 写入失败
+     */
+    public int write(AnniversaryKeyTable table) throws IOException {
+        // 在键表锁内复制出列数据，避免持锁做磁盘IO
+        int[] count = new int[1];
+        long[][] longColumns = new long[3][];
+        int[][] intColumns = new int[2][];
+        byte[][] flagColumn = new byte[1][];
+        long[] maxId = new long[1];
+        int[] maxUpdatedDay = new int[1];
+        synchronized (table) {
+            int rows = table.size();
+            longColumns[0] = new long[rows];
+            longColumns[1] = new long[rows];
+            longColumns[2] = new long[rows];
+            intColumns[0] = new int[rows];
+            intColumns[1] = new int[rows];
+            flagColumn[0] = new byte[rows];
+            table.forEachRow((id, userId, spaceId, epochDay, updatedDay, flags) -> {
+                int row = count[0]++;
+                longColumns[0][row] = id;
+                longColumns[1][row] = userId;
+                longColumns[2][row] = spaceId;
+                intColumns[0][row] = epochDay;
+                intColumns[1][row] = updatedDay;
+                flagColumn[0][row] = flags;
+                maxId[0] = Math.max(maxId[0], id);
+                maxUpdatedDay[0] = Math.max(maxUpdatedDay[0], updatedDay);
+            });
+        }
+
+        int rows = count[0];
+        ByteBuffer body = ByteBuffer.allocate(rows * ROW_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        body.asLongBuffer().put(longColumns[0]);
+        body.position(body.position() + rows * 8);
+        body.asLongBuffer().put(longColumns[1]);
+        body.position(body.position() + rows * 8);
+        body.asLongBuffer().put(longColumns[2]);
+        body.position(body.position() + rows * 8);
+        body.asIntBuffer().put(intColumns[0]);
+        body.position(body.position() + rows * 4);
+        body.asIntBuffer().put(intColumns[1]);
+        body.position(body.position() + rows * 4);
+        body.put(flagColumn[0]);
+        body.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), 0, body.limit());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putInt(rows)
+                .putLong(maxId[0])
+                .putInt(maxUpdatedDay[0])
+                .putLong(System.currentTimeMillis());
+        header.flip();
+
+        ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        trailer.putLong(crc.getValue());
+        trailer.flip();
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer[] buffers = {header, body, trailer};
+            while (trailer.hasRemaining()) {
+                channel.write(buffers);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows;
+    }
+
+    /**
+     * 通过内存映射加载快照到键表
+     * 文件不存在、版本不符或校验失败时返回null，键表保持不变
+     * @param table 键表，调用方需已调用beginLoad
+     * @return 快照信息，加载失败返回null
+     */
+    public Snapshot load(AnniversaryKeyTable table) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES + 8) {
+                log.warn("纪念日快照文件过小，忽略: {}", path);
+                return null;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.getInt() != MAGIC || mapped.getInt() != FORMAT_VERSION) {
+                log.warn("纪念日快照格式不匹配，忽略: {}", path);
+                return null;
+            }
+            int rows = mapped.getInt();
+            long maxId = mapped.getLong();
+            int maxUpdatedDay = mapped.getInt();
+            long writtenAt = mapped.getLong();
+            if (rows < 0 || fileSize != HEADER_BYTES + (long) rows * ROW_BYTES + 8) {
+                log.warn("纪念日快照长度与行数不符，忽略: {}", path);
+                return null;
+            }
+
+            ByteBuffer body = mapped.slice().order(ByteOrder.LITTLE_ENDIAN);
+            body.limit(rows * ROW_BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            mapped.position(HEADER_BYTES + rows * ROW_BYTES);
+            if (mapped.getLong() != crc.getValue()) {
+                log.warn("纪念日快照校验失败，忽略: {}", path);
+                return null;
+            }
+
+            int idOffset = 0;
+            int userIdOffset = idOffset + rows * 8;
+            int spaceIdOffset = userIdOffset + rows * 8;
+            int dayOffset = spaceIdOffset + rows * 8;
+            int updatedOffset = dayOffset + rows * 4;
+            int flagOffset = updatedOffset + rows * 4;
+            for (int row = 0; row < rows; row++) {
+                table.upsert(body.getLong(idOffset + row * 8),
+                        body.getLong(userIdOffset + row * 8),
+                        body.getLong(spaceIdOffset + row * 8),
+                        body.getInt(dayOffset + row * 4),
+                        body.getInt(updatedOffset + row * 4),
+                        body.get(flagOffset + row));
+            }
+            return new Snapshot(rows, maxId, maxUpdatedDay, writtenAt);
+        } catch (IOException | RuntimeException e) {
+            log.warn("纪念日快照读取失败，忽略: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 删除快照文件
+     */
+    public void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除纪念日快照失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 快照文件路径
+     * @return 路径
+     */
+    public Path getPath() {
+        return path;
+    }
+}
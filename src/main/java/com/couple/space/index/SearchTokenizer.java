@@ -0,0 +1,118 @@
+package com.couple.space.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 搜索分词器
+ * 规则：
+ * 1. 先做NFKC规范化并转小写，全角字母数字与半角等价
+ * 2. 连续的中日韩字符切分为单字和相邻二元组，例如"相识纪念日"切分为
+ *    相、识、纪、念、日、相识、识纪、纪念、念日
+ * 3. 连续的字母数字作为一个词
+ * 4. 其他字符视为分隔符
+ */
+public final class SearchTokenizer {
+    /**
+     * 单个词的最大长度，过长的部分截断
+     */
+    private static final int MAX_WORD_LENGTH = 32;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 对文档文本分词，中日韩字符同时产生单字和二元组
+     * @param text 文本，可以为null
+     * @return 词项列表，可能包含重复
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        forEachRun(text, (run, cjk) -> {
+            if (!cjk) {
+                terms.add(run);
+                return;
+            }
+            int[] codePoints = run.codePoints().toArray();
+            for (int i = 0; i < codePoints.length; i++) {
+                terms.add(new String(codePoints, i, 1));
+                if (i + 1 < codePoints.length) {
+                    terms.add(new String(codePoints, i, 2));
+                }
+            }
+        });
+        return terms;
+    }
+
+    /**
+     * 对查询文本分词，中日韩字符只产生二元组，单个字符时产生单字
+     * @param query 查询文本
+     * @return 词项列表，顺序与原文一致
+     */
+    public static List<String> tokenizeQuery(String query) {
+        List<String> terms = new ArrayList<>();
+        forEachRun(query, (run, cjk) -> {
+            if (!cjk) {
+                terms.add(run);
+                return;
+            }
+            int[] codePoints = run.codePoints().toArray();
+            if (codePoints.length == 1) {
+                terms.add(run);
+                return;
+            }
+            for (int i = 0; i + 1 < codePoints.length; i++) {
+                terms.add(new String(codePoints, i, 2));
+            }
+        });
+        return terms;
+    }
+
+    @FunctionalInterface
+    private interface RunConsumer {
+        void accept(String run, boolean cjk);
+    }
+
+    private static void forEachRun(String text, RunConsumer consumer) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder run = new StringBuilder();
+        boolean runIsCjk = false;
+        int i = 0;
+        while (i < normalized.length()) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            boolean cjk = isCjk(codePoint);
+            boolean word = !cjk && Character.isLetterOrDigit(codePoint);
+            if ((!cjk && !word) || (run.length() > 0 && cjk != runIsCjk)) {
+                flush(run, runIsCjk, consumer);
+            }
+            if (cjk || word) {
+                if (cjk || run.length() < MAX_WORD_LENGTH) {
+                    run.appendCodePoint(codePoint);
+                }
+                runIsCjk = cjk;
+            }
+        }
+        flush(run, runIsCjk, consumer);
+    }
+
+    private static void flush(StringBuilder run, boolean cjk, RunConsumer consumer) {
+        if (run.length() > 0) {
+            consumer.accept(run.toString(), cjk);
+            run.setLength(0);
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,337 @@
+package com.couple.space.job;
+
+import com.couple.space.mapper.JobLeaseMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 多实例部署时只执行一次的定时任务
+ * 租约保存在job_leases表中，不依赖ZooKeeper、Redis等外部组件：
+ * 1. 每个任务分为若干分片，每个分片一个租约，持有租约的实例执行该分片
+ * 2. 获取租约时令牌加1，写操作通过JobContext.fenced在同一个事务中锁定租约行并校验令牌，
+ *    实例停顿导致租约过期被接管后，旧的持有者不会再写入
+ * 3. 各实例在job_nodes表中写入心跳，每个实例最多持有ceil(分片数/存活实例数)个分片，
+ *    实例加入时多余的分片被释放，实例退出后租约到期由其他实例接管
+ * 4. 下次执行时间保存在租约行中，易主后不会重复执行，也不会漏掉已到期的执行
+ * 5. 按任务统计执行次数、失败次数、延迟和耗时，定期输出一行汇总
+ * 6. 任务在独立的工作线程上执行，调度线程只做心跳、续期和分派，
+ *    耗时的任务不会推迟租约续期，也不会占用其他定时任务共享的调度线程
+ * 租约到期和执行时间都使用数据库时间，不受各实例时钟偏差影响
+ */
+@Slf4j
+@Component
+public class ClusterJobScheduler {
+    private final JobLeaseMapper leaseMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long leaseMillis;
+    private final long nodeTtlMillis;
+
+    /**
+     * 执行任务的工作线程
+     */
+    private final ExecutorService workers;
+
+    /**
+     * 本实例的ID
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final List<Job> jobs = new CopyOnWriteArrayList<>();
+
+    /**
+     * 已注册的任务，状态只在调度器的锁内访问
+     */
+    private static final class Job {
+        final String name;
+        final long intervalMillis;
+        final int shardCount;
+        final Consumer<JobContext> action;
+
+        /**
+         * 本实例持有的分片到租约令牌的映射
+         */
+        final TreeMap<Integer, Long> held = new TreeMap<>();
+
+        /**
+         * 已分派到工作线程、尚未结束的分片
+         */
+        final Set<Integer> running = new HashSet<>();
+        boolean initialized;
+
+        long runs;
+        long failures;
+        long leaseLost;
+        long lagSum;
+        long lagMax;
+        long runtimeSum;
+        long runtimeMax;
+
+        Job(String name, long intervalMillis, int shardCount, Consumer<JobContext> action) {
+            this.name = name;
+            this.intervalMillis = intervalMillis;
+            this.shardCount = shardCount;
+            this.action = action;
+        }
+    }
+
+    public ClusterJobScheduler(JobLeaseMapper leaseMapper,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${job.enabled:true}") boolean enabled,
+                               @Value("${job.lease-time:30000}") long leaseMillis,
+                               @Value("${job.node-ttl:30000}") long nodeTtlMillis,
+                               @Value("${job.worker-threads:2}") int workerThreads) {
+        this.leaseMapper = leaseMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.leaseMillis = leaseMillis;
+        this.nodeTtlMillis = nodeTtlMillis;
+        AtomicInteger sequence = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads), runnable -> {
+            Thread thread = new Thread(runnable, "cluster-job-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 注册任务
+     * @param name 任务名称，所有实例上必须一致
+     * @param intervalMillis 上次执行结束到下次执行开始的间隔，单位为毫秒
+     * @param shardCount 分片数，1表示只由一个实例执行
+     * @param action 任务，每次执行一个分片
+     */
+    public void register(String name, long intervalMillis, int shardCount, Consumer<JobContext> action) {
+        jobs.add(new Job(name, intervalMillis, Math.max(1, shardCount), action));
+    }
+
+    /**
+     * 续期、平衡租约，并把持有的分片分派到工作线程
+     * 上一次分派的分片尚未结束时不重复分派
+     */
+    @Scheduled(fixedDelayString = "${job.tick-interval:5000}")
+    public synchronized void tick() {
+        if (!enabled || jobs.isEmpty()) {
+            return;
+        }
+        int liveNodes;
+        try {
+            leaseMapper.heartbeat(nodeId);
+            liveNodes = Math.max(1, leaseMapper.countLiveNodes(nodeTtlMillis));
+        } catch (Exception e) {
+            // 数据库不可用时租约自然到期，恢复后重新获取
+            log.warn("定时任务心跳失败: {}", e.getMessage());
+            return;
+        }
+        for (Job job : jobs) {
+            try {
+                balance(job, liveNodes);
+            } catch (Exception e) {
+                log.warn("任务 {} 租约维护失败: {}", job.name, e.getMessage());
+                continue;
+            }
+            for (Map.Entry<Integer, Long> shard : job.held.entrySet()) {
+                dispatch(job, shard.getKey(), shard.getValue());
+            }
+        }
+    }
+
+    /**
+     * 每分钟输出一次汇总，并清理心跳过期的实例
+     */
+    @Scheduled(fixedDelay = 60000)
+    public synchronized void report() {
+        if (!enabled) {
+            return;
+        }
+        StringBuilder summary = null;
+        for (Job job : jobs) {
+            if (job.runs == 0 && job.failures == 0 && job.leaseLost == 0) {
+                continue;
+            }
+            summary = summary == null ? new StringBuilder() : summary.append("; ");
+            summary.append(String.format("%s 分片%s 执行: %d, 失败: %d, 失去租约: %d, 平均延迟: %d 毫秒, "
+                            + "最大延迟: %d 毫秒, 平均耗时: %d 毫秒, 最大耗时: %d 毫秒",
+                    job.name, job.held.keySet(), job.runs, job.failures, job.leaseLost,
+                    job.runs == 0 ? 0 : job.lagSum / job.runs, job.lagMax,
+                    job.runs == 0 ? 0 : job.runtimeSum / job.runs, job.runtimeMax));
+            job.runs = 0;
+            job.failures = 0;
+            job.leaseLost = 0;
+            job.lagSum = 0;
+            job.lagMax = 0;
+            job.runtimeSum = 0;
+            job.runtimeMax = 0;
+        }
+        if (summary != null) {
+            log.info("定时任务统计（最近一分钟）: {}", summary);
+        }
+        try {
+            leaseMapper.deleteDeadNodes(nodeTtlMillis);
+        } catch (Exception e) {
+            log.warn("清理过期的定时任务实例失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 关闭时等待执行中的任务结束并释放租约，其他实例不必等待租约到期
+     */
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (enabled) {
+            releaseAll();
+        }
+    }
+
+    private synchronized void releaseAll() {
+        try {
+            for (Job job : jobs) {
+                for (Map.Entry<Integer, Long> shard : job.held.entrySet()) {
+                    leaseMapper.release(job.name, shard.getKey(), nodeId, shard.getValue());
+                }
+                job.held.clear();
+            }
+            leaseMapper.deleteNode(nodeId);
+        } catch (Exception e) {
+            log.warn("释放定时任务租约失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 续期已持有的租约，按存活实例数释放多余的分片或获取新的分片
+     */
+    private void balance(Job job, int liveNodes) {
+        if (!job.initialized) {
+            for (int shard = 0; shard < job.shardCount; shard++) {
+                leaseMapper.insertIfAbsent(job.name, shard);
+            }
+            job.initialized = true;
+        }
+        Iterator<Map.Entry<Integer, Long>> iterator = job.held.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Long> shard = iterator.next();
+            if (leaseMapper.renew(job.name, shard.getKey(), nodeId, shard.getValue(), leaseMillis) == 0) {
+                iterator.remove();
+                log.warn("任务 {} 分片 {} 的租约已被其他实例接管", job.name, shard.getKey());
+            }
+        }
+        int target = (job.shardCount + liveNodes - 1) / liveNodes;
+        while (job.held.size() > target) {
+            Map.Entry<Integer, Long> last = job.held.pollLastEntry();
+            leaseMapper.release(job.name, last.getKey(), nodeId, last.getValue());
+            log.info("任务 {} 释放分片 {}，存活实例数: {}", job.name, last.getKey(), liveNodes);
+        }
+        // 各实例从不同的分片开始尝试，减少争抢
+        int start = Math.floorMod(nodeId.hashCode(), job.shardCount);
+        for (int i = 0; i < job.shardCount && job.held.size() < target; i++) {
+            int shard = (start + i) % job.shardCount;
+            if (job.held.containsKey(shard) || leaseMapper.acquire(job.name, shard, nodeId, leaseMillis) == 0) {
+                continue;
+            }
+            Long token = leaseMapper.findToken(job.name, shard, nodeId);
+            if (token != null) {
+                job.held.put(shard, token);
+                log.info("任务 {} 获得分片 {} 的租约，令牌: {}", job.name, shard, token);
+            }
+        }
+    }
+
+    private void dispatch(Job job, int shard, long token) {
+        if (!job.running.add(shard)) {
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    run(job, shard, token);
+                } finally {
+                    synchronized (this) {
+                        job.running.remove(shard);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 正在关闭
+            job.running.remove(shard);
+        }
+    }
+
+    /**
+     * 分片到期时执行一次，结束后设置下次执行时间
+     * 在工作线程上执行，不持有调度器的锁，只在更新任务状态时加锁
+     */
+    private void run(Job job, int shard, long token) {
+        Long lag;
+        try {
+            lag = leaseMapper.findDueLag(job.name, shard, nodeId, token);
+        } catch (Exception e) {
+            log.warn("查询任务 {} 分片 {} 的执行时间失败: {}", job.name, shard, e.getMessage());
+            return;
+        }
+        if (lag == null) {
+            return;
+        }
+        long begin = System.nanoTime();
+        try {
+            job.action.accept(new JobContext(job.name, shard, job.shardCount, nodeId, token,
+                    leaseMapper, transactionTemplate));
+        } catch (LeaseLostException e) {
+            synchronized (this) {
+                job.leaseLost++;
+                job.held.remove(shard, token);
+            }
+            log.warn(e.getMessage());
+            return;
+        } catch (Exception e) {
+            synchronized (this) {
+                job.failures++;
+            }
+            log.error("任务 {} 分片 {} 执行失败: {}", job.name, shard, e.getMessage(), e);
+        }
+        long runtime = (System.nanoTime() - begin) / 1_000_000L;
+        synchronized (this) {
+            job.runs++;
+            job.lagSum += Math.max(0, lag);
+            job.lagMax = Math.max(job.lagMax, lag);
+            job.runtimeSum += runtime;
+            job.runtimeMax = Math.max(job.runtimeMax, runtime);
+        }
+        try {
+            if (leaseMapper.scheduleNext(job.name, shard, nodeId, token, job.intervalMillis) == 0) {
+                synchronized (this) {
+                    job.held.remove(shard, token);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("设置任务 {} 分片 {} 的下次执行时间失败: {}", job.name, shard, e.getMessage());
+        }
+    }
+}
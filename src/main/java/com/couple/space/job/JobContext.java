@@ -0,0 +1,64 @@
+package com.couple.space.job;
+
+import com.couple.space.mapper.JobLeaseMapper;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * 一次任务分片执行的上下文
+ * 分片任务只处理MOD(user_id, shardCount) = shardIndex的数据
+ */
+public final class JobContext {
+    private final String jobName;
+    private final int shardIndex;
+    private final int shardCount;
+    private final String owner;
+    private final long fencingToken;
+    private final JobLeaseMapper leaseMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    JobContext(String jobName, int shardIndex, int shardCount, String owner, long fencingToken,
+               JobLeaseMapper leaseMapper, TransactionTemplate transactionTemplate) {
+        this.jobName = jobName;
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.owner = owner;
+        this.fencingToken = fencingToken;
+        this.leaseMapper = leaseMapper;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public long getFencingToken() {
+        return fencingToken;
+    }
+
+    /**
+     * 在持有租约的前提下执行写操作
+     * 在同一个事务中先锁定租约行并校验令牌，租约到期后被其他实例接管时不会写入；
+     * 事务提交前其他实例无法接管，写入不会与新的持有者并发
+     * @param work 写操作
+     * @return 写操作的结果
+     * @throws LeaseLostException 租约已经易主
+     */
+    public <T> T fenced(Supplier<T> work) {
+        return transactionTemplate.execute(status -> {
+            if (leaseMapper.lockIfOwner(jobName, shardIndex, owner, fencingToken) == null) {
+                throw new LeaseLostException(jobName, shardIndex, fencingToken);
+            }
+            return work.get();
+        });
+    }
+}
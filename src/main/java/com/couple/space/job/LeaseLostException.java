@@ -0,0 +1,11 @@
+package com.couple.space.job;
+
+/**
+ * 任务分片的租约已经易主
+ * 持有旧令牌的实例不能再写入，本次执行中止
+ */
+public class LeaseLostException extends RuntimeException {
+    public LeaseLostException(String jobName, int shard, long token) {
+        super("任务 " + jobName + " 分片 " + shard + " 的租约已易主，令牌 " + token + " 失效");
+    }
+}
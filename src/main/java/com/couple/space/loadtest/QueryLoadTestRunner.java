@@ -0,0 +1,236 @@
+package com.couple.space.loadtest;
+
+import com.couple.space.entity.Anniversary;
+import com.couple.space.entity.User;
+import com.couple.space.mapper.AnniversaryMapper;
+import com.couple.space.mapper.SpaceMapper;
+import com.couple.space.mapper.UserMapper;
+import com.couple.space.service.SpaceService;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 纪念日读查询压测
+ * 只在loadtest环境中启用，启动后对本地MySQL执行请求路径上的读查询，输出每秒查询数和延迟分位数后退出
+ * 查询组合：
+ * 1. 按空间查询纪念日列表（/list）
+ * 2. 按ID查询纪念日详情（/detail）
+ * 3. 按用户查询所属空间（空间缓存未命中时）
+ * 分别在不启用和启用prod配置时运行，对比语句缓存和连接池调优的效果
+ */
+@Slf4j
+@Component
+@Profile("loadtest")
+public class QueryLoadTestRunner implements CommandLineRunner {
+    private static final String USERNAME = "loadtest";
+
+    /**
+     * 批量插入时每条语句的行数
+     */
+    private static final int SEED_CHUNK = 500;
+
+    /**
+     * 延迟直方图的桶数，第i个桶统计[2^i, 2^(i+1))微秒的请求
+     */
+    private static final int BUCKETS = 32;
+
+    private final AnniversaryMapper anniversaryMapper;
+    private final UserMapper userMapper;
+    private final SpaceMapper spaceMapper;
+    private final SpaceService spaceService;
+    private final DataSource dataSource;
+    private final SqlSessionFactory sqlSessionFactory;
+    private final ConfigurableApplicationContext context;
+    private final int threads;
+    private final long warmupMillis;
+    private final long durationMillis;
+    private final int seedRows;
+
+    public QueryLoadTestRunner(AnniversaryMapper anniversaryMapper,
+                               UserMapper userMapper,
+                               SpaceMapper spaceMapper,
+                               SpaceService spaceService,
+                               DataSource dataSource,
+                               SqlSessionFactory sqlSessionFactory,
+                               ConfigurableApplicationContext context,
+                               @Value("${loadtest.threads:16}") int threads,
+                               @Value("${loadtest.warmup:5000}") long warmupMillis,
+                               @Value("${loadtest.duration:30000}") long durationMillis,
+                               @Value("${loadtest.seed-rows:2000}") int seedRows) {
+        this.anniversaryMapper = anniversaryMapper;
+        this.userMapper = userMapper;
+        this.spaceMapper = spaceMapper;
+        this.spaceService = spaceService;
+        this.dataSource = dataSource;
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.context = context;
+        this.threads = threads;
+        this.warmupMillis = warmupMillis;
+        this.durationMillis = durationMillis;
+        this.seedRows = seedRows;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        logConfiguration();
+        Long userId = seedUser();
+        Long spaceId = spaceService.resolveSpaceId(userId);
+        List<Long> ids = seedAnniversaries(userId, spaceId);
+
+        log.info("压测预热 {} 毫秒", warmupMillis);
+        runPhase(userId, spaceId, ids, warmupMillis, new LongAdder(), new AtomicLongArray(BUCKETS));
+
+        LongAdder queries = new LongAdder();
+        AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+        long start = System.nanoTime();
+        runPhase(userId, spaceId, ids, durationMillis, queries, histogram);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        log.info("压测结果 - 线程: {}, 时长: {} 秒, 查询数: {}, 每秒查询数: {}, p50: {} 微秒, p99: {} 微秒",
+                threads, String.format("%.1f", seconds), queries.sum(), String.format("%.0f", queries.sum() / seconds),
+                percentile(histogram, 0.50), percentile(histogram, 0.99));
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+
+    /**
+     * 输出本次压测生效的连接池、驱动和执行器配置，便于对比两次运行
+     */
+    private void logConfiguration() {
+        log.info("MyBatis执行器: {}", sqlSessionFactory.getConfiguration().getDefaultExecutorType());
+        if (dataSource instanceof HikariDataSource) {
+            HikariDataSource hikari = (HikariDataSource) dataSource;
+            log.info("连接池 - 最大连接数: {}, 最小空闲: {}, 泄漏检测: {} 毫秒, 驱动属性: {}",
+                    hikari.getMaximumPoolSize(), hikari.getMinimumIdle(), hikari.getLeakDetectionThreshold(),
+                    hikari.getDataSourceProperties());
+        }
+    }
+
+    private Long seedUser() {
+        User user = userMapper.findByUsername(USERNAME);
+        if (user != null) {
+            return user.getId();
+        }
+        user = new User();
+        user.setUsername(USERNAME);
+        // 压测用户不需要登录，密码不是有效的哈希
+        user.setPassword("-");
+        user.setCreatedAt(LocalDateTime.now());
+        user.setUpdatedAt(LocalDateTime.now());
+        userMapper.insert(user);
+        return user.getId();
+    }
+
+    /**
+     * 压测空间中的纪念日不足时补齐
+     * @return 压测空间中所有纪念日的ID
+     */
+    private List<Long> seedAnniversaries(Long userId, Long spaceId) {
+        List<Anniversary> existing = anniversaryMapper.findBySpaceId(spaceId);
+        int missing = seedRows - existing.size();
+        if (missing > 0) {
+            log.info("补齐压测数据: {} 个纪念日", missing);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            LocalDate today = LocalDate.now();
+            List<Anniversary> chunk = new ArrayList<>(SEED_CHUNK);
+            for (int i = 0; i < missing; i++) {
+                Anniversary anniversary = new Anniversary();
+                anniversary.setUserId(userId);
+                anniversary.setSpaceId(spaceId);
+                anniversary.setName("压测纪念日" + i);
+                anniversary.setDate(today.minusDays(random.nextInt(365 * 20)));
+                anniversary.setDescription("load test");
+                anniversary.setIsYearly(random.nextBoolean());
+                anniversary.setIsImportant(false);
+                anniversary.setRemind(false);
+                anniversary.setCreatedAt(today);
+                anniversary.setUpdatedAt(today);
+                chunk.add(anniversary);
+                if (chunk.size() == SEED_CHUNK || i == missing - 1) {
+                    anniversaryMapper.insertBatch(chunk);
+                    chunk = new ArrayList<>(SEED_CHUNK);
+                }
+            }
+            existing = anniversaryMapper.findBySpaceId(spaceId);
+        }
+        List<Long> ids = new ArrayList<>(existing.size());
+        for (Anniversary anniversary : existing) {
+            ids.add(anniversary.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * 用固定数量的线程持续执行查询
+     * 每10次查询中1次列表查询、1次空间查询、8次详情查询，接近请求路径上的比例
+     */
+    private void runPhase(Long userId, Long spaceId, List<Long> ids, long millis,
+                          LongAdder queries, AtomicLongArray histogram) throws InterruptedException {
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    for (int n = 0; System.nanoTime() < deadline; n++) {
+                        long begin = System.nanoTime();
+                        switch (n % 10) {
+                            case 0:
+                                anniversaryMapper.findBySpaceId(spaceId);
+                                break;
+                            case 1:
+                                spaceMapper.findSpaceIdByUserId(userId);
+                                break;
+                            default:
+                                anniversaryMapper.findById(ids.get(random.nextInt(ids.size())));
+                        }
+                        long micros = Math.max(1, (System.nanoTime() - begin) / 1000);
+                        histogram.incrementAndGet(Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros)));
+                        queries.increment();
+                    }
+                } catch (Exception e) {
+                    log.error("压测线程异常退出: {}", e.getMessage());
+                } finally {
+                    done.countDown();
+                }
+            }, "loadtest-" + t);
+            worker.start();
+        }
+        done.await();
+    }
+
+    /**
+     * 从直方图估算分位数，返回所在桶的上界
+     */
+    private static long percentile(AtomicLongArray histogram, double quantile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += histogram.get(i);
+        }
+        long target = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram.get(i);
+            if (seen >= target && seen > 0) {
+                return 1L << (i + 1);
+            }
+        }
+        return 0;
+    }
+}
@@ -1,8 +1,13 @@
 package com.couple.space.mapper;
 
 import com.couple.space.entity.Anniversary;
+import com.couple.space.index.AnniversaryHighWaterMark;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -18,6 +23,14 @@ public interface AnniversaryMapper {
      */
     Anniversary findById(Long id);
 
+    /**
+     * 根据ID列表查询纪念日
+     * 调用方负责控制ID数量，IN列表过长时分批调用
+     * @param ids 纪念日ID列表，不能为空
+     * @return 找到的纪念日，顺序不确定
+     */
+    List<Anniversary> findByIds(@Param("ids") Collection<Long> ids);
+
     /**
      * 根据用户ID查询所有纪念日
      * @param userId 用户ID
@@ -26,10 +39,11 @@ public interface AnniversaryMapper {
     List<Anniversary> findByUserId(Long userId);
 
     /**
-     * 查询下一个即将到来的纪念日
-     * @return 下一个纪念日对象
+     * 根据空间ID查询所有纪念日
+     * @param spaceId 空间ID
+     * @return 纪念日列表
      */
-    Anniversary findNextAnniversary();
+    List<Anniversary> findBySpaceId(Long spaceId);
 
     /**
      * 插入新纪念日
@@ -39,11 +53,27 @@ public interface AnniversaryMapper {
     void insert(Anniversary anniversary);
 
     /**
-     * 更新纪念日信息
-     * @param anniversary 纪念日对象
+     * 批量插入纪念日，生成的ID回填到每个对象
+     * @param anniversaries 纪念日列表
      * @return 影响的行数
      */
-    void update(Anniversary anniversary);
+    int insertBatch(@Param("list") List<Anniversary> anniversaries);
+
+    /**
+     * 更新纪念日信息，版本号加1
+     * 指定版本号时只在数据库中的版本与之相同时更新
+     * @param anniversary 纪念日对象
+     * @return 影响的行数，版本冲突时为0
+     */
+    int update(Anniversary anniversary);
+
+    /**
+     * 只更新不为null的字段，版本号加1
+     * 只在数据库中的版本与指定的版本相同时更新
+     * @param anniversary 包含ID、读取时的版本号和要更新字段的纪念日对象
+     * @return 影响的行数，版本冲突时为0
+     */
+    int updateSelective(Anniversary anniversary);
 
     /**
      * 删除纪念日
@@ -57,4 +87,34 @@ public interface AnniversaryMapper {
      * @return 纪念日列表
      */
     List<Anniversary> findAll();
-} 
\ No newline at end of file
+
+    /**
+     * 流式扫描所有纪念日的键列
+     * 只查询ID、用户ID、日期、更新日期和标志位，逐行回调，不在内存中保留完整列表
+     * @param handler 结果处理器
+     */
+    void scanCalendarKeys(ResultHandler<Anniversary> handler);
+
+    /**
+     * 流式扫描快照之后新增或更新的纪念日键列
+     * @param minId 快照中的最大ID，大于它的行视为新增
+     * @param updatedSince 快照中的最大更新日期，不早于它的行视为更新
+     * @param handler 结果处理器
+     */
+    void scanCalendarKeysSince(@Param("minId") long minId,
+                               @Param("updatedSince") LocalDate updatedSince,
+                               ResultHandler<Anniversary> handler);
+
+    /**
+     * 流式扫描所有纪念日的搜索字段
+     * 只查询ID、用户ID、名称、日期和描述，用于构建全文搜索索引
+     * @param handler 结果处理器
+     */
+    void scanSearchFields(ResultHandler<Anniversary> handler);
+
+    /**
+     * 查询纪念日表的高水位
+     * @return 最大ID和最大更新日期
+     */
+    AnniversaryHighWaterMark selectHighWaterMark();
+}
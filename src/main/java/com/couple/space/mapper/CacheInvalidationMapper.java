@@ -0,0 +1,59 @@
+package com.couple.space.mapper;
+
+import com.couple.space.entity.CacheInvalidation;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 缓存失效日志数据访问接口
+ * 定义与cache_invalidations表相关的数据库操作
+ */
+@Mapper
+public interface CacheInvalidationMapper {
+    /**
+     * 追加失效记录
+     * @param invalidation 失效记录
+     * @return 影响的行数
+     */
+    int insert(CacheInvalidation invalidation);
+
+    /**
+     * 查询某个序号之后的失效记录，按序号升序
+     * @param afterId 起始序号（不包含）
+     * @param limit 最多返回的条数
+     * @return 失效记录列表
+     */
+    List<CacheInvalidation> findAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 查询序号区间内的失效记录，用于补读提交较晚的记录
+     * @param afterId 起始序号（不包含）
+     * @param toId 结束序号（包含）
+     * @return 失效记录列表
+     */
+    List<CacheInvalidation> findBetween(@Param("afterId") long afterId, @Param("toId") long toId);
+
+    /**
+     * 查询某个时间之后某个缓存的失效键，走created_at索引的范围扫描
+     * @param cacheName 缓存名称
+     * @param since 起始时间（包含）
+     * @return 失效键列表
+     */
+    List<String> findKeysSince(@Param("cacheName") String cacheName, @Param("since") LocalDateTime since);
+
+    /**
+     * 查询当前最大序号
+     * @return 最大序号，表为空时返回null
+     */
+    Long selectMaxId();
+
+    /**
+     * 删除某个时间之前的失效记录
+     * @param before 截止时间
+     * @return 影响的行数
+     */
+    int deleteBefore(LocalDateTime before);
+}
@@ -0,0 +1,71 @@
+package com.couple.space.mapper;
+
+import com.couple.space.entity.IdempotencyRecord;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+
+/**
+ * 幂等记录数据访问接口
+ * 定义与idempotency_keys表相关的数据库操作
+ */
+@Mapper
+public interface IdempotencyRecordMapper {
+    /**
+     * 查询尚未过期的幂等记录
+     * @param userId 用户ID
+     * @param idemKey 幂等键
+     * @param now 当前时间
+     * @return 幂等记录，不存在或已过期时返回null，执行中的记录状态码为null
+     */
+    IdempotencyRecord findByKey(@Param("userId") Long userId,
+                                @Param("idemKey") String idemKey,
+                                @Param("now") LocalDateTime now);
+
+    /**
+     * 插入幂等记录，已存在时忽略
+     * 状态码和响应体为null时作为执行中的占位行，用于在执行前占用幂等键
+     * @param record 幂等记录
+     * @return 影响的行数，0表示幂等键已被占用
+     */
+    int insert(IdempotencyRecord record);
+
+    /**
+     * 写入执行中记录的响应
+     * @param record 幂等记录，包含状态码、响应体和新的过期时间
+     * @return 影响的行数
+     */
+    int complete(IdempotencyRecord record);
+
+    /**
+     * 删除执行中的记录，执行失败时释放幂等键
+     * @param userId 用户ID
+     * @param idemKey 幂等键
+     * @return 影响的行数
+     */
+    int deletePending(@Param("userId") Long userId,
+                      @Param("idemKey") String idemKey);
+
+    /**
+     * 删除一个幂等键已经过期的记录，重新占用前调用
+     * @param userId 用户ID
+     * @param idemKey 幂等键
+     * @param now 当前时间
+     * @return 影响的行数
+     */
+    int deleteExpiredKey(@Param("userId") Long userId,
+                         @Param("idemKey") String idemKey,
+                         @Param("now") LocalDateTime now);
+
+    /**
+     * 删除一个用户分片中已经过期的幂等记录
+     * @param now 当前时间
+     * @param shardIndex 分片序号，只删除MOD(user_id, shardCount)等于该值的记录
+     * @param shardCount 分片数
+     * @return 影响的行数
+     */
+    int deleteExpired(@Param("now") LocalDateTime now,
+                      @Param("shardIndex") int shardIndex,
+                      @Param("shardCount") int shardCount);
+}
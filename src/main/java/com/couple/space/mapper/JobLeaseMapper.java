@@ -0,0 +1,126 @@
+package com.couple.space.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 定时任务租约数据访问接口
+ * 定义与job_leases、job_nodes表相关的数据库操作
+ * 租约的到期和执行时间都使用数据库时间，不受各实例时钟偏差影响
+ */
+@Mapper
+public interface JobLeaseMapper {
+    /**
+     * 创建任务分片的租约行，已存在时忽略
+     * @param jobName 任务名称
+     * @param shard 分片序号
+     * @return 影响的行数
+     */
+    int insertIfAbsent(@Param("jobName") String jobName, @Param("shard") int shard);
+
+    /**
+     * 获取无人持有或已到期的租约，成功时令牌加1
+     * @param jobName 任务名称
+     * @param shard 分片序号
+     * @param owner 实例ID
+     * @param leaseMillis 租约时长，单位为毫秒
+     * @return 影响的行数，1表示获取成功
+     */
+    int acquire(@Param("jobName") String jobName, @Param("shard") int shard,
+                @Param("owner") String owner, @Param("leaseMillis") long leaseMillis);
+
+    /**
+     * 查询租约令牌
+     * @param jobName 任务名称
+     * @param shard 分片序号
+     * @param owner 实例ID
+     * @return 令牌，租约不属于该实例时返回null
+     */
+    Long findToken(@Param("jobName") String jobName, @Param("shard") int shard, @Param("owner") String owner);
+
+    /**
+     * 续期租约，令牌不变
+     * @param jobName 任务名称
+     * @param shard 分片序号
+     * @param owner 实例ID
+     * @param token 租约令牌
+     * @param leaseMillis 租约时长，单位为毫秒
+     * @return 影响的行数，0表示租约已经易主
+     */
+    int renew(@Param("jobName") String jobName, @Param("shard") int shard, @Param("owner") String owner,
+              @Param("token") long token, @Param("leaseMillis") long leaseMillis);
+
+    /**
+     * 主动释放租约
+     * @param jobName 任务名称
+     * @param shard 分片序号
+     * @param owner 实例ID
+     * @param token 租约令牌
+     * @return 影响的行数
+     */
+    int release(@Param("jobName") String jobName, @Param("shard") int shard, @Param("owner") String owner,
+                @Param("token") long token);
+
+    /**
+     * 查询已到执行时间的分片的延迟
+     * @param jobName 任务名称
+     * @param shard 分片序号
+     * @param owner 实例ID
+     * @param token 租约令牌
+     * @return 当前时间与计划执行时间的差，单位为毫秒，未到执行时间或租约已易主时返回null
+     */
+    Long findDueLag(@Param("jobName") String jobName, @Param("shard") int shard, @Param("owner") String owner,
+                    @Param("token") long token);
+
+    /**
+     * 设置下次执行时间
+     * @param jobName 任务名称
+     * @param shard 分片序号
+     * @param owner 实例ID
+     * @param token 租约令牌
+     * @param intervalMillis 距离现在的间隔，单位为毫秒
+     * @return 影响的行数
+     */
+    int scheduleNext(@Param("jobName") String jobName, @Param("shard") int shard, @Param("owner") String owner,
+                     @Param("token") long token, @Param("intervalMillis") long intervalMillis);
+
+    /**
+     * 在当前事务中锁定租约行，令牌不一致时不锁定
+     * 锁定期间其他实例无法获取该租约，事务中的写操作不会与新的持有者并发
+     * @param jobName 任务名称
+     * @param shard 分片序号
+     * @param owner 实例ID
+     * @param token 租约令牌
+     * @return 租约令牌，租约已经易主时返回null
+     */
+    Long lockIfOwner(@Param("jobName") String jobName, @Param("shard") int shard, @Param("owner") String owner,
+                     @Param("token") long token);
+
+    /**
+     * 写入实例心跳
+     * @param nodeId 实例ID
+     * @return 影响的行数
+     */
+    int heartbeat(@Param("nodeId") String nodeId);
+
+    /**
+     * 统计存活的实例数
+     * @param ttlMillis 心跳有效期，单位为毫秒
+     * @return 实例数
+     */
+    int countLiveNodes(@Param("ttlMillis") long ttlMillis);
+
+    /**
+     * 删除心跳过期的实例
+     * @param ttlMillis 心跳有效期，单位为毫秒
+     * @return 影响的行数
+     */
+    int deleteDeadNodes(@Param("ttlMillis") long ttlMillis);
+
+    /**
+     * 删除实例，实例关闭时调用
+     * @param nodeId 实例ID
+     * @return 影响的行数
+     */
+    int deleteNode(@Param("nodeId") String nodeId);
+}
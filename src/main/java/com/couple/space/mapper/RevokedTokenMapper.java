@@ -0,0 +1,50 @@
+package com.couple.space.mapper;
+
+import com.couple.space.entity.RevokedToken;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 已吊销令牌数据访问接口
+ * 定义与revoked_tokens表相关的数据库操作
+ */
+@Mapper
+public interface RevokedTokenMapper {
+    /**
+     * 插入吊销记录，已存在时忽略
+     * 吊销时间由数据库写入，不使用记录中的revokedAt
+     * @param token 吊销记录
+     * @return 影响的行数
+     */
+    int insert(RevokedToken token);
+
+    /**
+     * 查询数据库当前时间，作为增量同步的游标
+     * 与吊销时间使用同一个时钟，不受各实例时钟和时区的影响
+     * @return 数据库当前时间
+     */
+    LocalDateTime selectNow();
+
+    /**
+     * 查询尚未过期的吊销记录
+     * @param now 当前时间
+     * @return 吊销记录列表
+     */
+    List<RevokedToken> findActive(LocalDateTime now);
+
+    /**
+     * 查询某个时间之后吊销的记录，用于同步其他实例的吊销
+     * @param since 起始时间（包含）
+     * @return 吊销记录列表
+     */
+    List<RevokedToken> findRevokedSince(LocalDateTime since);
+
+    /**
+     * 删除已经过期的吊销记录
+     * @param now 当前时间
+     * @return 影响的行数
+     */
+    int deleteExpired(LocalDateTime now);
+}
@@ -0,0 +1,100 @@
+package com.couple.space.mapper;
+
+import com.couple.space.entity.Space;
+import com.couple.space.entity.SpaceMember;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 情侣空间数据访问接口
+ * 定义与spaces和space_members表相关的数据库操作
+ */
+@Mapper
+public interface SpaceMapper {
+    /**
+     * 根据ID查询空间
+     * @param id 空间ID
+     * @return 空间对象
+     */
+    Space findById(Long id);
+
+    /**
+     * 在当前事务中锁定空间行
+     * 加入空间时先锁定，并发加入同一个空间的请求依次检查成员数
+     * @param id 空间ID
+     * @return 空间ID，空间不存在时返回null
+     */
+    Long lockById(Long id);
+
+    /**
+     * 根据邀请码查询空间
+     * @param inviteCode 邀请码
+     * @return 空间对象
+     */
+    Space findByInviteCode(String inviteCode);
+
+    /**
+     * 查询用户所属的空间ID
+     * 只访问space_members表上user_id的唯一索引
+     * @param userId 用户ID
+     * @return 空间ID，不属于任何空间时返回null
+     */
+    Long findSpaceIdByUserId(Long userId);
+
+    /**
+     * 查询空间的所有成员，附带用户名
+     * @param spaceId 空间ID
+     * @return 成员列表
+     */
+    List<SpaceMember> findMembers(Long spaceId);
+
+    /**
+     * 统计空间的成员数
+     * @param spaceId 空间ID
+     * @return 成员数
+     */
+    int countMembers(Long spaceId);
+
+    /**
+     * 插入新空间
+     * @param space 空间对象
+     * @return 影响的行数
+     */
+    int insert(Space space);
+
+    /**
+     * 插入空间成员
+     * @param member 成员对象
+     * @return 影响的行数
+     */
+    int insertMember(SpaceMember member);
+
+    /**
+     * 删除空间成员
+     * @param spaceId 空间ID
+     * @param userId 用户ID
+     * @return 影响的行数
+     */
+    int deleteMember(@Param("spaceId") Long spaceId, @Param("userId") Long userId);
+
+    /**
+     * 删除空间
+     * @param id 空间ID
+     * @return 影响的行数
+     */
+    int delete(Long id);
+
+    /**
+     * 把一个空间的纪念日移动到另一个空间
+     * 同时更新版本号和更新时间，启动快照按更新时间追平时能发现空间的变化
+     * @param fromSpaceId 原空间ID
+     * @param toSpaceId 目标空间ID
+     * @param updatedAt 更新时间
+     * @return 影响的行数
+     */
+    int moveAnniversaries(@Param("fromSpaceId") Long fromSpaceId, @Param("toSpaceId") Long toSpaceId,
+                          @Param("updatedAt") LocalDate updatedAt);
+}
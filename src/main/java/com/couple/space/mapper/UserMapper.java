@@ -2,6 +2,7 @@ package com.couple.space.mapper;
 
 import com.couple.space.entity.User;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
 import java.util.List;
 
@@ -19,6 +20,28 @@ public interface UserMapper {
      */
     User findByUsername(String username);
 
+    /**
+     * 根据用户ID查询用户名
+     * @param id 用户ID
+     * @return 用户名，如果不存在返回null
+     */
+    String findUsernameById(Long id);
+
+    /**
+     * 根据用户ID查询时区
+     * @param id 用户ID
+     * @return 时区ID，未设置或用户不存在时返回null
+     */
+    String findTimeZoneById(Long id);
+
+    /**
+     * 更新用户时区
+     * @param id 用户ID
+     * @param timeZone 时区ID
+     * @return 影响的行数
+     */
+    int updateTimeZone(@Param("id") Long id, @Param("timeZone") String timeZone);
+
     /**
      * 检查用户名是否存在
      * @param username 用户名
@@ -40,6 +63,18 @@ public interface UserMapper {
      */
     int update(User user);
 
+    /**
+     * 仅当密码未被修改时更新密码
+     * 用于登录时把旧格式的密码升级为哈希，避免覆盖并发的密码修改
+     * @param id 用户ID
+     * @param expectedPassword 读取时的密码
+     * @param newPassword 新的密码
+     * @return 影响的行数
+     */
+    int updatePasswordIfUnchanged(@Param("id") Long id,
+                                  @Param("expectedPassword") String expectedPassword,
+                                  @Param("newPassword") String newPassword);
+
     /**
      * 获取所有用户
      * @return 用户列表
@@ -0,0 +1,211 @@
+package com.couple.space.milestone;
+
+import com.couple.space.calendar.AnniversaryOccurrences;
+import com.couple.space.calendar.LunarCalendar;
+import com.couple.space.dto.AnniversaryMilestonesDTO;
+import com.couple.space.dto.MilestoneDTO;
+import com.couple.space.entity.Anniversary;
+import com.couple.space.event.AnniversaryChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 纪念日里程碑计算
+ * 纪念日当天算作第1天，按规则推算接下来的K个里程碑：
+ * 1. 固定天数：如第100天、第520天、第1000天
+ * 2. 固定天数之后每隔若干天一次：如第2000天、第3000天……
+ * 3. 每年重复的纪念日的第N周年，农历纪念日按农历计算
+ * 结果按纪念日ID缓存，同一天内重复查询只是一次哈希表读取：
+ * - 纪念日变更事件提交后移除对应的缓存
+ * - 缓存记录了计算日期和纪念日的日期、历法，日期变化或内容不一致时惰性重算
+ */
+@Slf4j
+@Component
+public class MilestoneEngine {
+    public static final String TYPE_DAYS = "DAYS";
+    public static final String TYPE_YEARS = "YEARS";
+
+    /**
+     * 有序的固定天数里程碑
+     */
+    private final int[] dayMilestones;
+
+    /**
+     * 固定天数之后的间隔，0表示不重复
+     */
+    private final int repeatDays;
+
+    /**
+     * 每个纪念日返回的里程碑数量
+     */
+    private final int count;
+
+    /**
+     * 纪念日ID到已计算结果的缓存
+     */
+    private final Map<Long, Computed> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 某一天为某个纪念日计算的结果
+     */
+    private static final class Computed {
+        final long epochDay;
+        final LocalDate date;
+        final boolean yearly;
+        final boolean lunar;
+        final long daysTogether;
+        final List<MilestoneDTO> milestones;
+
+        Computed(long epochDay, LocalDate date, boolean yearly, boolean lunar,
+                 long daysTogether, List<MilestoneDTO> milestones) {
+            this.epochDay = epochDay;
+            this.date = date;
+            this.yearly = yearly;
+            this.lunar = lunar;
+            this.daysTogether = daysTogether;
+            this.milestones = milestones;
+        }
+
+        boolean isValidFor(long today, Anniversary anniversary) {
+            return epochDay == today
+                    && date.equals(anniversary.getDate())
+                    && yearly == AnniversaryOccurrences.isYearly(anniversary)
+                    && lunar == AnniversaryOccurrences.isLunar(anniversary);
+        }
+    }
+
+    public MilestoneEngine(
+            @Value("${anniversary.milestone.days:100,200,300,500,520,999,1000,1314,2000,3000,5000,5200,9999,10000}")
+            int[] dayMilestones,
+            @Value("${anniversary.milestone.repeat-days:1000}") int repeatDays,
+            @Value("${anniversary.milestone.count:3}") int count) {
+        this.dayMilestones = dayMilestones.clone();
+        Arrays.sort(this.dayMilestones);
+        this.repeatDays = Math.max(0, repeatDays);
+        this.count = Math.max(1, count);
+    }
+
+    /**
+     * 获取纪念日接下来的里程碑
+     * @param anniversary 纪念日
+     * @param today 今天
+     * @return 里程碑信息，纪念日没有日期时返回null
+     */
+    public AnniversaryMilestonesDTO getMilestones(Anniversary anniversary, LocalDate today) {
+        if (anniversary.getDate() == null) {
+            return null;
+        }
+        long todayEpochDay = today.toEpochDay();
+        Computed computed = anniversary.getId() == null ? null : cache.get(anniversary.getId());
+        if (computed == null || !computed.isValidFor(todayEpochDay, anniversary)) {
+            computed = compute(anniversary, today);
+            if (anniversary.getId() != null) {
+                cache.put(anniversary.getId(), computed);
+            }
+        }
+        AnniversaryMilestonesDTO dto = new AnniversaryMilestonesDTO();
+        dto.setId(anniversary.getId());
+        dto.setName(anniversary.getName());
+        dto.setDate(anniversary.getDate());
+        dto.setDaysTogether(computed.daysTogether);
+        dto.setMilestones(computed.milestones);
+        return dto;
+    }
+
+    /**
+     * 纪念日写操作提交后移除缓存
+     * @param event 纪念日变更事件
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAnniversaryChanged(AnniversaryChangedEvent event) {
+        if (event.getId() != null) {
+            cache.remove(event.getId());
+        }
+    }
+
+    private Computed compute(Anniversary anniversary, LocalDate today) {
+        LocalDate date = anniversary.getDate();
+        boolean yearly = AnniversaryOccurrences.isYearly(anniversary);
+        boolean lunar = AnniversaryOccurrences.isLunar(anniversary);
+        // 纪念日当天是第1天
+        long daysTogether = today.isBefore(date) ? 0 : ChronoUnit.DAYS.between(date, today) + 1;
+
+        List<MilestoneDTO> candidates = new ArrayList<>(count * 2);
+        collectDayMilestones(date, today, candidates);
+        if (yearly) {
+            collectYearMilestones(date, lunar, today, candidates);
+        }
+        candidates.sort(Comparator.comparing(MilestoneDTO::getDate)
+                .thenComparing(MilestoneDTO::getType));
+        List<MilestoneDTO> milestones = candidates.size() > count ? candidates.subList(0, count) : candidates;
+        return new Computed(today.toEpochDay(), date, yearly, lunar, daysTogether,
+                Collections.unmodifiableList(new ArrayList<>(milestones)));
+    }
+
+    /**
+     * 收集今天及以后最近的count个天数里程碑
+     */
+    private void collectDayMilestones(LocalDate date, LocalDate today, List<MilestoneDTO> result) {
+        // 今天是第几天，尚未到来时从第1天开始
+        long current = today.isBefore(date) ? 1 : ChronoUnit.DAYS.between(date, today) + 1;
+        int found = 0;
+        int index = Arrays.binarySearch(dayMilestones, (int) Math.min(current, Integer.MAX_VALUE));
+        for (int i = index >= 0 ? index : -index - 1; i < dayMilestones.length && found < count; i++, found++) {
+            result.add(milestone(TYPE_DAYS, dayMilestones[i], date.plusDays(dayMilestones[i] - 1L), today));
+        }
+        if (repeatDays == 0 || found == count) {
+            return;
+        }
+        long last = dayMilestones.length == 0 ? 0 : dayMilestones[dayMilestones.length - 1];
+        long next = Math.max(last, current - 1) / repeatDays * repeatDays + repeatDays;
+        for (; found < count && next <= Integer.MAX_VALUE; found++, next += repeatDays) {
+            result.add(milestone(TYPE_DAYS, (int) next, date.plusDays(next - 1), today));
+        }
+    }
+
+    /**
+     * 收集今天及以后最近的count个周年
+     */
+    private void collectYearMilestones(LocalDate date, boolean lunar, LocalDate today, List<MilestoneDTO> result) {
+        LunarCalendar.LunarDate lunarDate = lunar ? LunarCalendar.toLunar(date) : null;
+        if (lunar && lunarDate == null) {
+            return;
+        }
+        int startYears = Math.max(1, today.getYear() - date.getYear() - 1);
+        int found = 0;
+        for (int years = startYears; found < count; years++) {
+            LocalDate occurrence = lunar
+                    ? LunarCalendar.inYear(lunarDate, lunarDate.getYear() + years)
+                    : AnniversaryOccurrences.inYear(date, date.getYear() + years);
+            if (occurrence == null) {
+                // 超出农历表范围
+                return;
+            }
+            if (!occurrence.isBefore(today)) {
+                result.add(milestone(TYPE_YEARS, years, occurrence, today));
+                found++;
+            }
+        }
+    }
+
+    private static MilestoneDTO milestone(String type, int value, LocalDate date, LocalDate today) {
+        MilestoneDTO dto = new MilestoneDTO();
+        dto.setType(type);
+        dto.setValue(value);
+        dto.setDate(date);
+        dto.setDaysRemaining(ChronoUnit.DAYS.between(today, date));
+        return dto;
+    }
+}
@@ -0,0 +1,219 @@
+package com.couple.space.security;
+
+import com.couple.space.common.BusinessException;
+import com.couple.space.common.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 密码校验器
+ * 在独立的有界线程池中执行密码校验和哈希，避免BCrypt的CPU开销占满请求线程
+ * 特点：
+ * 1. 线程数固定，登录和注册高峰最多占用这些线程的CPU，其他接口不受影响
+ * 2. 等待队列有界，队列满时立即拒绝，不让请求无限堆积
+ * 3. 兼容旧格式：库中保存的是前端加密后的密码时使用常量时间比较，
+ *    校验通过后返回需要重新哈希的结果，由调用方升级为BCrypt
+ * 4. 用户不存在时对固定的哈希做一次同样的校验，响应时间不暴露用户名是否存在
+ */
+@Slf4j
+@Component
+public class CredentialVerifier {
+    /**
+     * 校验结果
+     */
+    public enum Result {
+        /**
+         * 密码正确
+         */
+        MATCHED,
+        /**
+         * 密码正确，但库中仍是旧格式，需要重新哈希
+         */
+        MATCHED_NEEDS_REHASH,
+        /**
+         * 密码错误
+         */
+        MISMATCHED
+    }
+
+    /**
+     * 校验繁忙异常
+     * 线程池队列已满或等待超时时抛出
+     */
+    public static class BusyException extends BusinessException {
+        public BusyException(String message) {
+            super(ErrorCode.SERVICE_BUSY, message);
+        }
+    }
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 用户不存在时用于校验的哈希，与真实密码使用相同的强度
+     */
+    private final String dummyHash;
+
+    /**
+     * 等待校验结果的超时时间，单位为毫秒
+     */
+    private final long timeoutMillis;
+
+    /**
+     * 因繁忙被拒绝的校验次数
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    public CredentialVerifier(PasswordEncoder passwordEncoder,
+                              @Value("${login.verifier.threads:0}") int threads,
+                              @Value("${login.verifier.queue-capacity:64}") int queueCapacity,
+                              @Value("${login.verifier.timeout:3000}") long timeoutMillis) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMillis = timeoutMillis;
+        // 默认使用一半的CPU核数，给其他接口留出余量
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "credential-verifier-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.dummyHash = passwordEncoder.encode(UUID.randomUUID().toString());
+        log.info("密码校验线程池已创建 - 线程数: {}, 队列容量: {}", poolSize, queueCapacity);
+    }
+
+    /**
+     * 校验密码
+     * @param rawPassword 前端加密后的密码
+     * @param storedPassword 库中保存的密码
+     * @return 校验结果
+     */
+    public Result verify(String rawPassword, String storedPassword) {
+        if (rawPassword == null || storedPassword == null) {
+            return Result.MISMATCHED;
+        }
+        if (!isEncoded(storedPassword)) {
+            // 旧格式的比较很便宜，不需要进入线程池
+            return constantTimeEquals(rawPassword, storedPassword) ? Result.MATCHED_NEEDS_REHASH : Result.MISMATCHED;
+        }
+        return passwordEncoder.matches(rawPassword, storedPassword) ? Result.MATCHED : Result.MISMATCHED;
+    }
+
+    /**
+     * 在校验线程池中校验密码，调用线程只等待结果
+     * @param rawPassword 前端加密后的密码
+     * @param storedPassword 库中保存的密码
+     * @return 校验结果
+     * @throws BusyException 队列已满或等待超时
+     */
+    public Result verifyBounded(String rawPassword, String storedPassword) {
+        if (rawPassword == null || storedPassword == null || !isEncoded(storedPassword)) {
+            return verify(rawPassword, storedPassword);
+        }
+        return runBounded(() -> verify(rawPassword, storedPassword), "登录人数过多，请稍后再试");
+    }
+
+    /**
+     * 用户不存在时在校验线程池中对固定的哈希做一次校验，耗时与用户存在时相同
+     * @param rawPassword 前端加密后的密码
+     * @throws BusyException 队列已满或等待超时
+     */
+    public void verifyUnknownUser(String rawPassword) {
+        verifyBounded(rawPassword == null ? "" : rawPassword, dummyHash);
+    }
+
+    /**
+     * 在校验线程池中对前端加密后的密码进行哈希
+     * @param rawPassword 前端加密后的密码
+     * @return 哈希后的密码
+     * @throws BusyException 队列已满或等待超时
+     */
+    public String encode(String rawPassword) {
+        return runBounded(() -> passwordEncoder.encode(rawPassword), "请求人数过多，请稍后再试");
+    }
+
+    /**
+     * 在校验线程池中执行任务，调用线程只等待结果
+     */
+    private <T> T runBounded(Callable<T> task, String busyMessage) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new BusyException(busyMessage);
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new BusyException(busyMessage);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new BusyException("请求已中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * 库中保存的密码是否已经是BCrypt格式
+     * @param storedPassword 库中保存的密码
+     * @return 是否已哈希
+     */
+    public static boolean isEncoded(String storedPassword) {
+        return storedPassword.length() == 60
+                && (storedPassword.startsWith("$2a$") || storedPassword.startsWith("$2b$") || storedPassword.startsWith("$2y$"));
+    }
+
+    /**
+     * 常量时间比较，比较耗时与第一个不同字符的位置无关
+     */
+    private static boolean constantTimeEquals(String a, String b) {
+        return MessageDigest.isEqual(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 定期输出线程池状态
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void logStats() {
+        long rejectedCount = rejected.sumThenReset();
+        if (rejectedCount > 0) {
+            log.warn("密码校验繁忙 - 本周期拒绝: {}, 活动线程: {}, 排队: {}",
+                    rejectedCount, executor.getActiveCount(), executor.getQueue().size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
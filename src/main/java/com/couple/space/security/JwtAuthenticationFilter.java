@@ -1,9 +1,11 @@
 package com.couple.space.security;
 
+import com.couple.space.common.RateLimitedLogger;
+import io.jsonwebtoken.Claims;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -12,6 +14,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JWT认证过滤器
@@ -19,11 +22,17 @@ import java.io.IOException;
  * 继承OncePerRequestFilter确保每个请求只被过滤一次
  * 主要功能：
  * 1. 从请求头中提取JWT令牌
- * 2. 验证JWT令牌
- * 3. 设置认证信息
+ * 2. 验证JWT令牌并检查是否已被吊销
+ * 3. 根据令牌声明设置认证信息
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    /**
+     * 认证失败日志，每分钟最多输出10条
+     */
+    private static final RateLimitedLogger AUTH_FAILURE_LOG =
+            new RateLimitedLogger(LoggerFactory.getLogger(JwtAuthenticationFilter.class), 10, 1, TimeUnit.MINUTES);
+
     /**
      * JWT令牌提供者
      * 用于：
@@ -34,22 +43,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtTokenProvider jwtTokenProvider;
     
     /**
-     * 用户详情服务
+     * 令牌吊销存储
      * 用于：
-     * - 加载用户信息
-     * - 构建认证对象
+     * - 在内存中判断令牌是否已被吊销
      */
     @Autowired
-    private CustomUserDetailsService userDetailsService;
+    private TokenRevocationStore revocationStore;
+
+    /**
+     * 公开路由和不带令牌的请求不需要认证，直接跳过过滤器
+     * @param request HTTP请求
+     * @return 是否跳过
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return PublicRoutes.matches(request) || request.getHeader("Authorization") == null;
+    }
 
     /**
      * 执行过滤
      * 流程：
-     * 1. 从请求头中获取JWT令牌
-     * 2. 验证令牌
-     * 3. 从令牌中获取用户名
-     * 4. 加载用户信息
-     * 5. 设置认证信息
+     * 1. 从请求头中获取并解析访问令牌
+     * 2. 检查令牌是否已被吊销
+     * 3. 从令牌声明中还原用户信息，不查询数据库
+     * 4. 设置认证信息
      * @param request HTTP请求
      * @param response HTTP响应
      * @param filterChain 过滤器链
@@ -59,22 +76,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
-        // 如果是登录或注册接口，直接放行
-        if (request.getRequestURI().equals("/api/users/login") || 
-            request.getRequestURI().equals("/api/users/register")) {
-            filterChain.doFilter(request, response);
-            return;
-        }
-
         try {
-            // 从请求头中获取JWT令牌
-            String jwt = getJwtFromRequest(request);
+            // 解析访问令牌，限流过滤器已经解析过时直接复用
+            Claims claims = jwtTokenProvider.resolveAccessClaims(request);
 
-            if (jwt != null && jwtTokenProvider.validateToken(jwt)) {
-                // 从令牌中获取用户名
-                String username = jwtTokenProvider.getUsernameFromToken(jwt);
-                // 加载用户信息
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            if (claims != null && !revocationStore.isRevoked(claims.getId())) {
+                // 从令牌声明中还原用户信息
+                JwtUser userDetails = new JwtUser(JwtTokenProvider.getUserId(claims), claims.getSubject(),
+                        JwtTokenProvider.getTimeZone(claims));
                 // 创建认证令牌
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
@@ -84,28 +93,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 SecurityContextHolder.getContext().setAuthentication(authentication);
             }
         } catch (Exception ex) {
-            logger.error("无法设置用户认证", ex);
+            AUTH_FAILURE_LOG.warn("无法设置用户认证: {}", ex.toString());
         }
 
         // 继续过滤器链
         filterChain.doFilter(request, response);
     }
-
-    /**
-     * 从请求头中获取JWT令牌
-     * 流程：
-     * 1. 从Authorization请求头中获取令牌
-     * 2. 如果令牌存在且以"Bearer "开头，则提取令牌
-     * @param request HTTP请求
-     * @return JWT令牌
-     */
-    private String getJwtFromRequest(HttpServletRequest request) {
-        // 从Authorization请求头中获取令牌
-        String bearerToken = request.getHeader("Authorization");
-        // 如果令牌存在且以"Bearer "开头，则提取令牌
-        if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
-            return bearerToken.substring(7);
-        }
-        return null;
-    }
-} 
\ No newline at end of file
+}
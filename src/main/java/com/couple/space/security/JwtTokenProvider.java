@@ -1,30 +1,70 @@
 package com.couple.space.security;
 
+import com.couple.space.common.RateLimitedLogger;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JWT令牌提供者
  * 负责JWT令牌的生成、验证和解析
  * 主要功能：
- * 1. 生成JWT令牌
+ * 1. 生成短期访问令牌和长期刷新令牌
  * 2. 验证JWT令牌
  * 3. 从令牌中提取用户信息
+ * 访问令牌携带用户ID、用户名和时区，验证时不需要查询数据库
  */
 @Component
 public class JwtTokenProvider {
     /**
      * JWT签名密钥
-     * 使用一个足够长的随机字符串作为密钥
-     * 注意：在实际生产环境中，应该从配置文件中读取
+     * 未配置jwt.secret时使用
      */
     private static final String SECRET_KEY = "your-secret-key-must-be-at-least-256-bits-long-for-HS256";
-    
+
+    /**
+     * 无效令牌日志，每分钟最多输出10条
+     */
+    private static final RateLimitedLogger INVALID_TOKEN_LOG =
+            new RateLimitedLogger(LoggerFactory.getLogger(JwtTokenProvider.class), 10, 1, TimeUnit.MINUTES);
+
+    /**
+     * 令牌类型声明
+     */
+    private static final String CLAIM_TYPE = "typ";
+
+    /**
+     * 用户ID声明
+     */
+    private static final String CLAIM_USER_ID = "uid";
+
+    /**
+     * 时区声明，只在访问令牌中
+     */
+    private static final String CLAIM_TIME_ZONE = "tz";
+
+    private static final String TYPE_ACCESS = "access";
+    private static final String TYPE_REFRESH = "refresh";
+
+    /**
+     * 请求属性名，缓存本次请求已解析的访问令牌声明
+     */
+    private static final String CLAIMS_ATTRIBUTE = JwtTokenProvider.class.getName() + ".CLAIMS";
+
+    /**
+     * 请求属性值，表示本次请求没有有效的访问令牌
+     */
+    private static final Object NO_CLAIMS = new Object();
+
     /**
      * JWT签名密钥
      * 用于：
@@ -32,40 +72,80 @@ public class JwtTokenProvider {
      * - 验证JWT令牌
      */
     private final Key jwtSigningKey;
-    
+
+    /**
+     * JWT解析器，线程安全，复用以免每次请求重新构建
+     */
+    private final JwtParser jwtParser;
+
     /**
-     * JWT令牌的有效期（毫秒）
-     * 设置为24小时
-     * 用于控制令牌的过期时间
+     * 访问令牌的有效期（毫秒）
      */
-    private static final long JWT_EXPIRATION = 86400000;
+    private final long accessTokenTtl;
+
+    /**
+     * 刷新令牌的有效期（毫秒）
+     */
+    private final long refreshTokenTtl;
 
     /**
      * 构造函数
+     * @param secret 签名密钥，为空时使用默认密钥
+     * @param accessTokenTtl 访问令牌有效期，默认15分钟
+     * @param refreshTokenTtl 刷新令牌有效期，默认14天
+     */
+    public JwtTokenProvider(@Value("${jwt.secret:}") String secret,
+                            @Value("${jwt.access-token-ttl:900000}") long accessTokenTtl,
+                            @Value("${jwt.refresh-token-ttl:1209600000}") long refreshTokenTtl) {
+        String key = secret == null || secret.isEmpty() ? SECRET_KEY : secret;
+        this.jwtSigningKey = Keys.hmacShaKeyFor(key.getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(jwtSigningKey).build();
+        this.accessTokenTtl = accessTokenTtl;
+        this.refreshTokenTtl = refreshTokenTtl;
+    }
+
+    /**
+     * 生成访问令牌
+     * @param userId 用户ID
+     * @param username 用户名
+     * @param timeZone 用户时区，可以为空
+     * @return 访问令牌
      */
-    public JwtTokenProvider() {
-        this.jwtSigningKey = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+    public String generateAccessToken(Long userId, String username, String timeZone) {
+        return generate(userId, username, timeZone, TYPE_ACCESS, accessTokenTtl);
+    }
+
+    /**
+     * 生成刷新令牌
+     * @param userId 用户ID
+     * @param username 用户名
+     * @return 刷新令牌
+     */
+    public String generateRefreshToken(Long userId, String username) {
+        // 时区可能在刷新令牌有效期内修改，刷新时从数据库读取
+        return generate(userId, username, null, TYPE_REFRESH, refreshTokenTtl);
     }
 
     /**
      * 生成JWT令牌
      * 流程：
-     * 1. 从认证信息中获取用户信息
-     * 2. 设置令牌的签发时间和过期时间
+     * 1. 设置令牌的签发时间和过期时间
+     * 2. 写入用户名、用户ID、时区、令牌类型和唯一ID
      * 3. 使用签名密钥生成令牌
-     * @param authentication 认证信息
-     * @return JWT令牌
      */
-    public String generateToken(Authentication authentication) {
-        // 从认证信息中获取用户信息
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        // 设置令牌的签发时间和过期时间
+    private String generate(Long userId, String username, String timeZone, String type, long ttl) {
         Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + JWT_EXPIRATION);
+        Date expiryDate = new Date(now.getTime() + ttl);
 
-        // 生成JWT令牌
-        return Jwts.builder()
-                .setSubject(userDetails.getUsername())  // 设置主题（用户名）
+        JwtBuilder builder = Jwts.builder()
+                .setId(UUID.randomUUID().toString())  // 设置唯一ID，用于吊销
+                .setSubject(username)  // 设置主题（用户名）
+                .claim(CLAIM_USER_ID, userId)  // 设置用户ID
+                .claim(CLAIM_TYPE, type);  // 设置令牌类型
+        if (timeZone != null) {
+            builder.claim(CLAIM_TIME_ZONE, timeZone);  // 设置时区
+        }
+        return builder
                 .setIssuedAt(now)  // 设置签发时间
                 .setExpiration(expiryDate)  // 设置过期时间
                 .signWith(jwtSigningKey)  // 使用签名密钥
@@ -73,44 +153,96 @@ public class JwtTokenProvider {
     }
 
     /**
-     * 从令牌中获取用户名
-     * 流程：
-     * 1. 解析JWT令牌
-     * 2. 获取令牌中的主题（用户名）
+     * 访问令牌的有效期（毫秒）
+     * @return 有效期
+     */
+    public long getAccessTokenTtl() {
+        return accessTokenTtl;
+    }
+
+    /**
+     * 解析访问令牌
      * @param token JWT令牌
-     * @return 用户名
-     */
-    public String getUsernameFromToken(String token) {
-        // 解析JWT令牌
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(jwtSigningKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        // 获取令牌中的主题（用户名）
-        return claims.getSubject();
+     * @return 令牌声明，令牌无效或不是访问令牌时返回null
+     */
+    public Claims parseAccessToken(String token) {
+        return parse(token, TYPE_ACCESS);
     }
 
     /**
-     * 验证JWT令牌
-     * 流程：
-     * 1. 尝试解析JWT令牌
-     * 2. 如果解析成功，说明令牌有效
-     * 3. 如果解析失败，说明令牌无效
+     * 解析刷新令牌
      * @param token JWT令牌
-     * @return 是否有效
+     * @return 令牌声明，令牌无效或不是刷新令牌时返回null
      */
-    public boolean validateToken(String token) {
+    public Claims parseRefreshToken(String token) {
+        return parse(token, TYPE_REFRESH);
+    }
+
+    private Claims parse(String token, String expectedType) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
         try {
-            // 尝试解析JWT令牌
-            Jwts.parserBuilder()
-                    .setSigningKey(jwtSigningKey)
-                    .build()
-                    .parseClaimsJws(token);
-            return true;  // 令牌有效
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
+            if (!expectedType.equals(claims.get(CLAIM_TYPE, String.class))
+                    || claims.getId() == null || claims.get(CLAIM_USER_ID) == null) {
+                return null;
+            }
+            return claims;
+        } catch (ExpiredJwtException e) {
+            // 过期是正常情况，客户端会用刷新令牌换取新的访问令牌
+            return null;
         } catch (JwtException | IllegalArgumentException e) {
-            return false;  // 令牌无效
+            INVALID_TOKEN_LOG.warn("无效的JWT令牌: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 解析请求中的访问令牌，结果缓存在请求属性中
+     * 限流过滤器和认证过滤器共用一次解析
+     * @param request HTTP请求
+     * @return 令牌声明，没有有效的访问令牌时返回null
+     */
+    public Claims resolveAccessClaims(HttpServletRequest request) {
+        Object cached = request.getAttribute(CLAIMS_ATTRIBUTE);
+        if (cached != null) {
+            return cached == NO_CLAIMS ? null : (Claims) cached;
+        }
+        Claims claims = parseAccessToken(getBearerToken(request));
+        request.setAttribute(CLAIMS_ATTRIBUTE, claims == null ? NO_CLAIMS : claims);
+        return claims;
+    }
+
+    /**
+     * 从令牌声明中获取用户ID
+     * @param claims 令牌声明
+     * @return 用户ID
+     */
+    public static Long getUserId(Claims claims) {
+        Object value = claims.get(CLAIM_USER_ID);
+        return value instanceof Number ? ((Number) value).longValue() : Long.valueOf(value.toString());
+    }
+
+    /**
+     * 从令牌声明中获取时区
+     * @param claims 令牌声明
+     * @return 时区ID，令牌中没有时返回null
+     */
+    public static String getTimeZone(Claims claims) {
+        return claims.get(CLAIM_TIME_ZONE, String.class);
+    }
+
+    /**
+     * 从请求头中获取Bearer令牌
+     * @param request HTTP请求
+     * @return 令牌，没有时返回null
+     */
+    public static String getBearerToken(HttpServletRequest request) {
+        String bearerToken = request.getHeader("Authorization");
+        if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
         }
+        return null;
     }
-} 
\ No newline at end of file
+}
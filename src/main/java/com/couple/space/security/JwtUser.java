@@ -0,0 +1,34 @@
+package com.couple.space.security;
+
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+
+/**
+ * 从访问令牌中还原的当前用户
+ * 用户ID、用户名和时区都来自令牌声明，构建时不访问数据库
+ */
+public class JwtUser extends User {
+    /**
+     * 用户ID
+     */
+    private final Long id;
+
+    /**
+     * 时区ID，未设置时为null
+     */
+    private final String timeZone;
+
+    public JwtUser(Long id, String username, String timeZone) {
+        super(username, "", AuthorityUtils.createAuthorityList("ROLE_USER"));
+        this.id = id;
+        this.timeZone = timeZone;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTimeZone() {
+        return timeZone;
+    }
+}
@@ -0,0 +1,60 @@
+package com.couple.space.security;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 公开路由
+ * 不需要识别用户身份的路由，SecurityConfig据此放行，JWT认证过滤器据此直接跳过
+ * 两处共用同一份预编译的匹配器，避免规则不一致
+ */
+public final class PublicRoutes {
+    /**
+     * 公开路由的路径模式
+     */
+    private static final String[] PATTERNS = {
+            "/api/users/register",  // 注册
+            "/api/users/login",  // 登录
+            "/api/users/refresh",  // 刷新令牌
+            "/api/users/logout",  // 退出登录，令牌由接口自行解析
+            "/api/weather/**"  // 天气接口
+    };
+
+    private static final RequestMatcher MATCHER = compile();
+
+    private PublicRoutes() {
+    }
+
+    private static RequestMatcher compile() {
+        List<RequestMatcher> matchers = new ArrayList<>();
+        // 所有OPTIONS预检请求
+        matchers.add(new AntPathRequestMatcher("/**", HttpMethod.OPTIONS.name()));
+        for (String pattern : PATTERNS) {
+            matchers.add(new AntPathRequestMatcher(pattern));
+        }
+        return new OrRequestMatcher(matchers);
+    }
+
+    /**
+     * 公开路由的匹配器
+     * @return 请求匹配器
+     */
+    public static RequestMatcher matcher() {
+        return MATCHER;
+    }
+
+    /**
+     * 请求是否是公开路由
+     * @param request HTTP请求
+     * @return 是否公开
+     */
+    public static boolean matches(HttpServletRequest request) {
+        return MATCHER.matches(request);
+    }
+}
@@ -0,0 +1,218 @@
+package com.couple.space.security;
+
+import com.couple.space.common.ErrorCode;
+import com.couple.space.common.FailureStatistics;
+import com.couple.space.config.RateLimitProperties;
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 限流过滤器
+ * 位于JWT认证过滤器之前，按路由规则对客户端IP和JWT主题分别限流
+ * 特点：
+ * 1. 路由规则在启动时预编译，匹配顺序与配置一致
+ * 2. 每个键一个无锁令牌桶，空闲的桶只由定时任务清理，桶总数达到上限后新键共享规则的溢出桶
+ * 3. IP和用户两个桶都有令牌时才同时消耗，被任一个桶拒绝的请求不消耗另一个桶的令牌
+ * 4. 被限流的请求直接返回预先编码好的429响应，不访问数据库
+ */
+@Slf4j
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    /**
+     * 预先编码的429响应体
+     */
+    private static final byte[] TOO_MANY_REQUESTS_BODY =
+            ("{\"state\":\"fail\",\"code\":" + ErrorCode.TOO_MANY_REQUESTS.getCode()
+                    + ",\"msg\":\"" + ErrorCode.TOO_MANY_REQUESTS.getMessage() + "\",\"data\":null}").getBytes(StandardCharsets.UTF_8);
+
+    private final RateLimitProperties properties;
+    private final JwtTokenProvider jwtTokenProvider;
+
+    /**
+     * 预编译的路由规则
+     */
+    private final List<CompiledRule> rules;
+
+    /**
+     * 键到令牌桶的映射，键的格式为"规则序号|ip|地址"或"规则序号|user|用户名"
+     */
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * 被拒绝的请求数
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    public RateLimitFilter(RateLimitProperties properties, JwtTokenProvider jwtTokenProvider) {
+        this.properties = properties;
+        this.jwtTokenProvider = jwtTokenProvider;
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (int i = 0; i < properties.getRules().size(); i++) {
+            compiled.add(new CompiledRule(i, properties.getRules().get(i)));
+        }
+        this.rules = Collections.unmodifiableList(compiled);
+    }
+
+    /**
+     * 预编译的路由规则，溢出桶在键数量超过上限时由该规则下的新键共享
+     */
+    private static final class CompiledRule {
+        final String prefix;
+        final AntPathRequestMatcher matcher;
+        final RateLimitProperties.Rule rule;
+        final TokenBucket overflowBucket;
+
+        CompiledRule(int index, RateLimitProperties.Rule rule) {
+            this.prefix = index + "|";
+            this.matcher = new AntPathRequestMatcher(rule.getPattern());
+            this.rule = rule;
+            this.overflowBucket = new TokenBucket(rule.getCapacity(), rule.getRefillPerSecond(), System.nanoTime());
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || rules.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CompiledRule matched = match(request);
+        if (matched != null) {
+            long now = System.nanoTime();
+            TokenBucket ipBucket = matched.rule.isPerIp() ? bucketOf(matched, "ip|" + clientIp(request), now) : null;
+            TokenBucket userBucket = null;
+            if (matched.rule.isPerUser()) {
+                String subject = subjectOf(request);
+                if (subject != null) {
+                    userBucket = bucketOf(matched, "user|" + subject, now);
+                }
+            }
+            long wait = acquire(ipBucket, userBucket, now);
+            if (wait > 0) {
+                reject(response, wait);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * 定期清理已经补满的令牌桶
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void evictIdleBuckets() {
+        int before = buckets.size();
+        removeIdleBuckets(System.nanoTime());
+        long rejectedCount = rejected.sumThenReset();
+        if (rejectedCount > 0) {
+            log.info("限流统计: 本周期拒绝 {} 次，令牌桶 {} -> {}", rejectedCount, before, buckets.size());
+        }
+    }
+
+    private void removeIdleBuckets(long now) {
+        buckets.values().removeIf(bucket -> bucket.isIdle(now));
+    }
+
+    private CompiledRule match(HttpServletRequest request) {
+        for (CompiledRule rule : rules) {
+            if (rule.matcher.matches(request)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取键的令牌桶
+     * 桶总数达到上限时不在请求线程上清理，新键使用规则的溢出桶，直到定时清理腾出空间
+     */
+    private TokenBucket bucketOf(CompiledRule rule, String key, long now) {
+        String bucketKey = rule.prefix + key;
+        TokenBucket bucket = buckets.get(bucketKey);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= properties.getMaxBuckets()) {
+            return rule.overflowBucket;
+        }
+        return buckets.computeIfAbsent(bucketKey,
+                k -> new TokenBucket(rule.rule.getCapacity(), rule.rule.getRefillPerSecond(), now));
+    }
+
+    /**
+     * 两个桶都有令牌时才同时消耗
+     * @param first 第一个桶，可以为null
+     * @param second 第二个桶，可以为null
+     * @param now 当前时间（System.nanoTime）
+     * @return 0表示获取成功；大于0表示需要等待的纳秒数
+     */
+    private long acquire(TokenBucket first, TokenBucket second, long now) {
+        long wait = Math.max(first == null ? 0 : first.peek(now), second == null ? 0 : second.peek(now));
+        if (wait > 0) {
+            return wait;
+        }
+        if (first != null) {
+            wait = first.tryAcquire(now);
+            if (wait > 0) {
+                return wait;
+            }
+        }
+        if (second != null && second != first) {
+            wait = second.tryAcquire(now);
+            if (wait > 0 && first != null) {
+                // 检查之后被并发请求抢先，撤销第一个桶的消耗
+                first.release();
+            }
+        }
+        return wait;
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        rejected.increment();
+        FailureStatistics.record(ErrorCode.TOO_MANY_REQUESTS);
+        long retryAfterSeconds = Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        response.setStatus(ErrorCode.TOO_MANY_REQUESTS.getStatus().value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentLength(TOO_MANY_REQUESTS_BODY.length);
+        response.getOutputStream().write(TOO_MANY_REQUESTS_BODY);
+    }
+
+    private String clientIp(HttpServletRequest request) {
+        if (properties.isTrustForwardedFor()) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isEmpty()) {
+                int comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private String subjectOf(HttpServletRequest request) {
+        Claims claims = jwtTokenProvider.resolveAccessClaims(request);
+        return claims == null ? null : claims.getSubject();
+    }
+}
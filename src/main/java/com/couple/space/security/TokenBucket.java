@@ -0,0 +1,78 @@
+package com.couple.space.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶
+ * 使用GCRA（通用信元速率算法）实现，整个桶状态只有一个"理论到达时间"，
+ * 每次获取令牌只需一次CAS，不需要加锁
+ */
+public class TokenBucket {
+    /**
+     * 补充一个令牌所需的纳秒数
+     */
+    private final long intervalNanos;
+
+    /**
+     * 允许的突发窗口，等于容量乘以补充间隔
+     */
+    private final long burstNanos;
+
+    /**
+     * 理论到达时间，早于当前时间表示桶已满
+     */
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(int capacity, double refillPerSecond, long nowNanos) {
+        this.intervalNanos = Math.max(1L, (long) (1_000_000_000L / refillPerSecond));
+        this.burstNanos = intervalNanos * Math.max(1, capacity);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * 尝试获取一个令牌
+     * @param nowNanos 当前时间（System.nanoTime）
+     * @return 0表示获取成功；大于0表示需要等待的纳秒数
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long next = Math.max(tat, nowNanos) + intervalNanos;
+            long wait = next - nowNanos - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 查询获取一个令牌需要等待的时间，不消耗令牌
+     * @param nowNanos 当前时间（System.nanoTime）
+     * @return 0表示现在可以获取；大于0表示需要等待的纳秒数
+     */
+    public long peek(long nowNanos) {
+        long wait = Math.max(theoreticalArrival.get(), nowNanos) + intervalNanos - nowNanos - burstNanos;
+        return Math.max(0L, wait);
+    }
+
+    /**
+     * 归还一个已获取的令牌
+     * 用于同一个请求的其他桶被拒绝时撤销本桶的消耗
+     */
+    public void release() {
+        theoreticalArrival.addAndGet(-intervalNanos);
+    }
+
+    /**
+     * 桶是否已经补满
+     * 补满的桶与新建的桶等价，可以安全地清理
+     * @param nowNanos 当前时间（System.nanoTime）
+     * @return 是否空闲
+     */
+    public boolean isIdle(long nowNanos) {
+        return theoreticalArrival.get() - nowNanos <= 0;
+    }
+}
@@ -0,0 +1,215 @@
+package com.couple.space.security;
+
+import com.couple.space.common.BusinessException;
+import com.couple.space.common.ErrorCode;
+import com.couple.space.entity.RevokedToken;
+import com.couple.space.job.ClusterJobScheduler;
+import com.couple.space.mapper.RevokedTokenMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 令牌吊销存储
+ * 内存中保存尚未过期的已吊销令牌ID，前面加一层布隆过滤器，数据库表用于持久化和多实例同步
+ * 特点：
+ * 1. 每次请求的吊销检查只访问内存：绝大多数令牌未被吊销，布隆过滤器读几个位即可判定
+ * 2. 吊销时同步写入数据库，重启后从数据库加载
+ * 3. 定期拉取其他实例新增的吊销记录，吊销时间和同步游标都使用数据库时间
+ * 4. 定期清理内存中已过期的记录并重建布隆过滤器，数据库中的过期记录由一个实例清理
+ */
+@Slf4j
+@Component
+public class TokenRevocationStore {
+    /**
+     * 拉取增量时向前多取的时间，覆盖写入时取得吊销时间之后才提交的记录
+     */
+    private static final long SYNC_OVERLAP_SECONDS = 5;
+
+    private final RevokedTokenMapper revokedTokenMapper;
+    private final int expectedEntries;
+
+    /**
+     * 令牌ID到过期时间（毫秒时间戳）的映射
+     */
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    /**
+     * 前置布隆过滤器，重建时整体替换
+     */
+    private volatile BloomFilter bloomFilter;
+
+    /**
+     * 是否已从数据库完成全量加载
+     */
+    private volatile boolean loaded;
+
+    /**
+     * 上次同步时的数据库时间
+     */
+    private volatile LocalDateTime lastSync;
+
+    public TokenRevocationStore(RevokedTokenMapper revokedTokenMapper,
+                                ClusterJobScheduler jobScheduler,
+                                @Value("${jwt.revocation.expected-entries:100000}") int expectedEntries) {
+        this.revokedTokenMapper = revokedTokenMapper;
+        this.expectedEntries = expectedEntries;
+        this.bloomFilter = new BloomFilter(expectedEntries, 0.01);
+        jobScheduler.register("revoked-token-purge", 3600000, 1, context -> {
+            int deleted = context.fenced(() -> revokedTokenMapper.deleteExpired(LocalDateTime.now()));
+            log.info("清理数据库中的过期令牌吊销记录: {} 条", deleted);
+        });
+    }
+
+    /**
+     * 应用启动后从数据库加载尚未过期的吊销记录
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            // 先取得游标再加载，加载期间的吊销在下次同步时再次拉取
+            LocalDateTime syncFrom = revokedTokenMapper.selectNow();
+            List<RevokedToken> tokens = revokedTokenMapper.findActive(LocalDateTime.now());
+            for (RevokedToken token : tokens) {
+                put(token.getJti(), toMillis(token.getExpiresAt()));
+            }
+            lastSync = syncFrom;
+            loaded = true;
+            log.info("已加载 {} 条令牌吊销记录", tokens.size());
+        } catch (Exception e) {
+            log.error("加载令牌吊销记录失败，将在下次同步时重试: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 令牌是否已被吊销
+     * @param jti 令牌ID
+     * @return 是否已吊销
+     */
+    public boolean isRevoked(String jti) {
+        return bloomFilter.mightContain(jti) && revoked.containsKey(jti);
+    }
+
+    /**
+     * 吊销令牌，用于退出登录
+     * 数据库不可用时只在本实例内生效
+     * @param jti 令牌ID
+     * @param userId 令牌所属的用户ID
+     * @param expiration 令牌的过期时间
+     */
+    public void revoke(String jti, Long userId, Date expiration) {
+        if (revoked.putIfAbsent(jti, expiration.getTime()) != null) {
+            return;
+        }
+        addToBloomFilter(jti);
+        try {
+            revokedTokenMapper.insert(toRecord(jti, userId, expiration));
+        } catch (Exception e) {
+            // 本实例内吊销仍然生效，只是重启或其他实例暂时看不到
+            log.error("令牌吊销记录持久化失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 一次性使用令牌，用于刷新令牌
+     * 由数据库主键判定是否是第一次使用，多个实例并发使用同一个令牌时只有一个成功
+     * @param jti 令牌ID
+     * @param userId 令牌所属的用户ID
+     * @param expiration 令牌的过期时间
+     * @return 是否是本次使用的，已经被使用或吊销过时返回false
+     * @throws BusinessException 数据库不可用，无法判定时拒绝使用
+     */
+    public boolean consume(String jti, Long userId, Date expiration) {
+        if (isRevoked(jti)) {
+            return false;
+        }
+        int inserted;
+        try {
+            inserted = revokedTokenMapper.insert(toRecord(jti, userId, expiration));
+        } catch (Exception e) {
+            log.error("令牌吊销记录写入失败，拒绝刷新: {}", e.getMessage());
+            throw new BusinessException(ErrorCode.SERVICE_BUSY);
+        }
+        put(jti, expiration.getTime());
+        return inserted > 0;
+    }
+
+    /**
+     * 同步其他实例新增的吊销记录
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval:30000}")
+    public void sync() {
+        if (!loaded) {
+            load();
+            return;
+        }
+        try {
+            LocalDateTime now = revokedTokenMapper.selectNow();
+            List<RevokedToken> tokens = revokedTokenMapper.findRevokedSince(lastSync.minusSeconds(SYNC_OVERLAP_SECONDS));
+            for (RevokedToken token : tokens) {
+                put(token.getJti(), toMillis(token.getExpiresAt()));
+            }
+            lastSync = now;
+        } catch (Exception e) {
+            log.warn("同步令牌吊销记录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 清理内存中已过期的吊销记录，并用剩余记录重建布隆过滤器
+     */
+    @Scheduled(fixedDelay = 3600000)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        int before = revoked.size();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        rebuildBloomFilter();
+        log.info("清理过期令牌吊销记录 - 内存: {} -> {}", before, revoked.size());
+    }
+
+    private static RevokedToken toRecord(String jti, Long userId, Date expiration) {
+        RevokedToken token = new RevokedToken();
+        token.setJti(jti);
+        token.setUserId(userId);
+        token.setExpiresAt(LocalDateTime.ofInstant(expiration.toInstant(), ZoneId.systemDefault()));
+        return token;
+    }
+
+    private void put(String jti, long expiresAt) {
+        if (expiresAt > System.currentTimeMillis() && revoked.putIfAbsent(jti, expiresAt) == null) {
+            addToBloomFilter(jti);
+        }
+    }
+
+    /**
+     * 写入布隆过滤器
+     * 与重建互斥：先写入映射再进入同步块，重建要么在映射中看到它，要么在重建后再写入新过滤器
+     */
+    private synchronized void addToBloomFilter(String jti) {
+        bloomFilter.add(jti);
+    }
+
+    private synchronized void rebuildBloomFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revoked.size() * 2), 0.01);
+        for (String jti : revoked.keySet()) {
+            rebuilt.add(jti);
+        }
+        bloomFilter = rebuilt;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        Instant instant = time.atZone(ZoneId.systemDefault()).toInstant();
+        return instant.toEpochMilli();
+    }
+}
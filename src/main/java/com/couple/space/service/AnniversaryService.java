@@ -1,11 +1,18 @@
 package com.couple.space.service;
 
+import com.couple.space.dto.AnniversaryPatchDTO;
 import com.couple.space.entity.Anniversary;
+
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 纪念日服务接口
  * 定义纪念日相关的业务逻辑方法
+ * 按ID和按空间查询经过请求合并，每个调用方得到自己的纪念日副本，按空间查询返回的列表不可修改
+ * 按ID和按空间查询的结果可能由并发的调用方共享，调用方不能修改
  */
 public interface AnniversaryService {
     /**
@@ -15,42 +22,95 @@ public interface AnniversaryService {
      */
     Anniversary createAnniversary(Anniversary anniversary);
 
+    /**
+     * 批量创建纪念日，在同一个事务中插入
+     * @param anniversaries 纪念日列表
+     * @return 创建的纪念日列表
+     */
+    List<Anniversary> createAnniversaries(List<Anniversary> anniversaries);
+
     /**
      * 更新纪念日
-     * @param anniversary 纪念日对象
+     * @param anniversary 纪念日对象，版本号不为空时只在版本未变化时更新
      * @return 更新后的纪念日对象
+     * @throws com.couple.space.common.BusinessException 版本冲突
      */
     Anniversary updateAnniversary(Anniversary anniversary);
 
+    /**
+     * 部分更新纪念日
+     * 只写入与当前值不同的字段，没有变化时不执行更新
+     * 更新以读取时的版本号为条件，期间被其他请求修改时返回冲突和当前纪念日，不加锁
+     * @param id 纪念日ID
+     * @param spaceId 当前用户所在空间ID，纪念日不属于该空间时视为不存在
+     * @param patch 要更新的字段
+     * @param expectedVersion 客户端持有的版本号，为null时以本次读取的版本为准
+     * @return 更新结果
+     * @throws com.couple.space.common.BusinessException 更新后的农历日期超出支持范围
+     */
+    AnniversaryUpdateResult patchAnniversary(Long id, Long spaceId, AnniversaryPatchDTO patch, Integer expectedVersion);
+
     /**
      * 删除纪念日
      * @param id 纪念日ID
+     * @param spaceId 当前用户所在空间ID，纪念日不属于该空间时视为不存在
+     * @return 是否删除，纪念日不存在时返回false
      */
-    void deleteAnniversary(Long id);
+    boolean deleteAnniversary(Long id, Long spaceId);
 
     /**
      * 根据ID查询纪念日
      * @param id 纪念日ID
+     * @param today 用户时区的今天
      * @return 纪念日对象
      */
-    Anniversary getAnniversaryById(Long id);
+    Anniversary getAnniversaryById(Long id, LocalDate today);
+
+    /**
+     * 根据ID列表批量查询纪念日
+     * @param ids 纪念日ID列表，可以包含重复ID
+     * @param today 用户时区的今天
+     * @return 纪念日ID到纪念日的映射，不存在的ID不在映射中
+     */
+    Map<Long, Anniversary> getAnniversariesByIds(Collection<Long> ids, LocalDate today);
 
     /**
      * 查询用户的所有纪念日
      * @param userId 用户ID
-     * @return 纪念日列表
+     * @param today 用户时区的今天
+     * @return 纪念日列表，按剩余天数升序
+     */
+    List<Anniversary> getAnniversariesByUserId(Long userId, LocalDate today);
+
+    /**
+     * 查询情侣空间的所有纪念日
+     * @param spaceId 空间ID
+     * @param today 用户时区的今天
+     * @return 纪念日列表，按剩余天数升序，列表不可修改
+     */
+    List<Anniversary> getAnniversariesBySpaceId(Long spaceId, LocalDate today);
+
+    /**
+     * 查询情侣空间的所有纪念日，不经过请求合并
+     * 结果一定是调用之后读取的，供按版本号缓存结果的调用方使用：
+     * 加入一次更早开始的查询可能得到写入提交前的数据
+     * @param spaceId 空间ID
+     * @param today 用户时区的今天
+     * @return 纪念日列表，按剩余天数升序
      */
-    List<Anniversary> getAnniversariesByUserId(Long userId);
+    List<Anniversary> loadAnniversariesBySpaceId(Long spaceId, LocalDate today);
 
     /**
      * 查询下一个即将到来的纪念日
+     * @param today 今天
      * @return 下一个纪念日对象
      */
-    Anniversary getNextAnniversary();
+    Anniversary getNextAnniversary(LocalDate today);
 
     /**
      * 获取所有纪念日
-     * @return 纪念日列表
+     * @param today 今天
+     * @return 纪念日列表，按剩余天数升序
      */
-    List<Anniversary> getAllAnniversaries();
+    List<Anniversary> getAllAnniversaries(LocalDate today);
 } 
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.couple.space.service;
+
+import com.couple.space.entity.Anniversary;
+import lombok.Getter;
+
+/**
+ * 纪念日更新结果
+ * 版本冲突时携带数据库中的当前纪念日，客户端据此合并后重试
+ */
+@Getter
+public class AnniversaryUpdateResult {
+    /**
+     * 更新状态
+     */
+    public enum Status {
+        UPDATED,
+        UNCHANGED,
+        CONFLICT,
+        NOT_FOUND
+    }
+
+    /**
+     * 更新状态
+     */
+    private final Status status;
+
+    /**
+     * 更新后的纪念日，冲突时为当前纪念日，不存在时为null
+     */
+    private final Anniversary anniversary;
+
+    private AnniversaryUpdateResult(Status status, Anniversary anniversary) {
+        this.status = status;
+        this.anniversary = anniversary;
+    }
+
+    public static AnniversaryUpdateResult updated(Anniversary anniversary) {
+        return new AnniversaryUpdateResult(Status.UPDATED, anniversary);
+    }
+
+    public static AnniversaryUpdateResult unchanged(Anniversary anniversary) {
+        return new AnniversaryUpdateResult(Status.UNCHANGED, anniversary);
+    }
+
+    public static AnniversaryUpdateResult conflict(Anniversary current) {
+        return new AnniversaryUpdateResult(Status.CONFLICT, current);
+    }
+
+    public static AnniversaryUpdateResult notFound() {
+        return new AnniversaryUpdateResult(Status.NOT_FOUND, null);
+    }
+}
@@ -0,0 +1,46 @@
+package com.couple.space.service;
+
+import com.couple.space.entity.Space;
+import com.couple.space.entity.SpaceMember;
+
+import java.util.List;
+
+/**
+ * 情侣空间服务接口
+ * 定义空间和成员相关的业务逻辑方法，包括：
+ * 1. 解析用户所属的空间
+ * 2. 凭邀请码加入另一半的空间
+ */
+public interface SpaceService {
+    /**
+     * 解析用户所属的空间ID
+     * 结果缓存在内存中，请求路径上通常不查询数据库；用户还没有空间时创建一个个人空间
+     * @param userId 用户ID
+     * @return 空间ID
+     */
+    Long resolveSpaceId(Long userId);
+
+    /**
+     * 查询用户所属的空间
+     * @param userId 用户ID
+     * @return 空间对象
+     */
+    Space getSpace(Long userId);
+
+    /**
+     * 查询空间的所有成员
+     * @param spaceId 空间ID
+     * @return 成员列表
+     */
+    List<SpaceMember> getMembers(Long spaceId);
+
+    /**
+     * 凭邀请码加入另一半的空间
+     * 用户原来的个人空间中的纪念日一并移入新空间
+     * @param userId 用户ID
+     * @param inviteCode 邀请码
+     * @return 加入的空间
+     * @throws com.couple.space.common.BusinessException 邀请码无效、空间已满或已加入其他空间
+     */
+    Space joinSpace(Long userId, String inviteCode);
+}
@@ -4,7 +4,6 @@ import com.couple.space.entity.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import java.util.Optional;
 
 /**
  * 用户服务接口
@@ -18,7 +17,7 @@ public interface UserService extends UserDetailsService {
      * 注册新用户
      * @param user 要注册的用户对象
      * @return 注册成功的用户对象
-     * @throws RuntimeException 如果用户名已存在
+     * @throws com.couple.space.common.BusinessException 如果用户名已存在
      */
     User register(User user);
 
@@ -33,9 +32,26 @@ public interface UserService extends UserDetailsService {
      * 用户登录
      * @param username 用户名
      * @param encryptedPassword 前端加密后的密码
-     * @return 登录成功的用户信息，如果登录失败返回空
+     * @return 登录成功的用户信息
+     * @throws com.couple.space.common.BusinessException 用户不存在、密码错误或校验繁忙
      */
-    Optional<User> login(String username, String encryptedPassword);
+    User login(String username, String encryptedPassword);
+
+    /**
+     * 获取用户时区
+     * @param userId 用户ID
+     * @return 时区ID，未设置时返回null
+     */
+    String getTimeZone(Long userId);
+
+    /**
+     * 更新用户时区
+     * @param userId 用户ID
+     * @param timeZone 时区ID，如Asia/Shanghai
+     * @return 规范化后的时区ID
+     * @throws com.couple.space.common.BusinessException 时区ID无效或用户不存在
+     */
+    String updateTimeZone(Long userId, String timeZone);
 
     /**
      * 更新所有用户的密码
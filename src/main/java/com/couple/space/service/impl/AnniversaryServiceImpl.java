@@ -1,24 +1,68 @@
 package com.couple.space.service.impl;
 
+import com.couple.space.calendar.AnniversaryOccurrences;
+import com.couple.space.calendar.LunarCalendar;
+import com.couple.space.common.BusinessException;
+import com.couple.space.common.ErrorCode;
+import com.couple.space.common.SingleFlight;
+import com.couple.space.common.SingleFlightRegistry;
+import com.couple.space.dto.AnniversaryPatchDTO;
 import com.couple.space.entity.Anniversary;
+import com.couple.space.event.AnniversaryChangedEvent;
 import com.couple.space.mapper.AnniversaryMapper;
 import com.couple.space.service.AnniversaryService;
-import lombok.RequiredArgsConstructor;
+import com.couple.space.service.AnniversaryUpdateResult;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * 纪念日服务实现类
+ * 按ID和按空间的查询经过请求合并：同一空间的两台设备和多个组件同时打开时，
+ * 相同键（包括计算剩余天数的日期）的并发查询只访问一次数据库；
+ * 合并的结果只在请求合并内部共享，每个调用方得到自己的纪念日副本和不可修改的列表
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class AnniversaryServiceImpl implements AnniversaryService {
+    /**
+     * 按ID列表查询时每条语句的最大ID数
+     */
+    private static final int FIND_BY_IDS_CHUNK = 200;
+
     private final AnniversaryMapper anniversaryMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 按ID查询的请求合并，键为"纪念日ID:epoch day"
+     */
+    private final SingleFlight<String, Anniversary> byIdFlight;
+
+    /**
+     * 按空间查询的请求合并，键为"空间ID:epoch day"
+     */
+    private final SingleFlight<String, List<Anniversary>> bySpaceFlight;
+
+    public AnniversaryServiceImpl(AnniversaryMapper anniversaryMapper,
+                                  ApplicationEventPublisher eventPublisher,
+                                  SingleFlightRegistry singleFlightRegistry) {
+        this.anniversaryMapper = anniversaryMapper;
+        this.eventPublisher = eventPublisher;
+        this.byIdFlight = singleFlightRegistry.create("anniversary.detail");
+        this.bySpaceFlight = singleFlightRegistry.create("anniversary.space");
+    }
 
     @Override
     @Transactional
@@ -29,14 +73,41 @@ public class AnniversaryServiceImpl implements AnniversaryService {
         LocalDate now = LocalDate.now();
         anniversary.setCreatedAt(now);
         anniversary.setUpdatedAt(now);
+        anniversary.setVersion(0);
         
         // 插入数据库
         anniversaryMapper.insert(anniversary);
+        eventPublisher.publishEvent(AnniversaryChangedEvent.inserted(anniversary));
         
         log.info("纪念日创建成功，ID: {}", anniversary.getId());
         return anniversary;
     }
 
+    @Override
+    @Transactional
+    public List<Anniversary> createAnniversaries(List<Anniversary> anniversaries) {
+        log.info("批量创建纪念日: {} 个", anniversaries.size());
+        if (anniversaries.isEmpty()) {
+            return anniversaries;
+        }
+        
+        LocalDate now = LocalDate.now();
+        for (Anniversary anniversary : anniversaries) {
+            anniversary.setCreatedAt(now);
+            anniversary.setUpdatedAt(now);
+            anniversary.setVersion(0);
+        }
+        
+        // 一条语句插入所有行
+        anniversaryMapper.insertBatch(anniversaries);
+        for (Anniversary anniversary : anniversaries) {
+            eventPublisher.publishEvent(AnniversaryChangedEvent.inserted(anniversary));
+        }
+        
+        log.info("批量创建纪念日成功");
+        return anniversaries;
+    }
+
     @Override
     @Transactional
     public Anniversary updateAnniversary(Anniversary anniversary) {
@@ -45,58 +116,234 @@ public class AnniversaryServiceImpl implements AnniversaryService {
         // 设置更新时间
         anniversary.setUpdatedAt(LocalDate.now());
         
-        // 更新数据库
-        anniversaryMapper.update(anniversary);
+        // 更新数据库，指定了版本号时版本变化则不更新
+        if (anniversaryMapper.update(anniversary) == 0) {
+            throw new BusinessException(ErrorCode.VERSION_CONFLICT);
+        }
+        if (anniversary.getVersion() != null) {
+            anniversary.setVersion(anniversary.getVersion() + 1);
+        }
+        eventPublisher.publishEvent(AnniversaryChangedEvent.updated(anniversary));
         
         log.info("纪念日更新成功");
         return anniversary;
     }
 
+    /**
+     * 不在事务中执行：条件更新本身是原子的，冲突后重新读取需要看到其他请求已提交的版本，
+     * 在可重复读事务中重新读取只会得到事务开始时的快照
+     */
+    @Override
+    public AnniversaryUpdateResult patchAnniversary(Long id, Long spaceId, AnniversaryPatchDTO patch,
+                                                    Integer expectedVersion) {
+        log.info("部分更新纪念日: {}", id);
+        
+        Anniversary existing = anniversaryMapper.findById(id);
+        if (existing == null || !Objects.equals(existing.getSpaceId(), spaceId)) {
+            log.warn("纪念日不存在: {}", id);
+            return AnniversaryUpdateResult.notFound();
+        }
+        if (expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+            log.info("纪念日版本冲突: {}, 客户端版本 {}, 当前版本 {}", id, expectedVersion, existing.getVersion());
+            return AnniversaryUpdateResult.conflict(existing);
+        }
+        
+        // 只保留与当前值不同的字段
+        Anniversary changes = new Anniversary();
+        boolean changed = false;
+        if (patch.getName() != null && !patch.getName().equals(existing.getName())) {
+            changes.setName(patch.getName());
+            existing.setName(patch.getName());
+            changed = true;
+        }
+        if (patch.getDate() != null && !patch.getDate().equals(existing.getDate())) {
+            changes.setDate(patch.getDate());
+            existing.setDate(patch.getDate());
+            changed = true;
+        }
+        if (patch.getDescription() != null && !patch.getDescription().equals(existing.getDescription())) {
+            changes.setDescription(patch.getDescription());
+            existing.setDescription(patch.getDescription());
+            changed = true;
+        }
+        if (patch.getIsYearly() != null && !patch.getIsYearly().equals(existing.getIsYearly())) {
+            changes.setIsYearly(patch.getIsYearly());
+            existing.setIsYearly(patch.getIsYearly());
+            changed = true;
+        }
+        if (patch.getIsLunar() != null && !patch.getIsLunar().equals(existing.getIsLunar())) {
+            changes.setIsLunar(patch.getIsLunar());
+            existing.setIsLunar(patch.getIsLunar());
+            changed = true;
+        }
+        if (patch.getIsImportant() != null && !patch.getIsImportant().equals(existing.getIsImportant())) {
+            changes.setIsImportant(patch.getIsImportant());
+            existing.setIsImportant(patch.getIsImportant());
+            changed = true;
+        }
+        if (patch.getRemind() != null && !patch.getRemind().equals(existing.getRemind())) {
+            changes.setRemind(patch.getRemind());
+            existing.setRemind(patch.getRemind());
+            changed = true;
+        }
+        if (patch.getRemindTime() != null && !patch.getRemindTime().equals(existing.getRemindTime())) {
+            changes.setRemindTime(patch.getRemindTime());
+            existing.setRemindTime(patch.getRemindTime());
+            changed = true;
+        }
+        if (changed && AnniversaryOccurrences.isLunar(existing) && !LunarCalendar.isSupported(existing.getDate())) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST,
+                    "农历纪念日的日期必须在" + LunarCalendar.MIN_YEAR + "年到" + LunarCalendar.MAX_YEAR + "年之间");
+        }
+        if (!changed) {
+            // 没有变化时不写数据库，也不发布变更事件
+            log.info("纪念日没有变化: {}", id);
+            return AnniversaryUpdateResult.unchanged(existing);
+        }
+        
+        changes.setId(id);
+        changes.setVersion(existing.getVersion());
+        changes.setUpdatedAt(LocalDate.now());
+        if (anniversaryMapper.updateSelective(changes) == 0) {
+            // 读取之后被其他请求修改或删除
+            Anniversary current = anniversaryMapper.findById(id);
+            log.info("纪念日版本冲突: {}, 读取时版本 {}", id, existing.getVersion());
+            return current == null ? AnniversaryUpdateResult.notFound() : AnniversaryUpdateResult.conflict(current);
+        }
+        existing.setUpdatedAt(changes.getUpdatedAt());
+        existing.setVersion(existing.getVersion() + 1);
+        eventPublisher.publishEvent(AnniversaryChangedEvent.updated(existing));
+        
+        log.info("纪念日部分更新成功");
+        return AnniversaryUpdateResult.updated(existing);
+    }
+
     @Override
     @Transactional
-    public void deleteAnniversary(Long id) {
+    public boolean deleteAnniversary(Long id, Long spaceId) {
         log.info("删除纪念日: {}", id);
         
+        // 删除前读取原记录，变更事件需要携带所属用户
+        Anniversary existing = anniversaryMapper.findById(id);
+        if (existing == null || !Objects.equals(existing.getSpaceId(), spaceId)) {
+            log.warn("纪念日不存在: {}", id);
+            return false;
+        }
+        
         // 删除数据库记录
         anniversaryMapper.delete(id);
+        eventPublisher.publishEvent(AnniversaryChangedEvent.deleted(id, existing));
         
         log.info("纪念日删除成功");
+        return true;
     }
 
     @Override
-    public Anniversary getAnniversaryById(Long id) {
+    public Anniversary getAnniversaryById(Long id, LocalDate today) {
         log.info("查询纪念日: {}", id);
         
-        Anniversary anniversary = anniversaryMapper.findById(id);
+        Anniversary shared = byIdFlight.execute(id + ":" + today.toEpochDay(), () -> {
+            Anniversary anniversary = anniversaryMapper.findById(id);
+            
+            if (anniversary == null) {
+                log.warn("纪念日不存在: {}", id);
+            } else {
+                applyDaysRemaining(anniversary, today);
+                log.info("纪念日查询成功");
+            }
+            
+            return anniversary;
+        });
+        return shared == null ? null : shared.copy();
+    }
+
+    @Override
+    public Map<Long, Anniversary> getAnniversariesByIds(Collection<Long> ids, LocalDate today) {
+        log.info("批量查询纪念日: {} 个", ids.size());
         
-        if (anniversary == null) {
-            log.warn("纪念日不存在: {}", id);
-        } else {
-            log.info("纪念日查询成功");
+        // 去重后按块查询，避免IN列表过长
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinct.remove(null);
+        Map<Long, Anniversary> result = new HashMap<>(distinct.size() * 2);
+        for (int from = 0; from < distinct.size(); from += FIND_BY_IDS_CHUNK) {
+            List<Long> chunk = distinct.subList(from, Math.min(from + FIND_BY_IDS_CHUNK, distinct.size()));
+            for (Anniversary anniversary : anniversaryMapper.findByIds(chunk)) {
+                applyDaysRemaining(anniversary, today);
+                result.put(anniversary.getId(), anniversary);
+            }
         }
         
-        return anniversary;
+        log.info("批量查询到 {} 个纪念日", result.size());
+        return result;
     }
 
     @Override
-    public List<Anniversary> getAnniversariesByUserId(Long userId) {
+    public List<Anniversary> getAnniversariesByUserId(Long userId, LocalDate today) {
         log.info("查询用户的所有纪念日: {}", userId);
         
-        List<Anniversary> anniversaries = anniversaryMapper.findByUserId(userId);
+        List<Anniversary> anniversaries = withDaysRemaining(anniversaryMapper.findByUserId(userId), today);
+        
+        log.info("查询到 {} 个纪念日", anniversaries.size());
+        return anniversaries;
+    }
+
+    @Override
+    public List<Anniversary> getAnniversariesBySpaceId(Long spaceId, LocalDate today) {
+        log.info("查询空间的所有纪念日: {}", spaceId);
+        
+        List<Anniversary> shared = bySpaceFlight.execute(spaceId + ":" + today.toEpochDay(),
+                () -> Collections.unmodifiableList(querySpace(spaceId, today)));
+        List<Anniversary> copies = new ArrayList<>(shared.size());
+        for (Anniversary anniversary : shared) {
+            copies.add(anniversary.copy());
+        }
+        return Collections.unmodifiableList(copies);
+    }
+
+    @Override
+    public List<Anniversary> loadAnniversariesBySpaceId(Long spaceId, LocalDate today) {
+        log.info("加载空间的所有纪念日: {}", spaceId);
+        
+        return querySpace(spaceId, today);
+    }
+
+    private List<Anniversary> querySpace(Long spaceId, LocalDate today) {
+        List<Anniversary> anniversaries = withDaysRemaining(anniversaryMapper.findBySpaceId(spaceId), today);
         
         log.info("查询到 {} 个纪念日", anniversaries.size());
         return anniversaries;
     }
 
     @Override
-    public Anniversary getNextAnniversary() {
+    public Anniversary getNextAnniversary(LocalDate today) {
         log.info("查询下一个即将到来的纪念日");
-        return anniversaryMapper.findNextAnniversary();
+        List<Anniversary> anniversaries = getAllAnniversaries(today);
+        // 已排序，不会再发生的纪念日排在最后
+        return anniversaries.isEmpty() || anniversaries.get(0).getDaysRemaining() == null
+                ? null : anniversaries.get(0);
     }
 
     @Override
-    public List<Anniversary> getAllAnniversaries() {
+    public List<Anniversary> getAllAnniversaries(LocalDate today) {
         log.info("获取所有纪念日");
-        return anniversaryMapper.findAll();
+        return withDaysRemaining(anniversaryMapper.findAll(), today);
+    }
+
+    /**
+     * 计算列表中每个纪念日的剩余天数，并按剩余天数升序排序
+     * 不会再发生的纪念日没有剩余天数，排在最后
+     */
+    private List<Anniversary> withDaysRemaining(List<Anniversary> anniversaries, LocalDate today) {
+        for (Anniversary anniversary : anniversaries) {
+            applyDaysRemaining(anniversary, today);
+        }
+        anniversaries.sort(Comparator.comparing(Anniversary::getDaysRemaining,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        return anniversaries;
+    }
+
+    private void applyDaysRemaining(Anniversary anniversary, LocalDate today) {
+        Long days = AnniversaryOccurrences.daysUntilNext(anniversary, today);
+        anniversary.setDaysRemaining(days == null ? null : days.intValue());
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,292 @@
+package com.couple.space.service.impl;
+
+import com.couple.space.cache.AnniversaryListResponseCache;
+import com.couple.space.cache.CacheInvalidationBus;
+import com.couple.space.common.BusinessException;
+import com.couple.space.common.ErrorCode;
+import com.couple.space.entity.Anniversary;
+import com.couple.space.entity.Space;
+import com.couple.space.entity.SpaceMember;
+import com.couple.space.event.AnniversaryChangedEvent;
+import com.couple.space.mapper.AnniversaryMapper;
+import com.couple.space.mapper.SpaceMapper;
+import com.couple.space.mapper.UserMapper;
+import com.couple.space.service.SpaceService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 情侣空间服务实现类
+ * 用户到空间的映射几乎不变，缓存在有界的内存表中：
+ * 1. 按访问顺序淘汰，超过有效期后重新查询
+ * 2. 成员关系变化时在事务提交后清除对应用户的缓存，并通过失效总线通知其他实例
+ */
+@Slf4j
+@Service
+public class SpaceServiceImpl implements SpaceService {
+    /**
+     * 每个空间的最大成员数
+     */
+    private static final int MAX_MEMBERS = 2;
+
+    /**
+     * 邀请码字符表，去掉了容易混淆的0、O、1、I
+     */
+    private static final char[] INVITE_ALPHABET = "23456789ABCDEFGHJKLMNPQRSTUVWXYZ".toCharArray();
+    private static final int INVITE_LENGTH = 8;
+
+    /**
+     * 生成邀请码冲突时的最大重试次数
+     */
+    private static final int MAX_INVITE_ATTEMPTS = 5;
+
+    /**
+     * 失效总线上的缓存名称，缓存键为用户ID
+     */
+    private static final String CACHE_NAME = "space-user";
+
+    private final SpaceMapper spaceMapper;
+    private final UserMapper userMapper;
+    private final AnniversaryMapper anniversaryMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final AnniversaryListResponseCache listResponseCache;
+    private final CacheInvalidationBus invalidationBus;
+    private final SecureRandom random = new SecureRandom();
+    private final long ttlMillis;
+
+    /**
+     * 用户ID到空间ID的缓存
+     */
+    private final LinkedHashMap<Long, CachedSpace> cache;
+
+    /**
+     * 缓存的空间ID
+     */
+    private static final class CachedSpace {
+        final Long spaceId;
+        final long expiresAt;
+
+        CachedSpace(Long spaceId, long expiresAt) {
+            this.spaceId = spaceId;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public SpaceServiceImpl(SpaceMapper spaceMapper,
+                            UserMapper userMapper,
+                            AnniversaryMapper anniversaryMapper,
+                            ApplicationEventPublisher eventPublisher,
+                            TransactionTemplate transactionTemplate,
+                            AnniversaryListResponseCache listResponseCache,
+                            CacheInvalidationBus invalidationBus,
+                            @Value("${space.cache.max-entries:10000}") int maxEntries,
+                            @Value("${space.cache.ttl:600000}") long ttlMillis) {
+        this.spaceMapper = spaceMapper;
+        this.userMapper = userMapper;
+        this.anniversaryMapper = anniversaryMapper;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.listResponseCache = listResponseCache;
+        this.invalidationBus = invalidationBus;
+        this.ttlMillis = ttlMillis;
+        this.cache = new LinkedHashMap<Long, CachedSpace>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedSpace> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        invalidationBus.subscribe(CACHE_NAME, key -> {
+            synchronized (cache) {
+                if (CacheInvalidationBus.ALL_KEYS.equals(key)) {
+                    cache.clear();
+                } else {
+                    cache.remove(Long.parseLong(key));
+                }
+            }
+        });
+    }
+
+    @Override
+    public Long resolveSpaceId(Long userId) {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            CachedSpace cached = cache.get(userId);
+            if (cached != null && cached.expiresAt > now) {
+                return cached.spaceId;
+            }
+        }
+        Long spaceId = spaceMapper.findSpaceIdByUserId(userId);
+        if (spaceId == null) {
+            spaceId = createPersonalSpace(userId);
+        }
+        synchronized (cache) {
+            cache.put(userId, new CachedSpace(spaceId, now + ttlMillis));
+        }
+        return spaceId;
+    }
+
+    @Override
+    public Space getSpace(Long userId) {
+        return spaceMapper.findById(resolveSpaceId(userId));
+    }
+
+    @Override
+    public List<SpaceMember> getMembers(Long spaceId) {
+        return spaceMapper.findMembers(spaceId);
+    }
+
+    @Override
+    @Transactional
+    public Space joinSpace(Long userId, String inviteCode) {
+        Space target = spaceMapper.findByInviteCode(inviteCode.trim().toUpperCase());
+        if (target == null) {
+            throw new BusinessException(ErrorCode.NOT_FOUND, "邀请码无效");
+        }
+        Long currentSpaceId = spaceMapper.findSpaceIdByUserId(userId);
+        if (target.getId().equals(currentSpaceId)) {
+            return target;
+        }
+        // 按ID顺序锁定目标空间和当前空间，成员数检查和插入不会与其他加入请求交错
+        if (currentSpaceId != null && currentSpaceId < target.getId()) {
+            spaceMapper.lockById(currentSpaceId);
+        }
+        if (spaceMapper.lockById(target.getId()) == null) {
+            throw new BusinessException(ErrorCode.NOT_FOUND, "邀请码无效");
+        }
+        if (currentSpaceId != null && currentSpaceId > target.getId()) {
+            spaceMapper.lockById(currentSpaceId);
+        }
+        if (spaceMapper.countMembers(target.getId()) >= MAX_MEMBERS) {
+            throw new BusinessException(ErrorCode.SPACE_FULL);
+        }
+        if (currentSpaceId != null) {
+            if (spaceMapper.countMembers(currentSpaceId) > 1) {
+                throw new BusinessException(ErrorCode.SPACE_ALREADY_JOINED);
+            }
+            // 个人空间只有自己，纪念日移入新空间后删除
+            spaceMapper.deleteMember(currentSpaceId, userId);
+            List<Anniversary> moving = anniversaryMapper.findBySpaceId(currentSpaceId);
+            LocalDate today = LocalDate.now();
+            int moved = spaceMapper.moveAnniversaries(currentSpaceId, target.getId(), today);
+            spaceMapper.delete(currentSpaceId);
+            // 按更新事件通知键表、搜索索引和推送，纪念日换到了新空间
+            for (Anniversary anniversary : moving) {
+                anniversary.setSpaceId(target.getId());
+                anniversary.setVersion(anniversary.getVersion() == null ? 1 : anniversary.getVersion() + 1);
+                anniversary.setUpdatedAt(today);
+                eventPublisher.publishEvent(AnniversaryChangedEvent.updated(anniversary));
+            }
+            log.info("用户 {} 的个人空间 {} 已合并到空间 {}，移动纪念日 {} 个", userId, currentSpaceId, target.getId(), moved);
+        }
+        SpaceMember member = new SpaceMember();
+        member.setSpaceId(target.getId());
+        member.setUserId(userId);
+        member.setRole(SpaceMember.ROLE_MEMBER);
+        member.setJoinedAt(LocalDateTime.now());
+        spaceMapper.insertMember(member);
+        invalidationBus.publish(CACHE_NAME, userId);
+        invalidationBus.publish(AnniversaryListResponseCache.CACHE_NAME, target.getId());
+        evictAfterCommit(userId, target.getId());
+        return target;
+    }
+
+    /**
+     * 为用户创建个人空间
+     * 并发创建时用户ID上的唯一索引只允许一个成功，失败的一方回滚后读取已创建的空间
+     */
+    private Long createPersonalSpace(Long userId) {
+        try {
+            Long spaceId = transactionTemplate.execute(status -> {
+                Space space = new Space();
+                space.setName(personalSpaceName(userId));
+                space.setCreatedBy(userId);
+                space.setCreatedAt(LocalDateTime.now());
+                insertWithInviteCode(space);
+                SpaceMember member = new SpaceMember();
+                member.setSpaceId(space.getId());
+                member.setUserId(userId);
+                member.setRole(SpaceMember.ROLE_OWNER);
+                member.setJoinedAt(space.getCreatedAt());
+                spaceMapper.insertMember(member);
+                return space.getId();
+            });
+            log.info("为用户 {} 创建个人空间 {}", userId, spaceId);
+            return spaceId;
+        } catch (DuplicateKeyException e) {
+            Long spaceId = spaceMapper.findSpaceIdByUserId(userId);
+            if (spaceId == null) {
+                throw e;
+            }
+            return spaceId;
+        }
+    }
+
+    private String personalSpaceName(Long userId) {
+        String username = userMapper.findUsernameById(userId);
+        return username == null ? "我们的空间" : username + "的空间";
+    }
+
+    /**
+     * 生成随机邀请码并插入空间，邀请码冲突时重新生成
+     */
+    private void insertWithInviteCode(Space space) {
+        for (int attempt = 1; ; attempt++) {
+            space.setInviteCode(generateInviteCode());
+            try {
+                spaceMapper.insert(space);
+                return;
+            } catch (DuplicateKeyException e) {
+                if (attempt >= MAX_INVITE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private String generateInviteCode() {
+        char[] code = new char[INVITE_LENGTH];
+        for (int i = 0; i < code.length; i++) {
+            code[i] = INVITE_ALPHABET[random.nextInt(INVITE_ALPHABET.length)];
+        }
+        return new String(code);
+    }
+
+    /**
+     * 事务提交后清除用户的缓存和新空间的列表响应，避免并发请求在提交前把旧值重新放入缓存
+     */
+    private void evictAfterCommit(Long userId, Long spaceId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(userId, spaceId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(userId, spaceId);
+            }
+        });
+    }
+
+    private void evict(Long userId, Long spaceId) {
+        synchronized (cache) {
+            cache.remove(userId);
+        }
+        // 移入的纪念日改变了新空间的列表
+        listResponseCache.invalidate(spaceId);
+    }
+}
@@ -1,8 +1,13 @@
 package com.couple.space.service.impl;
 
+import com.couple.space.calendar.ZoneClock;
+import com.couple.space.common.BusinessException;
+import com.couple.space.common.ErrorCode;
 import com.couple.space.entity.User;
 import com.couple.space.mapper.UserMapper;
+import com.couple.space.security.CredentialVerifier;
 import com.couple.space.service.UserService;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -10,7 +15,6 @@ import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
-import java.util.Optional;
 
 /**
  * 用户服务实现类
@@ -20,9 +24,11 @@ import java.util.Optional;
 @Service
 public class UserServiceImpl implements UserService {
     private final UserMapper userMapper;
+    private final CredentialVerifier credentialVerifier;
 
-    public UserServiceImpl(UserMapper userMapper) {
+    public UserServiceImpl(UserMapper userMapper, CredentialVerifier credentialVerifier) {
         this.userMapper = userMapper;
+        this.credentialVerifier = credentialVerifier;
     }
 
     @Override
@@ -42,47 +48,88 @@ public class UserServiceImpl implements UserService {
     @Transactional
     public User register(User user) {
         if (userMapper.existsByUsername(user.getUsername()) > 0) {
-            throw new RuntimeException("用户名已存在");
+            throw new BusinessException(ErrorCode.USERNAME_EXISTS);
         }
         
+        if (user.getTimeZone() != null) {
+            user.setTimeZone(requireTimeZone(user.getTimeZone()));
+        }
+        
+        // 保存前端加密后密码的BCrypt哈希，在有界的校验线程池中计算
+        user.setPassword(credentialVerifier.encode(user.getPassword()));
         user.setCreatedAt(java.time.LocalDateTime.now());
         user.setUpdatedAt(java.time.LocalDateTime.now());
         
         // log.info("用户注册 - 用户名: {}, 加密后密码: {}", 
         //     user.getUsername(), user.getPassword());
         
-        userMapper.insert(user);
+        try {
+            userMapper.insert(user);
+        } catch (DuplicateKeyException e) {
+            // 并发注册同一用户名时，检查都通过，由唯一索引拦下后到的一个
+            throw new BusinessException(ErrorCode.USERNAME_EXISTS);
+        }
         return user;
     }
 
     @Override
-    public Optional<User> login(String username, String encryptedPassword) {
-        // log.info("尝试登录用户: {}", username);
+    public User login(String username, String encryptedPassword) {
+        User user = userMapper.findByUsername(username);
+        if (user == null) {
+            // 做一次同样耗时的校验，并返回与密码错误相同的错误码，响应时间和内容都不暴露用户名是否存在
+            credentialVerifier.verifyUnknownUser(encryptedPassword);
+            throw new BusinessException(ErrorCode.BAD_CREDENTIALS);
+        }
+        // 在有界的校验线程池中比较前端传来的加密密码和数据库中存储的密码
+        CredentialVerifier.Result result = credentialVerifier.verifyBounded(encryptedPassword, user.getPassword());
+        if (result == CredentialVerifier.Result.MISMATCHED) {
+            throw new BusinessException(ErrorCode.BAD_CREDENTIALS);
+        }
+        if (result == CredentialVerifier.Result.MATCHED_NEEDS_REHASH) {
+            rehash(user, encryptedPassword);
+        }
+        return user;
+    }
+
+    /**
+     * 把旧格式的密码升级为BCrypt哈希
+     * 升级失败不影响本次登录，下次登录会再次尝试
+     * @param user 用户
+     * @param encryptedPassword 前端加密后的密码
+     */
+    private void rehash(User user, String encryptedPassword) {
         try {
-            User user = userMapper.findByUsername(username);
-            // log.info("查询用户结果: {}", user != null ? "找到用户" : "用户不存在");
-            
-            if (user != null) {
-                // log.info("开始验证密码 - 前端加密密码: {}, 数据库密码: {}", encryptedPassword, user.getPassword());
-                // 直接比较前端传来的加密密码和数据库中存储的密码
-                boolean passwordMatches = encryptedPassword.equals(user.getPassword());
-                // log.info("密码验证结果: {}", passwordMatches ? "成功" : "失败");
-                
-                if (passwordMatches) {
-                    // log.info("用户 {} 登录成功", username);
-                    return Optional.of(user);
-                } else {
-                    // log.warn("用户 {} 密码验证失败", username);
-                }
-            } else {
-                // log.warn("用户 {} 不存在", username);
+            String encoded = credentialVerifier.encode(encryptedPassword);
+            if (userMapper.updatePasswordIfUnchanged(user.getId(), user.getPassword(), encoded) > 0) {
+                user.setPassword(encoded);
+                log.info("用户 {} 的密码已升级为哈希存储", user.getUsername());
             }
         } catch (Exception e) {
-            // log.error("用户 {} 登录过程中发生错误: {}", username, e.getMessage(), e);
-            throw e;
+            log.warn("用户 {} 的密码升级失败: {}", user.getUsername(), e.getMessage());
         }
-        
-        return Optional.empty();
+    }
+
+    @Override
+    public String getTimeZone(Long userId) {
+        return userMapper.findTimeZoneById(userId);
+    }
+
+    @Override
+    public String updateTimeZone(Long userId, String timeZone) {
+        String normalized = requireTimeZone(timeZone);
+        if (userMapper.updateTimeZone(userId, normalized) == 0) {
+            throw new BusinessException(ErrorCode.USER_NOT_FOUND);
+        }
+        log.info("用户 {} 的时区更新为 {}", userId, normalized);
+        return normalized;
+    }
+
+    private static String requireTimeZone(String timeZone) {
+        String normalized = ZoneClock.normalize(timeZone);
+        if (normalized == null) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST, "无效的时区：" + timeZone);
+        }
+        return normalized;
     }
 
     @Override
@@ -97,11 +144,13 @@ public class UserServiceImpl implements UserService {
         // 获取所有用户
         List<User> users = userMapper.findAll();
         int updatedCount = 0;
+        // 所有用户使用同一个新密码，只需哈希一次
+        String encodedPassword = credentialVerifier.encode(newPassword);
         
         for (User user : users) {
             try {
-                // 更新用户密码（直接使用前端加密后的密码）
-                user.setPassword(newPassword);
+                // 更新用户密码（保存前端加密后密码的哈希）
+                user.setPassword(encodedPassword);
                 user.setUpdatedAt(java.time.LocalDateTime.now());
                 userMapper.update(user);
                 updatedCount++;
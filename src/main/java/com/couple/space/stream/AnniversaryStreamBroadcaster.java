@@ -0,0 +1,426 @@
+package com.couple.space.stream;
+
+import com.couple.space.calendar.AnniversaryOccurrences;
+import com.couple.space.calendar.ZoneClock;
+import com.couple.space.dto.AnniversaryChangeEventDTO;
+import com.couple.space.dto.AnniversaryTickDTO;
+import com.couple.space.event.AnniversaryChangeBatch;
+import com.couple.space.event.AnniversaryChangeLog;
+import com.couple.space.event.AnniversaryChangeRecord;
+import com.couple.space.event.AnniversaryChangedEvent;
+import com.couple.space.event.ZoneDayChangedEvent;
+import com.couple.space.index.AnniversaryKeyTable;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 纪念日SSE推送
+ * 把纪念日变更和每日倒计时推送给纪念日所属空间中所有成员的SSE连接
+ * 实现：
+ * 1. 变更来自变更日志，倒计时来自内存键表，推送过程不查询数据库
+ * 2. 每个连接一个有界队列，发布方只入队不写网络，由少量发送线程排空队列
+ * 3. 队列满时丢弃该连接积压的事件，改为一条resync事件，客户端收到后重新拉取一次
+ * 4. 空闲连接只占用一个SseEmitter和一个小队列，定期发送心跳注释保持连接
+ * 剩余天数按连接所属用户的时区计算，每个时区到达零点时推送该时区连接的倒计时
+ */
+@Slf4j
+@Component
+public class AnniversaryStreamBroadcaster {
+    /**
+     * 心跳事件
+     */
+    private static final StreamEvent HEARTBEAT = new StreamEvent(null, null);
+
+    /**
+     * 积压被丢弃后发送的重新同步事件
+     */
+    private static final StreamEvent RESYNC = new StreamEvent("resync", "{}");
+
+    private final AnniversaryChangeLog changeLog;
+    private final AnniversaryKeyTable keyTable;
+    private final ObjectMapper objectMapper;
+    private final ZoneClock zoneClock;
+    private final long timeoutMillis;
+    private final int bufferSize;
+    private final int maxConnections;
+    private final int maxPerUser;
+
+    /**
+     * 空间ID到该空间所有成员连接的映射
+     */
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * 当前连接数
+     */
+    private final AtomicInteger connections = new AtomicInteger();
+
+    /**
+     * 因积压被丢弃的次数
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * 发送线程池，每个连接同一时刻最多只有一个排空任务
+     */
+    private final ExecutorService sender;
+
+    private AnniversaryChangeLog.Subscription subscription;
+
+    /**
+     * 待发送的事件，数据已经序列化，同一事件发给多个连接时只序列化一次
+     */
+    private static final class StreamEvent {
+        final String name;
+        final String json;
+
+        StreamEvent(String name, String json) {
+            this.name = name;
+            this.json = json;
+        }
+    }
+
+    /**
+     * 一个SSE连接
+     */
+    private static final class Subscriber {
+        final long userId;
+        final long spaceId;
+        final ZoneId zone;
+        final SseEmitter emitter;
+        final ArrayBlockingQueue<StreamEvent> queue;
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(long userId, long spaceId, ZoneId zone, SseEmitter emitter, int bufferSize) {
+            this.userId = userId;
+            this.spaceId = spaceId;
+            this.zone = zone;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    public AnniversaryStreamBroadcaster(AnniversaryChangeLog changeLog,
+                                        AnniversaryKeyTable keyTable,
+                                        ObjectMapper objectMapper,
+                                        ZoneClock zoneClock,
+                                        @Value("${anniversary.stream.timeout:1800000}") long timeoutMillis,
+                                        @Value("${anniversary.stream.buffer-size:16}") int bufferSize,
+                                        @Value("${anniversary.stream.max-connections:10000}") int maxConnections,
+                                        @Value("${anniversary.stream.max-per-user:4}") int maxPerUser,
+                                        @Value("${anniversary.stream.sender-threads:2}") int senderThreads) {
+        this.changeLog = changeLog;
+        this.keyTable = keyTable;
+        this.objectMapper = objectMapper;
+        this.zoneClock = zoneClock;
+        this.timeoutMillis = timeoutMillis;
+        this.bufferSize = Math.max(2, bufferSize);
+        this.maxConnections = maxConnections;
+        this.maxPerUser = maxPerUser;
+        AtomicInteger sequence = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(Math.max(1, senderThreads), runnable -> {
+            Thread thread = new Thread(runnable, "anniversary-stream-sender-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 应用启动后只订阅之后的新变更
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        subscription = changeLog.subscribe("anniversary-stream", changeLog.headOffset() + 1, 256, this::onChanges);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        sender.shutdownNow();
+        for (Set<Subscriber> spaceSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : spaceSubscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * 为用户建立一个SSE连接
+     * @param userId 用户ID
+     * @param spaceId 用户所在空间ID，接收该空间所有纪念日的推送
+     * @param zone 用户时区
+     * @return SSE连接，连接数超过上限时返回null
+     */
+    public SseEmitter subscribe(long userId, long spaceId, ZoneId zone) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(userId, spaceId, zone, emitter, bufferSize);
+        boolean[] accepted = new boolean[1];
+        // 在compute中加入，避免与最后一个连接的移除并发时加入到已被移除的集合
+        subscribers.compute(spaceId, (k, spaceSubscribers) -> {
+            Set<Subscriber> result = spaceSubscribers == null ? ConcurrentHashMap.newKeySet() : spaceSubscribers;
+            int userConnections = 0;
+            for (Subscriber existing : result) {
+                if (existing.userId == userId) {
+                    userConnections++;
+                }
+            }
+            if (userConnections < maxPerUser) {
+                result.add(subscriber);
+                accepted[0] = true;
+            }
+            return result.isEmpty() ? null : result;
+        });
+        if (!accepted[0]) {
+            connections.decrementAndGet();
+            return null;
+        }
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        // 读取一次今天，确保该时区的零点任务已经登记
+        zoneClock.epochDay(zone);
+        // 立即发送一条心跳，让客户端尽快收到响应头
+        offer(subscriber, HEARTBEAT);
+        return emitter;
+    }
+
+    /**
+     * 当前连接数
+     * @return 连接数
+     */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * 定期向所有连接发送心跳，避免代理关闭空闲连接
+     */
+    @Scheduled(fixedDelayString = "${anniversary.stream.heartbeat-interval:25000}")
+    public void heartbeat() {
+        for (Set<Subscriber> spaceSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : spaceSubscribers) {
+                offer(subscriber, HEARTBEAT);
+            }
+        }
+        long droppedCount = dropped.sumThenReset();
+        if (droppedCount > 0) {
+            log.warn("纪念日推送：{} 个连接因消费过慢丢弃了积压事件，当前连接数 {}", droppedCount, connections.get());
+        }
+    }
+
+    /**
+     * 某个时区到达零点后，推送该时区的连接所在空间所有纪念日的剩余天数
+     * 数据来自内存键表，不查询数据库
+     * @param event 时区日期变更事件
+     */
+    @EventListener
+    public void onZoneDayChanged(ZoneDayChangedEvent event) {
+        if (connections.get() == 0) {
+            return;
+        }
+        ZoneId zone = event.getZone();
+        LocalDate today = event.getToday();
+        Set<Long> spaceIds = new HashSet<>();
+        for (Map.Entry<Long, Set<Subscriber>> entry : subscribers.entrySet()) {
+            for (Subscriber subscriber : entry.getValue()) {
+                if (subscriber.zone.equals(zone)) {
+                    spaceIds.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        if (spaceIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Map<Long, Long>> daysBySpace = new HashMap<>();
+        keyTable.forEachRow((id, userId, spaceId, epochDay, updatedDay, flags) -> {
+            if (!spaceIds.contains(spaceId)) {
+                return;
+            }
+            boolean yearly = (flags & AnniversaryKeyTable.FLAG_YEARLY) != 0;
+            boolean lunar = (flags & AnniversaryKeyTable.FLAG_LUNAR) != 0;
+            Long days = AnniversaryOccurrences.daysUntilNext(LocalDate.ofEpochDay(epochDay), yearly, lunar, today);
+            if (days != null) {
+                daysBySpace.computeIfAbsent(spaceId, k -> new HashMap<>()).put(id, days);
+            }
+        });
+        for (Long spaceId : spaceIds) {
+            Set<Subscriber> spaceSubscribers = subscribers.get(spaceId);
+            if (spaceSubscribers == null) {
+                continue;
+            }
+            AnniversaryTickDTO dto = new AnniversaryTickDTO();
+            dto.setDate(today);
+            Map<Long, Long> days = daysBySpace.get(spaceId);
+            dto.setDaysRemaining(days == null ? new HashMap<>() : days);
+            StreamEvent tick = serialize("tick", dto);
+            if (tick == null) {
+                continue;
+            }
+            for (Subscriber subscriber : spaceSubscribers) {
+                if (subscriber.zone.equals(zone)) {
+                    offer(subscriber, tick);
+                }
+            }
+        }
+        log.info("时区 {} 的纪念日倒计时已推送给 {} 个空间", zone, spaceIds.size());
+    }
+
+    /**
+     * 处理一批纪念日变更，推送给所属空间的连接
+     * @param batch 变更批次
+     */
+    private void onChanges(AnniversaryChangeBatch batch) {
+        if (batch.isTruncated()) {
+            // 错过了部分变更，所有连接都需要重新同步
+            for (Set<Subscriber> spaceSubscribers : subscribers.values()) {
+                for (Subscriber subscriber : spaceSubscribers) {
+                    offer(subscriber, RESYNC);
+                }
+            }
+        }
+        for (AnniversaryChangeRecord record : batch.getRecords()) {
+            Long spaceId = record.getAnniversary() == null ? null : record.getAnniversary().getSpaceId();
+            Set<Subscriber> spaceSubscribers = spaceId == null ? null : subscribers.get(spaceId);
+            if (spaceSubscribers == null || spaceSubscribers.isEmpty()) {
+                continue;
+            }
+            // 同一空间的连接通常在同一个时区，每个时区只序列化一次
+            Map<ZoneId, StreamEvent> events = new HashMap<>(2);
+            for (Subscriber subscriber : spaceSubscribers) {
+                StreamEvent event = events.computeIfAbsent(subscriber.zone, zone -> changeEvent(record, zone));
+                if (event != null) {
+                    offer(subscriber, event);
+                }
+            }
+        }
+    }
+
+    private StreamEvent changeEvent(AnniversaryChangeRecord record, ZoneId zone) {
+        AnniversaryChangeEventDTO dto = new AnniversaryChangeEventDTO();
+        dto.setType(record.getType().name());
+        dto.setId(record.getId());
+        if (record.getType() != AnniversaryChangedEvent.ChangeType.DELETE && record.getAnniversary() != null) {
+            dto.setAnniversary(record.getAnniversary());
+            dto.setDaysRemaining(AnniversaryOccurrences.daysUntilNext(record.getAnniversary(), zoneClock.today(zone)));
+        }
+        return serialize("change", dto);
+    }
+
+    /**
+     * 序列化事件数据，同一事件发给多个连接时只序列化一次
+     * @return 待发送的事件，序列化失败时返回null
+     */
+    private StreamEvent serialize(String name, Object data) {
+        try {
+            return new StreamEvent(name, objectMapper.writeValueAsString(data));
+        } catch (JsonProcessingException e) {
+            log.error("纪念日推送事件序列化失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 事件入队，队列满时丢弃积压并改为重新同步事件
+     */
+    private void offer(Subscriber subscriber, StreamEvent event) {
+        if (subscriber.closed.get()) {
+            return;
+        }
+        if (!subscriber.queue.offer(event)) {
+            if (event == HEARTBEAT) {
+                // 队列满说明连接上已有待发送的数据，心跳可以直接丢弃
+                return;
+            }
+            subscriber.queue.clear();
+            subscriber.queue.offer(RESYNC);
+            dropped.increment();
+        }
+        scheduleDrain(subscriber);
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> drain(subscriber));
+            } catch (RuntimeException e) {
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    /**
+     * 排空连接的队列
+     * 同一时刻每个连接只有一个线程在发送，发送完成后再检查一次队列，避免遗漏刚入队的事件
+     */
+    private void drain(Subscriber subscriber) {
+        do {
+            StreamEvent event;
+            while ((event = subscriber.queue.poll()) != null) {
+                if (!send(subscriber, event)) {
+                    subscriber.draining.set(false);
+                    return;
+                }
+            }
+            subscriber.draining.set(false);
+        } while (!subscriber.queue.isEmpty() && subscriber.draining.compareAndSet(false, true));
+    }
+
+    private boolean send(Subscriber subscriber, StreamEvent event) {
+        try {
+            if (event == HEARTBEAT) {
+                subscriber.emitter.send(SseEmitter.event().comment("ping"));
+            } else {
+                subscriber.emitter.send(SseEmitter.event().name(event.name).data(event.json, MediaType.APPLICATION_JSON));
+            }
+            return true;
+        } catch (Exception e) {
+            // 客户端断开或连接已结束
+            subscriber.emitter.completeWithError(e);
+            remove(subscriber);
+            return false;
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriber.queue.clear();
+        connections.decrementAndGet();
+        subscribers.computeIfPresent(subscriber.spaceId, (spaceId, spaceSubscribers) -> {
+            spaceSubscribers.remove(subscriber);
+            return spaceSubscribers.isEmpty() ? null : spaceSubscribers;
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package db.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Java迁移使用的表结构查询
+ * 通过information_schema判断索引是否存在，使迁移可以重复执行
+ */
+final class SchemaInspector {
+    private SchemaInspector() {
+    }
+
+    /**
+     * 索引是否存在
+     * @param connection 迁移使用的连接
+     * @param table 表名
+     * @param index 索引名
+     * @return 是否存在
+     */
+    static boolean indexExists(Connection connection, String table, String index) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM information_schema.statistics "
+                        + "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ? LIMIT 1")) {
+            statement.setString(1, table);
+            statement.setString(2, index);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * 查找以某列为第一列的唯一索引
+     * @param connection 迁移使用的连接
+     * @param table 表名
+     * @param column 列名
+     * @return 索引名，不存在时返回null
+     */
+    static String uniqueIndexOn(Connection connection, String table, String column) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT index_name FROM information_schema.statistics "
+                        + "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ? "
+                        + "AND seq_in_index = 1 AND non_unique = 0 LIMIT 1")) {
+            statement.setString(1, table);
+            statement.setString(2, column);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    /**
+     * 查找只包含某一列的普通索引，例如外键自动创建的索引
+     * @param connection 迁移使用的连接
+     * @param table 表名
+     * @param column 列名
+     * @param exclude 不查找的索引名
+     * @return 索引名，不存在时返回null
+     */
+    static String singleColumnIndexOn(Connection connection, String table, String column, String exclude)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT index_name FROM information_schema.statistics "
+                        + "WHERE table_schema = DATABASE() AND table_name = ? AND non_unique = 1 AND index_name <> ? "
+                        + "GROUP BY index_name HAVING COUNT(*) = 1 AND MAX(column_name) = ? LIMIT 1")) {
+            statement.setString(1, table);
+            statement.setString(2, exclude);
+            statement.setString(3, column);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package db.migration;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 为已有的用户表补充用户名唯一索引
+ * 基线迁移的库在V1.0.0之前已有users表，CREATE TABLE IF NOT EXISTS不会执行，uk_users_username不存在
+ * 已有用户名上的唯一索引时不做任何修改，可以重复执行
+ * 迁移前检查：存在重复的用户名时无法建立唯一索引，迁移失败并列出重复的用户名，不修改任何数据；
+ * 人工合并或重命名重复的账号后执行mvn flyway:repair，再重新迁移
+ */
+public class V1_0_11__Add_users_username_unique_index extends BaseJavaMigration {
+    /**
+     * 失败信息中最多列出的重复用户名数
+     */
+    private static final int MAX_REPORTED = 20;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        if (SchemaInspector.uniqueIndexOn(connection, "users", "username") != null) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            List<String> duplicates = new ArrayList<>();
+            try (ResultSet rs = statement.executeQuery("SELECT username, COUNT(*) FROM users "
+                    + "GROUP BY username HAVING COUNT(*) > 1 ORDER BY username LIMIT " + MAX_REPORTED)) {
+                while (rs.next()) {
+                    duplicates.add(rs.getString(1) + "(" + rs.getLong(2) + ")");
+                }
+            }
+            if (!duplicates.isEmpty()) {
+                throw new FlywayException("users表存在重复的用户名，无法建立唯一索引uk_users_username，"
+                        + "请先合并或重命名这些账号后执行mvn flyway:repair再重新迁移: " + String.join(", ", duplicates));
+            }
+            statement.execute("ALTER TABLE users ADD UNIQUE KEY uk_users_username (username)");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * 纪念日按用户查询的索引
+ * 1. 添加(user_id, date)复合索引，按用户过滤走该索引；查询是SELECT *，索引不覆盖，仍按命中的行回表
+ * 2. 复合索引以user_id开头，满足外键对索引的要求，删除外键自动创建的user_id单列索引
+ * 按空间查询的(space_id, date)索引在V1.0.4中随space_id列一起创建
+ * 索引已存在或已删除时跳过，可以重复执行
+ */
+public class V1_0_5__Add_anniversary_indexes extends BaseJavaMigration {
+    private static final String TABLE = "anniversaries";
+    private static final String USER_DATE_INDEX = "idx_anniversaries_user_id_date";
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            if (!SchemaInspector.indexExists(connection, TABLE, USER_DATE_INDEX)) {
+                statement.execute("ALTER TABLE " + TABLE + " ADD INDEX " + USER_DATE_INDEX + " (user_id, date)");
+            }
+            String redundant = SchemaInspector.singleColumnIndexOn(connection, TABLE, "user_id", USER_DATE_INDEX);
+            if (redundant != null) {
+                statement.execute("ALTER TABLE " + TABLE + " DROP INDEX `" + redundant + "`");
+            }
+        }
+    }
+}
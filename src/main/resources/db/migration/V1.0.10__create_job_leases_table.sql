@@ -0,0 +1,18 @@
+-- 创建定时任务租约表
+-- 每个任务分片一行，持有租约的实例执行该分片，每次获得租约时fencing_token加1
+CREATE TABLE IF NOT EXISTS job_leases (
+    job_name VARCHAR(64) NOT NULL COMMENT '任务名称',
+    shard INT NOT NULL COMMENT '分片序号',
+    owner VARCHAR(64) NULL COMMENT '持有租约的实例ID',
+    fencing_token BIGINT NOT NULL DEFAULT 0 COMMENT '租约令牌，每次易主时递增',
+    expires_at TIMESTAMP(3) NULL COMMENT '租约到期时间',
+    next_run_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '下次执行时间',
+    PRIMARY KEY (job_name, shard)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='定时任务租约表';
+
+-- 创建定时任务实例表
+-- 各实例定期写入心跳，按存活实例数均分任务分片
+CREATE TABLE IF NOT EXISTS job_nodes (
+    node_id VARCHAR(64) PRIMARY KEY COMMENT '实例ID',
+    heartbeat_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '最近一次心跳时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='定时任务实例表';
@@ -0,0 +1,2 @@
+-- 幂等记录在执行前先插入占位行，执行完成后再写入状态码和响应体
+ALTER TABLE idempotency_keys MODIFY status INT NULL COMMENT '响应的HTTP状态码，执行中为NULL';
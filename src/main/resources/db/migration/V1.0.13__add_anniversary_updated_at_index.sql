@@ -0,0 +1,3 @@
+-- 纪念日更新时间索引
+-- 启动时读取高水位的MAX(updated_at)只读索引末端，快照追平按更新时间做范围扫描，都不再扫描全表
+ALTER TABLE anniversaries ADD INDEX idx_anniversaries_updated_at (updated_at);
@@ -1,8 +1,5 @@
--- 删除旧表
-DROP TABLE IF EXISTS anniversaries;
-
--- 创建新表
-CREATE TABLE anniversaries (
+-- 创建纪念日表，已存在时不做任何修改
+CREATE TABLE IF NOT EXISTS anniversaries (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     name VARCHAR(100) NOT NULL COMMENT '纪念日名称',
     date DATE NOT NULL COMMENT '纪念日日期',
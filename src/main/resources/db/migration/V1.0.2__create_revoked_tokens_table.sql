@@ -0,0 +1,9 @@
+-- 创建已吊销令牌表
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    jti VARCHAR(36) NOT NULL PRIMARY KEY COMMENT '令牌ID',
+    user_id BIGINT NOT NULL COMMENT '令牌所属的用户ID',
+    expires_at TIMESTAMP NOT NULL COMMENT '令牌过期时间',
+    revoked_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '吊销时间',
+    INDEX idx_revoked_tokens_expires_at (expires_at),
+    INDEX idx_revoked_tokens_revoked_at (revoked_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='已吊销令牌表';
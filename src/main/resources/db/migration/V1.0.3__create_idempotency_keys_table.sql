@@ -0,0 +1,12 @@
+-- 创建幂等记录表
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    user_id BIGINT NOT NULL COMMENT '发起请求的用户ID',
+    idem_key VARCHAR(128) NOT NULL COMMENT '客户端提供的幂等键',
+    fingerprint CHAR(64) NOT NULL COMMENT '请求体摘要',
+    status INT NOT NULL COMMENT '响应的HTTP状态码',
+    body MEDIUMTEXT COMMENT '响应体JSON',
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    expires_at TIMESTAMP NOT NULL COMMENT '过期时间',
+    PRIMARY KEY (user_id, idem_key),
+    INDEX idx_idempotency_keys_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='幂等记录表';
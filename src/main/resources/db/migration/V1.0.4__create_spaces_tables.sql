@@ -0,0 +1,44 @@
+-- 创建情侣空间表
+CREATE TABLE IF NOT EXISTS spaces (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL COMMENT '空间名称',
+    invite_code VARCHAR(16) NOT NULL COMMENT '邀请码，另一半凭邀请码加入',
+    created_by BIGINT NOT NULL COMMENT '创建空间的用户ID',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    UNIQUE KEY uk_spaces_invite_code (invite_code)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='情侣空间表';
+
+-- 创建空间成员表
+-- 每个用户只属于一个空间，user_id上的唯一索引同时用于按用户查找所属空间
+CREATE TABLE IF NOT EXISTS space_members (
+    space_id BIGINT NOT NULL COMMENT '空间ID',
+    user_id BIGINT NOT NULL COMMENT '成员的用户ID',
+    role VARCHAR(16) NOT NULL DEFAULT 'MEMBER' COMMENT '成员角色：OWNER、MEMBER',
+    joined_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '加入时间',
+    PRIMARY KEY (space_id, user_id),
+    UNIQUE KEY uk_space_members_user_id (user_id),
+    FOREIGN KEY (space_id) REFERENCES spaces(id) ON DELETE CASCADE,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='空间成员表';
+
+-- 纪念日归属到空间，按空间查询走(space_id, date)索引
+ALTER TABLE anniversaries
+    ADD COLUMN space_id BIGINT NULL COMMENT '纪念日所属的空间ID' AFTER user_id,
+    ADD INDEX idx_anniversaries_space_id_date (space_id, date);
+
+-- 为已有用户各创建一个个人空间，邀请码由用户ID派生，保证唯一
+INSERT INTO spaces (name, invite_code, created_by)
+SELECT CONCAT(u.username, '的空间'), UPPER(CONCAT('U', LPAD(CONV(u.id, 10, 36), 7, '0'))), u.id
+FROM users u
+WHERE NOT EXISTS (SELECT 1 FROM space_members m WHERE m.user_id = u.id);
+
+INSERT INTO space_members (space_id, user_id, role)
+SELECT s.id, s.created_by, 'OWNER'
+FROM spaces s
+WHERE NOT EXISTS (SELECT 1 FROM space_members m WHERE m.user_id = s.created_by);
+
+-- 已有纪念日归属到创建者所在的空间
+UPDATE anniversaries a
+JOIN space_members m ON m.user_id = a.user_id
+SET a.space_id = m.space_id
+WHERE a.space_id IS NULL;
@@ -0,0 +1,4 @@
+-- 纪念日历法标志
+-- 为TRUE时date保存的是公历原日期，每年按它对应的农历月日重复
+ALTER TABLE anniversaries
+    ADD COLUMN is_lunar BOOLEAN DEFAULT FALSE COMMENT '是否按农历重复' AFTER is_yearly;
@@ -0,0 +1,4 @@
+-- 用户时区
+-- 剩余天数按用户所在时区的日期计算，为NULL时使用应用配置的默认时区
+ALTER TABLE users
+    ADD COLUMN time_zone VARCHAR(64) NULL COMMENT '时区ID，如Asia/Shanghai' AFTER password;
@@ -0,0 +1,4 @@
+-- 纪念日版本号
+-- 每次更新加1，更新时校验读取时的版本，两人同时编辑时后提交的一方得到冲突而不是覆盖
+ALTER TABLE anniversaries
+    ADD COLUMN version INT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号' AFTER remind_time;
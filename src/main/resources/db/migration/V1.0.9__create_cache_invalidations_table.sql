@@ -0,0 +1,10 @@
+-- 创建缓存失效日志表
+-- 每次写操作追加一行，各实例按自增ID轮询增量，使本地缓存失效
+CREATE TABLE IF NOT EXISTS cache_invalidations (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '失效序号',
+    cache_name VARCHAR(64) NOT NULL COMMENT '缓存名称',
+    cache_key VARCHAR(128) NOT NULL COMMENT '缓存键，*表示整个缓存',
+    node_id VARCHAR(64) NOT NULL COMMENT '发出失效的实例ID',
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    INDEX idx_cache_invalidations_created_at (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='缓存失效日志表';
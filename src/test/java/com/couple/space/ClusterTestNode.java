@@ -0,0 +1,65 @@
+package com.couple.space;
+
+import com.couple.space.cache.CacheInvalidationBus;
+import com.couple.space.job.ClusterJobScheduler;
+import org.mybatis.spring.annotation.MapperScan;
+import org.mybatis.spring.boot.autoconfigure.MybatisAutoConfiguration;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 测试用的集群实例
+ * 每个实例是一个独立的应用上下文，只包含定时任务调度器和缓存失效总线，
+ * 同名的H2内存库在同一个JVM中共享，多个实例连接同一个库即模拟多实例部署
+ * 表结构直接使用正式的迁移脚本，不加载application.yml，不启用@Scheduled，由测试手动驱动
+ */
+@SpringBootConfiguration
+@ImportAutoConfiguration({
+    DataSourceAutoConfiguration.class,
+    DataSourceTransactionManagerAutoConfiguration.class,
+    TransactionAutoConfiguration.class,
+    SqlInitializationAutoConfiguration.class,
+    MybatisAutoConfiguration.class
+})
+@MapperScan("com.couple.space.mapper")
+@Import({ClusterJobScheduler.class, CacheInvalidationBus.class})
+public class ClusterTestNode {
+
+    /**
+     * 启动一个连接到指定H2库的实例
+     * @param database 库名，相同库名的实例共享数据
+     * @param properties 额外的配置，格式为--key=value
+     * @return 应用上下文
+     */
+    public static ConfigurableApplicationContext start(String database, String... properties) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+            "--spring.config.name=cluster-test-node",
+            "--spring.main.banner-mode=off",
+            "--spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+            "--spring.datasource.username=sa",
+            "--spring.sql.init.mode=always",
+            "--spring.sql.init.schema-locations="
+                + "classpath:db/migration/V1.0.9__create_cache_invalidations_table.sql,"
+                + "classpath:db/migration/V1.0.10__create_job_leases_table.sql",
+            "--mybatis.configuration.map-underscore-to-camel-case=true",
+            "--mybatis.mapper-locations="
+                + "classpath:mapper/JobLeaseMapper.xml,classpath:mapper/CacheInvalidationMapper.xml"
+        ));
+        args.addAll(Arrays.asList(properties));
+        return new SpringApplicationBuilder(ClusterTestNode.class)
+            .web(WebApplicationType.NONE)
+            .run(args.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,76 @@
+package com.couple.space.cache;
+
+import com.couple.space.ClusterTestNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 缓存失效总线测试
+ * 两个实例共享同一个H2库，验证失效记录经过数据库轮询传递到另一个实例
+ */
+class CacheInvalidationBusTest {
+    private static final String CACHE = "test-cache";
+
+    private ConfigurableApplicationContext first;
+    private ConfigurableApplicationContext second;
+
+    @AfterEach
+    void close() {
+        if (first != null) {
+            first.close();
+        }
+        if (second != null) {
+            second.close();
+        }
+    }
+
+    @Test
+    void publishReachesOtherInstanceButNotItself() {
+        first = ClusterTestNode.start("invalidation_cross");
+        second = ClusterTestNode.start("invalidation_cross");
+        CacheInvalidationBus firstBus = first.getBean(CacheInvalidationBus.class);
+        CacheInvalidationBus secondBus = second.getBean(CacheInvalidationBus.class);
+        List<String> firstReceived = new CopyOnWriteArrayList<>();
+        List<String> secondReceived = new CopyOnWriteArrayList<>();
+        firstBus.subscribe(CACHE, firstReceived::add);
+        secondBus.subscribe(CACHE, secondReceived::add);
+
+        firstBus.publish(CACHE, 42L);
+        firstBus.poll();
+        secondBus.poll();
+
+        assertThat(secondReceived).containsExactly("42");
+        assertThat(firstReceived).isEmpty();
+
+        // 已处理的记录不会重复投递
+        secondBus.poll();
+        assertThat(secondReceived).containsExactly("42");
+    }
+
+    @Test
+    void rolledBackPublishIsNeverDelivered() {
+        first = ClusterTestNode.start("invalidation_rollback");
+        second = ClusterTestNode.start("invalidation_rollback");
+        CacheInvalidationBus firstBus = first.getBean(CacheInvalidationBus.class);
+        CacheInvalidationBus secondBus = second.getBean(CacheInvalidationBus.class);
+        List<String> secondReceived = new CopyOnWriteArrayList<>();
+        secondBus.subscribe(CACHE, secondReceived::add);
+
+        first.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+            firstBus.publish(CACHE, "rolled-back");
+            status.setRollbackOnly();
+        });
+        first.getBean(TransactionTemplate.class).executeWithoutResult(status ->
+            firstBus.publish(CACHE, "committed"));
+        secondBus.poll();
+
+        assertThat(secondReceived).containsExactly("committed");
+    }
+}
@@ -0,0 +1,87 @@
+package com.couple.space.job;
+
+import com.couple.space.ClusterTestNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 定时任务租约测试
+ * 两个实例共享同一个H2库，验证租约到期后的接管和旧持有者的写入隔离
+ */
+class ClusterJobSchedulerTest {
+    private static final String JOB = "lease-handover";
+
+    private ConfigurableApplicationContext first;
+    private ConfigurableApplicationContext second;
+
+    @AfterEach
+    void close() {
+        if (first != null) {
+            first.close();
+        }
+        if (second != null) {
+            second.close();
+        }
+    }
+
+    @Test
+    void expiredLeaseIsTakenOverAndOldHolderIsFenced() throws Exception {
+        first = ClusterTestNode.start("lease_handover", "--job.lease-time=1000");
+        second = ClusterTestNode.start("lease_handover", "--job.lease-time=1000");
+        ClusterJobScheduler firstScheduler = first.getBean(ClusterJobScheduler.class);
+        ClusterJobScheduler secondScheduler = second.getBean(ClusterJobScheduler.class);
+        BlockingQueue<JobContext> firstRuns = new LinkedBlockingQueue<>();
+        BlockingQueue<JobContext> secondRuns = new LinkedBlockingQueue<>();
+        firstScheduler.register(JOB, 0, 1, firstRuns::add);
+        secondScheduler.register(JOB, 0, 1, secondRuns::add);
+
+        firstScheduler.tick();
+        JobContext stale = firstRuns.poll(5, TimeUnit.SECONDS);
+        assertThat(stale).isNotNull();
+        assertThat(stale.fenced(() -> "written")).isEqualTo("written");
+
+        // 租约未到期，第二个实例拿不到分片
+        secondScheduler.tick();
+        assertThat(secondRuns.poll(500, TimeUnit.MILLISECONDS)).isNull();
+
+        // 第一个实例停顿，不再续期，租约到期后由第二个实例接管
+        Thread.sleep(1500);
+        secondScheduler.tick();
+        JobContext current = secondRuns.poll(5, TimeUnit.SECONDS);
+        assertThat(current).isNotNull();
+        assertThat(current.getFencingToken()).isGreaterThan(stale.getFencingToken());
+
+        assertThatThrownBy(() -> stale.fenced(() -> "written")).isInstanceOf(LeaseLostException.class);
+        assertThat(current.fenced(() -> "written")).isEqualTo("written");
+
+        // 第一个实例恢复后续期失败，不会再执行该分片
+        firstScheduler.tick();
+        assertThat(firstRuns.poll(500, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void shutdownReleasesLeaseWithoutWaitingForExpiry() throws Exception {
+        first = ClusterTestNode.start("lease_release", "--job.lease-time=60000");
+        second = ClusterTestNode.start("lease_release", "--job.lease-time=60000");
+        BlockingQueue<JobContext> firstRuns = new LinkedBlockingQueue<>();
+        BlockingQueue<JobContext> secondRuns = new LinkedBlockingQueue<>();
+        first.getBean(ClusterJobScheduler.class).register(JOB, 0, 1, firstRuns::add);
+        second.getBean(ClusterJobScheduler.class).register(JOB, 0, 1, secondRuns::add);
+
+        first.getBean(ClusterJobScheduler.class).tick();
+        assertThat(firstRuns.poll(5, TimeUnit.SECONDS)).isNotNull();
+
+        first.close();
+        first = null;
+        second.getBean(ClusterJobScheduler.class).tick();
+        assertThat(secondRuns.poll(5, TimeUnit.SECONDS)).isNotNull();
+    }
+}